@@ -0,0 +1,85 @@
+package system_for_the_university.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import system_for_the_university.SystemForTheUniversityApplication;
+import system_for_the_university.entity.Course;
+import system_for_the_university.entity.Registration;
+import system_for_the_university.entity.Student;
+import system_for_the_university.repository.CourseRepository;
+import system_for_the_university.repository.RegistrationRepository;
+import system_for_the_university.repository.StudentRepository;
+import system_for_the_university.service.CourseWindowIndex;
+import system_for_the_university.service.SeatLedger;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Поднимает приложение без веб-сервера на встроенной H2 (профиль bench) и заполняет данными
+через репозитории. Данные детерминированы, чтобы прогоны были воспроизводимы */
+final class BenchmarkDatabase {
+    private static final int CHUNK = 1000;
+
+    private BenchmarkDatabase() {
+    }
+
+    // args - настройки вида "--ключ=значение", перекрывают и application.properties, и профиль bench
+    static ConfigurableApplicationContext start(String... args) {
+        return new SpringApplicationBuilder(SystemForTheUniversityApplication.class)
+                .profiles("bench")
+                .web(WebApplicationType.NONE)
+                .run(args);
+    }
+
+    static List<Student> seedStudents(ConfigurableApplicationContext context, int count) {
+        StudentRepository studentRepository = context.getBean(StudentRepository.class);
+        List<Student> saved = new ArrayList<>(count);
+        List<Student> chunk = new ArrayList<>(CHUNK);
+        for (int i = 0; i < count; i++) {
+            chunk.add(new Student("Студент " + i, "student" + i + "@bench.local"));
+            if (chunk.size() == CHUNK || i == count - 1) {
+                saved.addAll(studentRepository.saveAll(chunk));
+                chunk.clear();
+            }
+        }
+        return saved;
+    }
+
+    /* Каждый четвёртый курс закрыт для записи, чтобы фильтр доступных курсов реально отсеивал строки.
+    На каждый курс записывается registrationsPerCourse студентов из переданного списка */
+    static List<Course> seedCourses(ConfigurableApplicationContext context, int count, int capacity,
+                                    int registrationsPerCourse, List<Student> students) {
+        CourseRepository courseRepository = context.getBean(CourseRepository.class);
+        RegistrationRepository registrationRepository = context.getBean(RegistrationRepository.class);
+        LocalDateTime now = LocalDateTime.now(ZoneId.of("Europe/Moscow"));
+
+        List<Course> courses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean open = i % 4 != 3;
+            courses.add(new Course("Курс " + i, capacity,
+                    open ? now.minusDays(1) : now.minusDays(10),
+                    open ? now.plusDays(7) : now.minusDays(5)));
+        }
+        courses = courseRepository.saveAll(courses);
+
+        List<Registration> chunk = new ArrayList<>(CHUNK);
+        for (Course course : courses) {
+            for (int r = 0; r < registrationsPerCourse; r++) {
+                chunk.add(new Registration(students.get(r % students.size()), course, now));
+                if (chunk.size() == CHUNK) {
+                    registrationRepository.saveAll(chunk);
+                    chunk.clear();
+                }
+            }
+        }
+        registrationRepository.saveAll(chunk);
+
+        // Сверка учёта мест заодно раскладывает записи по слотам курсов
+        context.getBean(SeatLedger.class).reconcileAll();
+        context.getBean(CourseWindowIndex.class).reload();
+        return courseRepository.findAllById(courses.stream().map(Course::getId).toList());
+    }
+}
@@ -0,0 +1,75 @@
+package system_for_the_university.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/* Запуск бенчмарков с фиксированными настройками, чтобы прогоны на разных машинах были сравнимы.
+Однопоточные бенчмарки запускаются один раз, конкурентные - для каждого числа потоков из bench.threads.
+Конкурентные бенчмарки заранее заводят по студенту на поток, поэтому потоков не больше MAX_THREADS.
+Ниже Java 21 режим virtual в ThreadingModeBenchmark пропускается, остальные режимы выполняются */
+public class BenchmarkRunner {
+    static final int MAX_THREADS = 256;
+    private static final List<Class<?>> CONCURRENT = List.of(
+            ContendedRegistrationBenchmark.class, ThreadingModeBenchmark.class);
+
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("bench.include", ".*");
+        int[] threadCounts = Arrays.stream(System.getProperty("bench.threads", "1,4,16").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        for (int threads : threadCounts) {
+            if (threads < 1 || threads > MAX_THREADS) {
+                throw new IllegalArgumentException(
+                        "bench.threads: число потоков должно быть от 1 до " + MAX_THREADS + ", указано " + threads);
+            }
+        }
+
+        try {
+            ChainedOptionsBuilder single = options(include, 1).result("target/jmh-result.json");
+            CONCURRENT.forEach(benchmark -> single.exclude(benchmark.getSimpleName()));
+            new Runner(single.build()).run();
+        } catch (NoBenchmarksException e) {
+            // Фильтр выбрал только конкурентные бенчмарки
+        }
+
+        for (Class<?> benchmark : CONCURRENT) {
+            if (!Pattern.compile(include).matcher(benchmark.getName()).find()) {
+                continue;
+            }
+            String suffix = benchmark == ContendedRegistrationBenchmark.class ? "contended" : "threading";
+            for (int threads : threadCounts) {
+                ChainedOptionsBuilder concurrent = options(benchmark.getSimpleName(), threads)
+                        .result("target/jmh-result-" + suffix + "-" + threads + "t.json");
+                if (benchmark == ThreadingModeBenchmark.class && !ThreadingModeBenchmark.virtualThreadsAvailable()) {
+                    System.out.println("Java " + Runtime.version().feature()
+                            + ": режим virtual требует Java 21 и пропущен, выполняется только platform");
+                    concurrent.param("threading", "platform");
+                }
+                new Runner(concurrent.build()).run();
+            }
+        }
+    }
+
+    private static ChainedOptionsBuilder options(String include, int threads) {
+        return new OptionsBuilder()
+                .include(include)
+                .threads(threads)
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .jvmArgs("-Xms1g", "-Xmx1g", "-XX:+UseParallelGC", "-Dspring.profiles.active=bench")
+                .resultFormat(ResultFormatType.JSON);
+    }
+}
@@ -0,0 +1,91 @@
+package system_for_the_university.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.RegistrationResponseDTO;
+import system_for_the_university.entity.Course;
+import system_for_the_university.entity.Student;
+import system_for_the_university.service.RegistrationService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Конкурентная запись на один курс. Число потоков задаёт BenchmarkRunner (bench.threads),
+у каждого потока свой студент, поэтому дублей нет и все потоки бьются за одну строку курса */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ContendedRegistrationBenchmark {
+    private static final int MAX_THREADS = BenchmarkRunner.MAX_THREADS;
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        @Param({"0", "20"})
+        int registrationsPerCourse;
+
+        ConfigurableApplicationContext context;
+        RegistrationService registrationService;
+        List<Student> students;
+        Course hotCourse;
+        Course fullCourse;
+        final AtomicInteger nextStudent = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = BenchmarkDatabase.start();
+            registrationService = context.getBean(RegistrationService.class);
+            students = BenchmarkDatabase.seedStudents(context, MAX_THREADS + registrationsPerCourse);
+            List<Student> enrolled = students.subList(MAX_THREADS, students.size());
+            // Горячий курс вмещает всех, второй курс заполнен полностью
+            hotCourse = BenchmarkDatabase.seedCourses(context, 1, students.size(),
+                    registrationsPerCourse, enrolled).get(0);
+            fullCourse = BenchmarkDatabase.seedCourses(context, 1, Math.max(1, registrationsPerCourse),
+                    Math.max(1, registrationsPerCourse), students).get(0);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        Student student;
+
+        @Setup(Level.Trial)
+        public void setUp(Database database) {
+            student = database.students.get(database.nextStudent.getAndIncrement());
+        }
+    }
+
+    @Benchmark
+    public RegistrationResponseDTO registerAndCancel(Database database, Client client) {
+        RegistrationResponseDTO response = database.registrationService.registerStudentToCourse(
+                new RegistrationRequestDTO(client.student.getId(), database.hotCourse.getId()));
+        database.registrationService.cancelRegistration(response.getId());
+        return response;
+    }
+
+    // Отказ на заполненном курсе: должен обходиться без транзакции в БД
+    @Benchmark
+    public Object rejectFull(Database database, Client client) {
+        try {
+            return database.registrationService.registerStudentToCourse(
+                    new RegistrationRequestDTO(client.student.getId(), database.fullCourse.getId()));
+        } catch (ResponseStatusException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package system_for_the_university.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import system_for_the_university.DTO.response.CourseResponseDTO;
+import system_for_the_university.entity.Course;
+import system_for_the_university.repository.CourseRepository;
+import system_for_the_university.service.CourseSearchIndex;
+import system_for_the_university.service.CourseService;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* Поиск курсов по названию на десятках тысяч курсов: отдельно индекс и весь путь сервиса с кэшем каталога.
+Названия собираются из частей, поэтому у частых слов тысячи совпадений, а у редких - единицы */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CourseSearchBenchmark {
+    private static final String[] PREFIXES = {"Основы", "Введение в", "Практикум по", "Спецкурс", "Теория"};
+    private static final String[] SUBJECTS = {"программирования", "математического анализа", "баз данных",
+            "машинного обучения", "дискретной математики", "компьютерных сетей", "теории вероятностей",
+            "операционных систем", "линейной алгебры", "информационной безопасности"};
+
+    @Param({"10000", "50000"})
+    int courseCount;
+
+    private ConfigurableApplicationContext context;
+    private CourseService courseService;
+    private CourseSearchIndex courseSearchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start();
+        courseService = context.getBean(CourseService.class);
+        courseSearchIndex = context.getBean(CourseSearchIndex.class);
+
+        CourseRepository courseRepository = context.getBean(CourseRepository.class);
+        LocalDateTime now = LocalDateTime.now(ZoneId.of("Europe/Moscow"));
+        List<Course> chunk = new ArrayList<>(1000);
+        for (int i = 0; i < courseCount; i++) {
+            String name = PREFIXES[i % PREFIXES.length] + " " + SUBJECTS[(i / PREFIXES.length) % SUBJECTS.length]
+                    + ", поток " + i;
+            chunk.add(new Course(name, 30, now.minusDays(1), now.plusDays(7)));
+            if (chunk.size() == 1000 || i == courseCount - 1) {
+                courseRepository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+        courseSearchIndex.reload();
+        // Первая страница частого запроса попадает в кэш каталога, как у прогретого приложения
+        courseService.searchCourses("основы", 0, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Начало названия, совпадений - пятая часть курсов
+    @Benchmark
+    public List<Long> namePrefix() {
+        return courseSearchIndex.search("основы", 0, 20).orElseThrow();
+    }
+
+    // Начало слова в середине названия, глубокая страница
+    @Benchmark
+    public List<Long> wordPrefixDeepPage() {
+        return courseSearchIndex.search("баз", 500, 20).orElseThrow();
+    }
+
+    // Подстрока внутри слова: пересечение списков по триграммам
+    @Benchmark
+    public List<Long> substring() {
+        return courseSearchIndex.search("тематич", 0, 20).orElseThrow();
+    }
+
+    // Редкое совпадение: конкретный поток
+    @Benchmark
+    public List<Long> rare() {
+        return courseSearchIndex.search("поток 4242", 0, 20).orElseThrow();
+    }
+
+    @Benchmark
+    public List<CourseResponseDTO> serviceCached() {
+        return courseService.searchCourses("основы", 0, 20);
+    }
+}
@@ -0,0 +1,76 @@
+package system_for_the_university.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import system_for_the_university.DTO.response.CourseResponseDTO;
+import system_for_the_university.entity.Course;
+import system_for_the_university.service.CourseCatalogCache;
+import system_for_the_university.service.CourseService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CourseServiceBenchmark {
+    @Param({"100", "1000"})
+    int courseCount;
+
+    @Param({"0", "20"})
+    int registrationsPerCourse;
+
+    private ConfigurableApplicationContext context;
+    private CourseService courseService;
+    private CourseCatalogCache courseCatalogCache;
+    private List<Course> courses;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start();
+        courseService = context.getBean(CourseService.class);
+        courseCatalogCache = context.getBean(CourseCatalogCache.class);
+        courses = BenchmarkDatabase.seedCourses(context, courseCount, registrationsPerCourse + 10,
+                registrationsPerCourse, BenchmarkDatabase.seedStudents(context, Math.max(1, registrationsPerCourse)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Путь через БД: кэш сбрасывается перед каждым вызовом
+    @Benchmark
+    public List<CourseResponseDTO> availableCourses() {
+        courseCatalogCache.invalidateAll();
+        return courseService.getAvailableCourses();
+    }
+
+    @Benchmark
+    public List<CourseResponseDTO> availableCoursesCached() {
+        courseService.getAllCourse();
+        return courseService.getAvailableCourses();
+    }
+
+    @Benchmark
+    public List<CourseResponseDTO> allCourses() {
+        courseCatalogCache.invalidateAll();
+        return courseService.getAllCourse();
+    }
+
+    @Benchmark
+    public CourseResponseDTO mapToDto() {
+        next = (next + 1) % courses.size();
+        return courseService.mapToDto(courses.get(next));
+    }
+}
@@ -0,0 +1,76 @@
+package system_for_the_university.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.RegistrationResponseDTO;
+import system_for_the_university.entity.Course;
+import system_for_the_university.entity.Registration;
+import system_for_the_university.entity.Student;
+import system_for_the_university.service.RegistrationService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+// Один студент на весь прогон, поэтому потоки мешали бы друг другу дубликатами. Конкуренцию меряет ContendedRegistrationBenchmark
+@Threads(1)
+public class RegistrationServiceBenchmark {
+    @Param({"100", "1000"})
+    int courseCount;
+
+    @Param({"0", "20"})
+    int registrationsPerCourse;
+
+    private ConfigurableApplicationContext context;
+    private RegistrationService registrationService;
+    private Student student;
+    private Course openCourse;
+    private Registration registration;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start();
+        registrationService = context.getBean(RegistrationService.class);
+        List<Student> students = BenchmarkDatabase.seedStudents(context, registrationsPerCourse + 1);
+        // Отдельный студент, который ещё никуда не записан
+        student = students.get(students.size() - 1);
+        List<Course> courses = BenchmarkDatabase.seedCourses(context, courseCount, registrationsPerCourse + 10,
+                registrationsPerCourse, students.subList(0, Math.max(1, registrationsPerCourse)));
+        openCourse = courses.get(0);
+        registration = new Registration(student, openCourse, LocalDateTime.now());
+        registration.setId(1L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Запись и отмена в одной операции, чтобы каждый вызов начинался с одинакового состояния курса
+    @Benchmark
+    public RegistrationResponseDTO registerAndCancel() {
+        RegistrationResponseDTO response = registrationService.registerStudentToCourse(
+                new RegistrationRequestDTO(student.getId(), openCourse.getId()));
+        registrationService.cancelRegistration(response.getId());
+        return response;
+    }
+
+    @Benchmark
+    public RegistrationResponseDTO mapToDto() {
+        return registrationService.mapToDto(registration);
+    }
+}
@@ -0,0 +1,116 @@
+package system_for_the_university.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.CourseResponseDTO;
+import system_for_the_university.DTO.response.RegistrationResponseDTO;
+import system_for_the_university.entity.Course;
+import system_for_the_university.entity.Student;
+import system_for_the_university.service.CourseService;
+import system_for_the_university.service.RegistrationService;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Сравнение платформенных и виртуальных потоков на стороне сервера. Потоки JMH играют роль клиентов:
+каждый отдаёт запрос исполнителю "сервера" и ждёт ответа, как ждал бы HTTP-клиент. В режиме platform
+исполнитель - пул фиксированного размера, как потоки Tomcat, в режиме virtual - виртуальный поток на запрос,
+как при spring.threads.virtual.enabled=true. Throughput даёт пропускную способность, SampleTime - p99.
+Клиентов должно быть больше, чем потоков сервера, иначе пул не насыщается: bench.threads=64,256.
+Режим virtual требует Java 21, на более старой Java BenchmarkRunner его пропускает */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadingModeBenchmark {
+    private static final int MAX_THREADS = BenchmarkRunner.MAX_THREADS;
+
+    static boolean virtualThreadsAvailable() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        @Param({"platform", "virtual"})
+        String threading;
+
+        // Размер пула платформенных потоков. Для виртуальных не используется
+        @Param({"32"})
+        int serverThreads;
+
+        ConfigurableApplicationContext context;
+        RegistrationService registrationService;
+        CourseService courseService;
+        Executor executor;
+        List<Student> students;
+        Course hotCourse;
+        final AtomicInteger nextStudent = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            boolean virtual = threading.equals("virtual");
+            // Сюда попадает только запуск в обход BenchmarkRunner, например через -p threading=virtual
+            if (virtual && !virtualThreadsAvailable()) {
+                throw new IllegalStateException("Режим virtual требует Java 21, запущено на Java " + Runtime.version());
+            }
+            context = BenchmarkDatabase.start("--spring.threads.virtual.enabled=" + virtual);
+            registrationService = context.getBean(RegistrationService.class);
+            courseService = context.getBean(CourseService.class);
+            executor = virtual
+                    ? new VirtualThreadTaskExecutor("bench-request-")
+                    : Executors.newFixedThreadPool(serverThreads);
+            students = BenchmarkDatabase.seedStudents(context, MAX_THREADS);
+            // Курс вмещает всех клиентов, чтобы запись не упиралась в места
+            hotCourse = BenchmarkDatabase.seedCourses(context, 1, MAX_THREADS, 0, students).get(0);
+            BenchmarkDatabase.seedCourses(context, 200, 30, 0, students);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (executor instanceof ExecutorService executorService) {
+                executorService.shutdownNow();
+            }
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        Student student;
+
+        @Setup(Level.Trial)
+        public void setUp(Server server) {
+            student = server.students.get(server.nextStudent.getAndIncrement());
+        }
+    }
+
+    @Benchmark
+    public RegistrationResponseDTO registerStudentToCourse(Server server, Client client) {
+        return CompletableFuture.supplyAsync(() -> {
+            RegistrationResponseDTO response = server.registrationService.registerStudentToCourse(
+                    new RegistrationRequestDTO(client.student.getId(), server.hotCourse.getId()));
+            // Отмена в том же запросе, чтобы каждый вызов начинался с одинакового состояния курса
+            server.registrationService.cancelRegistration(response.getId());
+            return response;
+        }, server.executor).join();
+    }
+
+    @Benchmark
+    public List<CourseResponseDTO> getAvailableCourses(Server server) {
+        return CompletableFuture.supplyAsync(server.courseService::getAvailableCourses, server.executor).join();
+    }
+}
@@ -0,0 +1,252 @@
+package system_for_the_university.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import system_for_the_university.SystemForTheUniversityApplication;
+import system_for_the_university.DTO.request.CourseRequestDTO;
+import system_for_the_university.DTO.response.KeysetPageDTO;
+import system_for_the_university.DTO.response.StudentImportResultDTO;
+import system_for_the_university.DTO.response.StudentResponseDTO;
+import system_for_the_university.repository.CourseRepository;
+import system_for_the_university.repository.RegistrationRepository;
+import system_for_the_university.service.CourseService;
+import system_for_the_university.service.StudentImportService;
+import system_for_the_university.service.StudentService;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/* Нагрузочный прогон "день записи" через HTTP. Приложение поднимается целиком, с веб-сервером на случайном
+порту, на встроенной H2 или на Postgres в Testcontainers (storm.db=postgres). Студенты и курсы создаются
+через сервисы приложения, затем по каждому сценарию на /api/registrations идут пачки параллельных заявок,
+а отдельные клиенты в это время читают /api/courses/available. В конце сверяются занятые места:
+записей на курсе не больше вместимости, счётчик совпадает с записями, а каждая 201 - это запись в БД.
+Если проверка не прошла, процесс завершается с кодом 1 */
+public class RegistrationStorm {
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+
+    private final StormSettings settings;
+    private final ConfigurableApplicationContext context;
+    private final HttpClient client;
+    private final String baseUrl;
+    private List<Long> studentIds;
+
+    private RegistrationStorm(StormSettings settings, ConfigurableApplicationContext context) {
+        this.settings = settings;
+        this.context = context;
+        this.baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        StormSettings settings = StormSettings.fromSystemProperties();
+        System.out.println("Параметры прогона: " + settings);
+
+        PostgreSQLContainer<?> postgres = null;
+        List<String> properties = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--registration.admission.enabled=" + settings.admission()));
+        if (settings.database().equals("postgres")) {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+            properties.add("--spring.datasource.url=" + postgres.getJdbcUrl());
+            properties.add("--spring.datasource.username=" + postgres.getUsername());
+            properties.add("--spring.datasource.password=" + postgres.getPassword());
+            properties.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect");
+        }
+
+        boolean correct;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SystemForTheUniversityApplication.class)
+                .profiles("bench")
+                .web(WebApplicationType.SERVLET)
+                .run(properties.toArray(String[]::new))) {
+            correct = new RegistrationStorm(settings, context).run();
+        } finally {
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+        System.exit(correct ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        seedStudents();
+        List<Map<String, Object>> results = new ArrayList<>();
+        boolean correct = true;
+        for (StormScenario scenario : settings.scenarios()) {
+            StormReport report = runScenario(scenario);
+            report.print(System.out);
+            results.add(report.toMap());
+            correct &= report.isCorrect();
+        }
+
+        Map<String, Object> output = new LinkedHashMap<>();
+        output.put("settings", settings);
+        output.put("scenarios", results);
+        File file = new File("target/storm-result.json");
+        file.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, output);
+        System.out.println("\nРезультаты сохранены в " + file.getPath());
+        return correct;
+    }
+
+    // Студенты загружаются импортом CSV, как это делает деканат, а их id читаются постраничным обходом
+    private void seedStudents() throws IOException {
+        StringBuilder csv = new StringBuilder("name,email\n");
+        for (int i = 0; i < settings.students(); i++) {
+            csv.append("Студент ").append(i).append(",storm").append(i).append("@load.local\n");
+        }
+        StudentImportResultDTO imported = context.getBean(StudentImportService.class)
+                .importCsv(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+        System.out.println("Импортировано студентов: " + imported.getImported());
+
+        StudentService studentService = context.getBean(StudentService.class);
+        studentIds = new ArrayList<>(settings.students());
+        Long cursor = 0L;
+        while (cursor != null) {
+            KeysetPageDTO<StudentResponseDTO> page = studentService.getStudentPage(cursor, 1000);
+            page.getItems().forEach(student -> studentIds.add(student.getId()));
+            cursor = page.getNextCursor();
+        }
+    }
+
+    private StormReport runScenario(StormScenario scenario) throws Exception {
+        CourseService courseService = context.getBean(CourseService.class);
+        LocalDateTime now = LocalDateTime.now(MOSCOW);
+        List<Integer> capacities = scenario.capacities(settings);
+        Map<Long, Integer> courses = new LinkedHashMap<>();
+        for (int i = 0; i < capacities.size(); i++) {
+            Long id = courseService.createCourse(new CourseRequestDTO(scenario + " " + i, capacities.get(i),
+                    now.minusHours(1), now.plusDays(1), MOSCOW.getId())).getId();
+            courses.put(id, capacities.get(i));
+        }
+        List<Long> courseIds = new ArrayList<>(courses.keySet());
+
+        StormReport report = new StormReport(scenario);
+        AtomicBoolean reading = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(Math.max(1, settings.readers()));
+        for (int i = 0; i < settings.readers(); i++) {
+            readers.execute(() -> {
+                while (reading.get()) {
+                    read(report);
+                }
+            });
+        }
+
+        ExecutorService writers = Executors.newFixedThreadPool(settings.writers());
+        try {
+            int perBurst = (settings.requests() + settings.bursts() - 1) / settings.bursts();
+            for (int from = 0; from < settings.requests(); from += perBurst) {
+                int to = Math.min(settings.requests(), from + perBurst);
+                List<Future<?>> burst = new ArrayList<>(to - from);
+                long started = System.nanoTime();
+                for (int request = from; request < to; request++) {
+                    Long studentId = studentIds.get(scenario.student(request, studentIds.size()));
+                    Long courseId = courseIds.get(scenario.course(request, courseIds.size()));
+                    burst.add(writers.submit(() -> register(report, studentId, courseId)));
+                }
+                for (Future<?> future : burst) {
+                    future.get();
+                }
+                report.addActiveNanos(System.nanoTime() - started);
+                if (to < settings.requests()) {
+                    Thread.sleep(settings.pauseMs());
+                }
+            }
+        } finally {
+            writers.shutdown();
+            reading.set(false);
+            readers.shutdown();
+            readers.awaitTermination(30, TimeUnit.SECONDS);
+        }
+
+        verifyOccupancy(report, courses);
+        return report;
+    }
+
+    private void register(StormReport report, Long studentId, Long courseId) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/registrations"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"studentId\":" + studentId + ",\"courseId\":" + courseId + "}"))
+                .build();
+        long started = System.nanoTime();
+        StormReport.Outcome outcome;
+        try {
+            outcome = StormReport.outcome(client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+        } catch (IOException e) {
+            outcome = StormReport.Outcome.ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        report.recordWrite(outcome, System.nanoTime() - started);
+    }
+
+    private void read(StormReport report) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/courses/available")).GET().build();
+        long started = System.nanoTime();
+        boolean ok;
+        try {
+            ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            ok = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        report.recordRead(ok, System.nanoTime() - started);
+    }
+
+    // Проверка по БД, а не по ответам: перебор мест и расхождение счётчика с записями - ошибка прогона
+    private void verifyOccupancy(StormReport report, Map<Long, Integer> courses) {
+        CourseRepository courseRepository = context.getBean(CourseRepository.class);
+        Map<Long, Long> registrations = new HashMap<>();
+        for (Object[] row : context.getBean(RegistrationRepository.class).countByCourse()) {
+            registrations.put((Long) row[0], (Long) row[1]);
+        }
+
+        long persisted = 0;
+        for (Map.Entry<Long, Integer> course : courses.entrySet()) {
+            long registered = registrations.getOrDefault(course.getKey(), 0L);
+            int occupied = courseRepository.findOccupiedSeatsById(course.getKey()).orElse(0);
+            persisted += registered;
+            if (registered > course.getValue()) {
+                report.violation("Курс " + course.getKey() + ": записей " + registered
+                        + " при вместимости " + course.getValue());
+            }
+            if (occupied != registered) {
+                report.violation("Курс " + course.getKey() + ": занято мест " + occupied + ", записей " + registered);
+            }
+        }
+        if (persisted != report.created()) {
+            report.violation("Успешных ответов " + report.created() + ", записей в БД " + persisted);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package system_for_the_university.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Итоги одного сценария: исходы и задержки записи и чтения, а также проверка занятых мест после прогона
+final class StormReport {
+    enum Outcome {CREATED, CONFLICT, REJECTED, CLOSED, ERROR}
+
+    private final StormScenario scenario;
+    private final Map<Outcome, LongAdder> writes = new ConcurrentHashMap<>();
+    private final Histogram writeLatency = new ConcurrentHistogram(3);
+    private final Histogram readLatency = new ConcurrentHistogram(3);
+    private final LongAdder readErrors = new LongAdder();
+    private final List<String> violations = new ArrayList<>();
+    private long activeNanos;
+
+    StormReport(StormScenario scenario) {
+        this.scenario = scenario;
+        for (Outcome outcome : Outcome.values()) {
+            writes.put(outcome, new LongAdder());
+        }
+    }
+
+    static Outcome outcome(int status) {
+        return switch (status) {
+            case 201 -> Outcome.CREATED;
+            case 409 -> Outcome.CONFLICT;
+            case 429, 503 -> Outcome.REJECTED;
+            case 400 -> Outcome.CLOSED;
+            default -> Outcome.ERROR;
+        };
+    }
+
+    void recordWrite(Outcome outcome, long nanos) {
+        writes.get(outcome).increment();
+        writeLatency.recordValue(nanos);
+    }
+
+    void recordRead(boolean ok, long nanos) {
+        if (!ok) {
+            readErrors.increment();
+        }
+        readLatency.recordValue(nanos);
+    }
+
+    void addActiveNanos(long nanos) {
+        activeNanos += nanos;
+    }
+
+    void violation(String message) {
+        violations.add(message);
+    }
+
+    long created() {
+        return writes.get(Outcome.CREATED).sum();
+    }
+
+    boolean isCorrect() {
+        return violations.isEmpty();
+    }
+
+    void print(PrintStream out) {
+        long total = writeLatency.getTotalCount();
+        out.printf("%n=== %s ===%n", scenario);
+        out.printf("Заявок: %d за %.2f с, %.0f заявок/с%n", total, activeNanos / 1e9, total / Math.max(activeNanos / 1e9, 1e-9));
+        out.printf("Исходы: %s, доля конфликтов %.1f%%%n", outcomes(),
+                100.0 * writes.get(Outcome.CONFLICT).sum() / Math.max(total, 1));
+        out.printf("Запись, мс: %s%n", percentiles(writeLatency));
+        out.printf("Чтение /api/courses/available: %d запросов, ошибок %d, мс: %s%n",
+                readLatency.getTotalCount(), readErrors.sum(), percentiles(readLatency));
+        out.println(violations.isEmpty() ? "Занятые места: перебора нет, счётчики совпадают с записями"
+                : "НАРУШЕНИЯ:\n  " + String.join("\n  ", violations));
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long total = writeLatency.getTotalCount();
+        result.put("scenario", scenario.name());
+        result.put("requests", total);
+        result.put("seconds", activeNanos / 1e9);
+        result.put("throughput", total / Math.max(activeNanos / 1e9, 1e-9));
+        result.put("outcomes", outcomes());
+        result.put("conflictRate", (double) writes.get(Outcome.CONFLICT).sum() / Math.max(total, 1));
+        result.put("writeLatencyMs", percentiles(writeLatency));
+        result.put("reads", readLatency.getTotalCount());
+        result.put("readErrors", readErrors.sum());
+        result.put("readLatencyMs", percentiles(readLatency));
+        result.put("correct", isCorrect());
+        result.put("violations", violations);
+        return result;
+    }
+
+    private Map<String, Long> outcomes() {
+        Map<String, Long> outcomes = new LinkedHashMap<>();
+        writes.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> outcomes.put(entry.getKey().name().toLowerCase(), entry.getValue().sum()));
+        return outcomes;
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", millis(histogram.getValueAtPercentile(50)));
+        percentiles.put("p95", millis(histogram.getValueAtPercentile(95)));
+        percentiles.put("p99", millis(histogram.getValueAtPercentile(99)));
+        percentiles.put("max", millis(histogram.getMaxValue()));
+        return percentiles;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / (double) TimeUnit.MILLISECONDS.toNanos(1) * 100) / 100.0;
+    }
+}
@@ -0,0 +1,60 @@
+package system_for_the_university.loadtest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/* Сценарии дня записи. Каждый сценарий получает свои новые курсы, поэтому проверка занятых мест
+после прогона относится только к его заявкам */
+enum StormScenario {
+    // Все заявки на один курс, мест в несколько раз меньше, чем заявок: проверка отказов и отсутствия перебора
+    HOT_COURSE {
+        @Override
+        List<Integer> capacities(StormSettings settings) {
+            return List.of(settings.capacity());
+        }
+
+        @Override
+        int course(int request, int courses) {
+            return 0;
+        }
+    },
+    // Заявки случайно распределены по всем курсам, студент тоже случайный, так что бывают и дубли
+    SPREAD {
+        @Override
+        List<Integer> capacities(StormSettings settings) {
+            return Collections.nCopies(settings.courses(), settings.capacity());
+        }
+
+        @Override
+        int student(int request, int students) {
+            return ThreadLocalRandom.current().nextInt(students);
+        }
+
+        @Override
+        int course(int request, int courses) {
+            return ThreadLocalRandom.current().nextInt(courses);
+        }
+    },
+    // Один большой курс на три четверти заявок: места разбиты на слоты, в конце слоты перераспределяются
+    LARGE_COURSE {
+        @Override
+        List<Integer> capacities(StormSettings settings) {
+            return List.of(Math.max(1, settings.requests() * 3 / 4));
+        }
+
+        @Override
+        int course(int request, int courses) {
+            return 0;
+        }
+    };
+
+    abstract List<Integer> capacities(StormSettings settings);
+
+    // Номер студента для заявки. По умолчанию студенты идут по кругу, чтобы пары не повторялись
+    int student(int request, int students) {
+        return request % students;
+    }
+
+    abstract int course(int request, int courses);
+}
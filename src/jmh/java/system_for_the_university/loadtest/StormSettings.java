@@ -0,0 +1,60 @@
+package system_for_the_university.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/* Параметры прогона из системных свойств storm.*. Значения по умолчанию рассчитаны на встроенную H2
+и ноутбук: несколько тысяч заявок за прогон, мест в каждом сценарии меньше, чем заявок */
+record StormSettings(int students,
+                     int courses,
+                     int capacity,
+                     int requests,
+                     int bursts,
+                     long pauseMs,
+                     int writers,
+                     int readers,
+                     Set<StormScenario> scenarios,
+                     String database,
+                     boolean admission) {
+
+    static StormSettings fromSystemProperties() {
+        StormSettings settings = new StormSettings(
+                intProperty("storm.students", 5000),
+                intProperty("storm.courses", 20),
+                intProperty("storm.capacity", 100),
+                intProperty("storm.requests", 4000),
+                intProperty("storm.bursts", 4),
+                intProperty("storm.pause-ms", 500),
+                intProperty("storm.writers", 64),
+                intProperty("storm.readers", 4),
+                scenarios(System.getProperty("storm.scenarios", "all")),
+                System.getProperty("storm.db", "h2").trim().toLowerCase(Locale.ROOT),
+                Boolean.parseBoolean(System.getProperty("storm.admission", "true")));
+        if (settings.students < 1 || settings.courses < 1 || settings.capacity < 1 || settings.requests < 1
+                || settings.bursts < 1 || settings.writers < 1 || settings.readers < 0) {
+            throw new IllegalArgumentException("Некорректные параметры прогона: " + settings);
+        }
+        if (!settings.database.equals("h2") && !settings.database.equals("postgres")) {
+            throw new IllegalArgumentException("storm.db должен быть h2 или postgres");
+        }
+        return settings;
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static Set<StormScenario> scenarios(String value) {
+        if (value.isBlank() || value.trim().equalsIgnoreCase("all")) {
+            return EnumSet.allOf(StormScenario.class);
+        }
+        Set<StormScenario> scenarios = EnumSet.noneOf(StormScenario.class);
+        Arrays.stream(value.split(","))
+                .map(name -> StormScenario.valueOf(name.trim().toUpperCase(Locale.ROOT)))
+                .forEach(scenarios::add);
+        return scenarios;
+    }
+}
@@ -0,0 +1,20 @@
+package system_for_the_university.DTO.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Строка списка курса для выгрузки: курс, студент и время записи
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseRosterRowDTO {
+    private Long courseId;
+    private String courseName;
+    private Long studentId;
+    private String studentName;
+    private String studentEmail;
+    private LocalDateTime registrationTime;
+}
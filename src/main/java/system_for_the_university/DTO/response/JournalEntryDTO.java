@@ -0,0 +1,28 @@
+package system_for_the_university.DTO.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/* Событие журнала записей. offset - номер события в журнале, по нему потребитель продолжает чтение.
+У событий курса и студента registrationId нет: все их записи удалены каскадом */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEntryDTO {
+    private long offset;
+    private Type type;
+    private Long registrationId;
+    private Long studentId;
+    private Long courseId;
+    private Instant recordedAt;
+
+    public enum Type {
+        REGISTRATION_CREATED,
+        REGISTRATION_CANCELLED,
+        COURSE_DELETED,
+        STUDENT_DELETED
+    }
+}
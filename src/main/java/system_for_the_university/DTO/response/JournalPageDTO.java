@@ -0,0 +1,18 @@
+package system_for_the_university.DTO.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/* Порция журнала. nextOffset передаётся в fromOffset следующего запроса. firstOffset - самое старое
+хранимое событие: если он больше сохранённого смещения потребителя, часть событий уже удалена */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalPageDTO {
+    private List<JournalEntryDTO> entries;
+    private long nextOffset;
+    private long firstOffset;
+}
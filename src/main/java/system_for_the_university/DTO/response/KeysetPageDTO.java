@@ -0,0 +1,16 @@
+package system_for_the_university.DTO.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Страница для постраничного обхода по id. nextCursor передаётся в afterId следующего запроса, null - конец
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeysetPageDTO<T> {
+    private List<T> items;
+    private Long nextCursor;
+}
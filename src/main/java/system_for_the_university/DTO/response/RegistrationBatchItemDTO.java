@@ -0,0 +1,26 @@
+package system_for_the_university.DTO.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistrationBatchItemDTO {
+    private Long studentId;
+    private Long courseId;
+    private Status status;
+    private String message;
+    // Созданная запись, только для CREATED
+    private RegistrationResponseDTO registration;
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        FULL,
+        CLOSED,
+        SCHEDULE_CONFLICT,
+        NOT_FOUND
+    }
+}
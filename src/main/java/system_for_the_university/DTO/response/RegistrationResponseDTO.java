@@ -1,5 +1,6 @@
 package system_for_the_university.DTO.response;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -7,6 +8,7 @@ import java.time.LocalDateTime;
 
 @Data
 @NoArgsConstructor
+@AllArgsConstructor
 public class RegistrationResponseDTO {
     private Long id;
     private Long studentId;
@@ -0,0 +1,28 @@
+package system_for_the_university.DTO.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Квитанция асинхронной записи. Пока заявка в очереди, статус PENDING, затем итог как у пакетной записи
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistrationTicketDTO {
+    private String ticketId;
+    private Status status;
+    // Созданная запись, только для CREATED
+    private RegistrationResponseDTO registration;
+    private String message;
+
+    public enum Status {
+        PENDING,
+        CREATED,
+        DUPLICATE,
+        FULL,
+        CLOSED,
+        SCHEDULE_CONFLICT,
+        NOT_FOUND,
+        FAILED
+    }
+}
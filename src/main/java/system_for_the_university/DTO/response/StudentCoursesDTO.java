@@ -0,0 +1,16 @@
+package system_for_the_university.DTO.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Курсы, на которые записан студент, по возрастанию id
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentCoursesDTO {
+    private Long studentId;
+    private List<Long> courseIds;
+}
@@ -0,0 +1,15 @@
+package system_for_the_university.DTO.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Отклонённая строка CSV: номер строки в файле, email из неё и причина
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentImportRejectDTO {
+    private long line;
+    private String email;
+    private String reason;
+}
@@ -0,0 +1,18 @@
+package system_for_the_university.DTO.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/* Итог импорта студентов из CSV. rejected - сколько строк отклонено всего,
+в rejects подробности только по первым из них, чтобы ответ не разрастался на больших файлах */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentImportResultDTO {
+    private int imported;
+    private int rejected;
+    private List<StudentImportRejectDTO> rejects;
+}
@@ -12,4 +12,11 @@ public class StudentResponseDTO {
     private String name;
     private String email;
     private List<Long> enrolledCourseIds;
+
+    // Для выборки сразу в DTO без загрузки сущности
+    public StudentResponseDTO(Long id, String name, String email) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+    }
 }
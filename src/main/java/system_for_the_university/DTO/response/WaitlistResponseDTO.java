@@ -0,0 +1,19 @@
+package system_for_the_university.DTO.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// position начинается с 1: первый в очереди получит следующее освободившееся место
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistResponseDTO {
+    private Long id;
+    private Long studentId;
+    private Long courseId;
+    private long position;
+    private LocalDateTime createdAt;
+}
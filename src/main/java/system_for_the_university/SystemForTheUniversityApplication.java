@@ -2,8 +2,11 @@ package system_for_the_university;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+// Планировщик нужен для очистки просроченных ключей идемпотентности
+@EnableScheduling
 public class SystemForTheUniversityApplication {
     public static void main(String[] args) {
         SpringApplication.run(SystemForTheUniversityApplication.class, args);
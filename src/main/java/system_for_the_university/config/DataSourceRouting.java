@@ -0,0 +1,37 @@
+package system_for_the_university.config;
+
+import java.util.function.Supplier;
+
+/* Куда направлять соединение при маршрутизации чтения и записи.
+Чтение, результат которого оседает в памяти (учёт мест, кэш каталога), должно идти на основную БД:
+данные с отстающей реплики остались бы в памяти и после того, как реплика догонит основную */
+public final class DataSourceRouting {
+    public enum Target {
+        WRITE,
+        PRIMARY_READ,
+        REPLICA_READ
+    }
+
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    public static <T> T onPrimary(Supplier<T> reads) {
+        Boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_ONLY.remove();
+            } else {
+                PRIMARY_ONLY.set(previous);
+            }
+        }
+    }
+
+    public static boolean isPrimaryOnly() {
+        return Boolean.TRUE.equals(PRIMARY_ONLY.get());
+    }
+}
@@ -0,0 +1,98 @@
+package system_for_the_university.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/* Раздельные пулы соединений для записи и чтения. Всплеск просмотра каталога выбирает пул чтения,
+но не может занять соединения, нужные записи на курсы. Если задан URL реплики, readOnly-транзакции
+читают с неё, пока её отставание в пределах допустимого, иначе - из пула чтения основной БД.
+По умолчанию выключено, и приложение работает с одним пулом из spring.datasource.* */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+    private final DataSourceProperties properties;
+
+    public DataSourceRoutingConfig(DataSourceProperties properties) {
+        this.properties = properties;
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource writeDataSource(@Value("${datasource.routing.write-pool-size:20}") int poolSize) {
+        return pool("write", properties.determineUrl(), properties.determineUsername(),
+                properties.determinePassword(), poolSize, false);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource primaryReadDataSource(@Value("${datasource.routing.read-pool-size:10}") int poolSize) {
+        return pool("primary-read", properties.determineUrl(), properties.determineUsername(),
+                properties.determinePassword(), poolSize, true);
+    }
+
+    // Пул реплики создаётся, только если задан её URL. Логин и пароль по умолчанию те же, что у основной БД
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "datasource.replica.url")
+    public HikariDataSource replicaDataSource(@Value("${datasource.replica.url}") String url,
+                                              @Value("${datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${datasource.replica.password:${spring.datasource.password:}}") String password,
+                                              @Value("${datasource.replica.pool-size:20}") int poolSize) {
+        return pool("replica", url, username, password, poolSize, true);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") Optional<DataSource> replica,
+                                               @Value("${datasource.replica.max-lag-ms:5000}") long maxLagMs) {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica.orElse(null), maxLagMs);
+        monitor.check();
+        return monitor;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("writeDataSource") DataSource write,
+                                 @Qualifier("primaryReadDataSource") DataSource primaryRead,
+                                 @Qualifier("replicaDataSource") Optional<DataSource> replica,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(DataSourceRouting.Target.WRITE, write);
+        targets.put(DataSourceRouting.Target.PRIMARY_READ, primaryRead);
+        // Без реплики ключ REPLICA_READ не выбирается: монитор считает её недоступной
+        targets.put(DataSourceRouting.Target.REPLICA_READ, replica.orElse(primaryRead));
+
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(replicaLagMonitor);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(write);
+        routing.afterPropertiesSet();
+        log.info("Включена маршрутизация чтения и записи, реплика: {}", replica.isPresent() ? "есть" : "нет");
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private HikariDataSource pool(String name, String url, String username, String password,
+                                  int poolSize, boolean readOnly) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaximumPoolSize(poolSize);
+        pool.setReadOnly(readOnly);
+        String driverClassName = properties.determineDriverClassName();
+        if (driverClassName != null) {
+            pool.setDriverClassName(driverClassName);
+        }
+        return pool;
+    }
+}
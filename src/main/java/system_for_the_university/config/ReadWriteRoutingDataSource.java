@@ -0,0 +1,27 @@
+package system_for_the_university.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/* Выбирает пул по текущей транзакции: пишущие транзакции идут в пул записи, readOnly - на реплику,
+а если реплика отстаёт или не настроена - в отдельный пул чтения основной БД.
+Работает только за LazyConnectionDataSourceProxy: признак readOnly выставляется уже после начала
+транзакции, поэтому настоящее соединение берётся при первом запросе, а не при открытии транзакции */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    public ReadWriteRoutingDataSource(ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return DataSourceRouting.Target.WRITE;
+        }
+        if (!DataSourceRouting.isPrimaryOnly() && replicaLagMonitor.isReplicaUsable()) {
+            return DataSourceRouting.Target.REPLICA_READ;
+        }
+        return DataSourceRouting.Target.PRIMARY_READ;
+    }
+}
@@ -0,0 +1,57 @@
+package system_for_the_university.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/* Следит за отставанием реплики. Пока отставание больше допустимого или реплика недоступна,
+чтение уходит на основную БД. Отставание считается нулевым, если реплика проиграла весь принятый WAL,
+иначе по времени последней проигранной транзакции */
+@Slf4j
+public class ReplicaLagMonitor {
+    private static final String LAG_SQL = "select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 "
+            + "else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000, 0) end";
+
+    private final JdbcTemplate replica;
+    private final long maxLagMs;
+    private volatile boolean replicaUsable;
+    private volatile long lastLagMs = -1;
+
+    // replica == null означает, что реплика не настроена и чтение всегда идёт на основную БД
+    public ReplicaLagMonitor(DataSource replica, long maxLagMs) {
+        this.replica = replica == null ? null : new JdbcTemplate(replica);
+        this.maxLagMs = maxLagMs;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:5000}")
+    public void check() {
+        if (replica == null) {
+            return;
+        }
+        boolean usable;
+        try {
+            Number lag = replica.queryForObject(LAG_SQL, Number.class);
+            lastLagMs = lag == null ? 0 : lag.longValue();
+            usable = lastLagMs <= maxLagMs;
+        } catch (RuntimeException e) {
+            log.warn("Не удалось проверить отставание реплики: {}", e.getMessage());
+            lastLagMs = -1;
+            usable = false;
+        }
+        if (usable != replicaUsable) {
+            log.info(usable ? "Чтение переведено на реплику, отставание {} мс"
+                    : "Чтение переведено на основную БД, отставание реплики {} мс", lastLagMs);
+        }
+        replicaUsable = usable;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public long lastLagMs() {
+        return lastLagMs;
+    }
+}
@@ -1,14 +1,23 @@
 package system_for_the_university.controller;
 
 import lombok.AllArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import system_for_the_university.DTO.request.CourseRequestDTO;
 import system_for_the_university.DTO.response.CourseResponseDTO;
+import system_for_the_university.DTO.response.KeysetPageDTO;
 import system_for_the_university.service.CourseService;
 import system_for_the_university.service.RegistrationService;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/courses") // Базовый путь для всех методов контроллера
@@ -22,11 +31,51 @@ public class CourseController {
         return courseService.getAvailableCourses();
     }
 
+    @GetMapping("/upcoming")
+    public List<CourseResponseDTO> getUpcomingCourses(@RequestParam(defaultValue = "60") int withinMinutes) {
+        return courseService.getUpcomingCourses(withinMinutes);
+    }
+
     @GetMapping("/all")
     public List<CourseResponseDTO> getAllCourse() {
         return courseService.getAllCourse();
     }
 
+    // Поиск по названию: /api/courses/search?q=прогр&offset=0&limit=20, лучшие совпадения первыми
+    @GetMapping("/search")
+    public List<CourseResponseDTO> searchCourses(@RequestParam String q,
+                                                 @RequestParam(defaultValue = "0") int offset,
+                                                 @RequestParam(defaultValue = "20") int limit) {
+        return courseService.searchCourses(q, offset, limit);
+    }
+
+    @GetMapping("/page")
+    public KeysetPageDTO<CourseResponseDTO> getCoursePage(@RequestParam(defaultValue = "0") Long afterId,
+                                                          @RequestParam(defaultValue = "100") int limit) {
+        return courseService.getCoursePage(afterId, limit);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllCourses() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(courseService::streamAllCourses);
+    }
+
+    // Списки курсов для деканата: /api/courses/{id}/roster?format=csv или ndjson, по умолчанию CSV
+    @GetMapping("/{id}/roster")
+    public ResponseEntity<StreamingResponseBody> exportRoster(@PathVariable Long id,
+                                                              @RequestParam(defaultValue = "csv") String format) {
+        // Курс проверяется до начала выгрузки, пока ещё можно ответить 404
+        courseService.getCourseById(id);
+        return roster(id, format, "roster-" + id);
+    }
+
+    @GetMapping("/roster")
+    public ResponseEntity<StreamingResponseBody> exportAllRosters(@RequestParam(defaultValue = "csv") String format) {
+        return roster(null, format, "rosters");
+    }
+
     @GetMapping("/{id}")
     public CourseResponseDTO getCourseById(@RequestBody @PathVariable Long id) {
         return courseService.getCourseById(id);
@@ -37,4 +86,18 @@ public class CourseController {
     public CourseResponseDTO createCourse(@RequestBody CourseRequestDTO request) {
         return courseService.createCourse(request);
     }
+
+    private ResponseEntity<StreamingResponseBody> roster(Long courseId, String format, String fileName) {
+        CourseService.ExportFormat exportFormat = switch (format.toLowerCase(Locale.ROOT)) {
+            case "csv" -> CourseService.ExportFormat.CSV;
+            case "ndjson" -> CourseService.ExportFormat.NDJSON;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Формат выгрузки: csv или ndjson");
+        };
+        boolean csv = exportFormat == CourseService.ExportFormat.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName + (csv ? ".csv" : ".ndjson")).build().toString())
+                .body(out -> courseService.exportRoster(courseId, exportFormat, out));
+    }
 }
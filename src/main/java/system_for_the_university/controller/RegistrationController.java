@@ -1,21 +1,136 @@
 package system_for_the_university.controller;
 
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.JournalPageDTO;
+import system_for_the_university.DTO.response.KeysetPageDTO;
+import system_for_the_university.DTO.response.RegistrationBatchItemDTO;
 import system_for_the_university.DTO.response.RegistrationResponseDTO;
+import system_for_the_university.DTO.response.RegistrationTicketDTO;
+import system_for_the_university.service.IdempotencyStore;
+import system_for_the_university.service.RegistrationAdmissionQueue;
+import system_for_the_university.service.RegistrationJournal;
+import system_for_the_university.service.RegistrationPipeline;
 import system_for_the_university.service.RegistrationService;
 
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/registrations")
 @AllArgsConstructor
 public class RegistrationController {
     private final RegistrationService registrationService;
+    private final RegistrationAdmissionQueue admissionQueue;
+    private final IdempotencyStore idempotencyStore;
+    private final RegistrationPipeline registrationPipeline;
+    private final RegistrationJournal registrationJournal;
 
+    /* Заявки на один курс проходят через очередь допуска, чтобы в БД с курсом работал один поток.
+    Заявка на заполненный или закрытый курс отклоняется ещё до очереди. С ключом идемпотентности так
+    не делаю: повтор уже успешной заявки должен получить исходный ответ, а не 409.
+    Повтор с тем же Idempotency-Key получает исходный ответ из памяти, не вставая в очередь */
     @PostMapping()
     @ResponseStatus(HttpStatus.CREATED)
-    public RegistrationResponseDTO registerStudent(@RequestBody RegistrationRequestDTO request) {
-        return registrationService.registerStudentToCourse(request);
+    public RegistrationResponseDTO registerStudent(@RequestHeader(value = "Idempotency-Key", required = false)
+                                                   String idempotencyKey,
+                                                   @RequestBody RegistrationRequestDTO request) {
+        if (idempotencyKey == null) {
+            registrationService.rejectEarly(request);
+            return admissionQueue.admit(request.getCourseId(),
+                    () -> registrationService.registerStudentToCourse(request));
+        }
+        return idempotencyStore.findCached(idempotencyKey, request)
+                .orElseGet(() -> admissionQueue.admit(request.getCourseId(),
+                        () -> registrationService.registerStudentToCourse(request, idempotencyKey)));
+    }
+
+    /* Асинхронная запись: ответ 202 с квитанцией приходит сразу, сама запись выполняется микробатчем.
+    Итог забирается по ссылке из Location, можно с ожиданием: /tickets/{ticketId}?waitMs=10000 */
+    @PostMapping("/async")
+    public ResponseEntity<RegistrationTicketDTO> registerStudentAsync(@RequestBody RegistrationRequestDTO request) {
+        RegistrationTicketDTO ticket = registrationPipeline.submit(request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/registrations/tickets/" + ticket.getTicketId()))
+                .body(ticket);
+    }
+
+    @GetMapping("/tickets/{ticketId}")
+    public CompletableFuture<RegistrationTicketDTO> getTicket(@PathVariable String ticketId,
+                                                              @RequestParam(defaultValue = "0") long waitMs) {
+        return registrationPipeline.awaitTicket(ticketId, waitMs);
+    }
+
+    @GetMapping("/page")
+    public KeysetPageDTO<RegistrationResponseDTO> getRegistrationPage(@RequestParam(defaultValue = "0") Long afterId,
+                                                                      @RequestParam(defaultValue = "100") int limit) {
+        return registrationService.getRegistrationPage(afterId, limit);
+    }
+
+    @GetMapping("/course/{courseId}")
+    public KeysetPageDTO<RegistrationResponseDTO> getCourseRegistrations(@PathVariable Long courseId,
+                                                                         @RequestParam(defaultValue = "0") Long afterId,
+                                                                         @RequestParam(defaultValue = "100") int limit) {
+        return registrationService.getCourseRegistrationPage(courseId, afterId, limit);
+    }
+
+    @GetMapping("/student/{studentId}")
+    public KeysetPageDTO<RegistrationResponseDTO> getStudentRegistrations(@PathVariable Long studentId,
+                                                                          @RequestParam(defaultValue = "0") Long afterId,
+                                                                          @RequestParam(defaultValue = "100") int limit) {
+        return registrationService.getStudentRegistrationPage(studentId, afterId, limit);
+    }
+
+    @GetMapping("/period")
+    public KeysetPageDTO<RegistrationResponseDTO> getPeriodRegistrations(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = "100") int limit) {
+        return registrationService.getPeriodRegistrationPage(from, to, afterId, limit);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllRegistrations() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(registrationService::streamAllRegistrations);
+    }
+
+    /* Журнал событий записи для внешних потребителей. Потребитель хранит nextOffset у себя и передаёт его
+    в fromOffset следующего запроса, а дойдя до конца, ждёт новых событий: /journal?fromOffset=42&waitMs=20000 */
+    @GetMapping("/journal")
+    public CompletableFuture<JournalPageDTO> getJournal(@RequestParam(defaultValue = "0") long fromOffset,
+                                                        @RequestParam(defaultValue = "100") int limit,
+                                                        @RequestParam(defaultValue = "0") long waitMs) {
+        return registrationJournal.tail(fromOffset, limit, waitMs);
+    }
+
+    @GetMapping(value = "/journal/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamJournal(@RequestParam(defaultValue = "0") long fromOffset) {
+        // Смещение проверяю до начала ответа, чтобы ошибка пришла статусом 400, а не оборванным потоком
+        registrationJournal.read(fromOffset, 1);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> registrationJournal.streamJournal(fromOffset, out));
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void cancelRegistration(@PathVariable Long id) {
+        registrationService.cancelRegistration(id);
+    }
+
+    @PostMapping("/batch")
+    public List<RegistrationBatchItemDTO> registerBatch(@RequestBody List<RegistrationRequestDTO> requests) {
+        return registrationService.registerBatch(requests);
     }
 }
@@ -1,9 +1,28 @@
 package system_for_the_university.controller;
 
 import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import system_for_the_university.DTO.response.KeysetPageDTO;
+import system_for_the_university.DTO.response.StudentCoursesDTO;
+import system_for_the_university.DTO.response.StudentImportResultDTO;
+import system_for_the_university.DTO.response.StudentResponseDTO;
 import system_for_the_university.service.RegistrationService;
+import system_for_the_university.service.StudentImportService;
+import system_for_the_university.service.StudentService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 
 @RestController
@@ -11,5 +30,43 @@ import system_for_the_university.service.RegistrationService;
 @AllArgsConstructor
 public class StudentController {
     private final RegistrationService registrationService;
+    private final StudentService studentService;
+    private final StudentImportService studentImportService;
+
+    @GetMapping("/page")
+    public KeysetPageDTO<StudentResponseDTO> getStudentPage(@RequestParam(defaultValue = "0") Long afterId,
+                                                            @RequestParam(defaultValue = "100") int limit) {
+        return studentService.getStudentPage(afterId, limit);
+    }
+
+    @GetMapping("/{studentId}/courses")
+    public StudentCoursesDTO getStudentCourses(@PathVariable Long studentId) {
+        return studentService.getStudentCourses(studentId);
+    }
+
+    // Расписания нескольких студентов одним запросом: /api/students/courses?ids=1,2,3
+    @GetMapping("/courses")
+    public List<StudentCoursesDTO> getStudentsCourses(@RequestParam List<Long> ids) {
+        return studentService.getStudentsCourses(ids);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllStudents() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(studentService::streamAllStudents);
+    }
+
+    // Тело запроса читается потоком прямо из соединения, без буферизации файла целиком
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public StudentImportResultDTO importStudents(InputStream csv) throws IOException {
+        return studentImportService.importCsv(csv);
+    }
 
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public StudentImportResultDTO importStudentsFile(@RequestPart("file") MultipartFile file) throws IOException {
+        try (InputStream csv = file.getInputStream()) {
+            return studentImportService.importCsv(csv);
+        }
+    }
 }
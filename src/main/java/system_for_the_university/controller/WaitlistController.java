@@ -0,0 +1,33 @@
+package system_for_the_university.controller;
+
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.WaitlistResponseDTO;
+import system_for_the_university.service.WaitlistService;
+
+@RestController
+@RequestMapping("/api/waitlist")
+@AllArgsConstructor
+public class WaitlistController {
+    private final WaitlistService waitlistService;
+
+    @PostMapping()
+    @ResponseStatus(HttpStatus.CREATED)
+    public WaitlistResponseDTO joinWaitlist(@RequestBody RegistrationRequestDTO request) {
+        return waitlistService.joinWaitlist(request);
+    }
+
+    // Текущая позиция в очереди. 404 означает, что студент уже записан из очереди или вышел из неё
+    @GetMapping("/{id}")
+    public WaitlistResponseDTO getWaitlistEntry(@PathVariable Long id) {
+        return waitlistService.getWaitlistEntry(id);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void leaveWaitlist(@PathVariable Long id) {
+        waitlistService.leaveWaitlist(id);
+    }
+}
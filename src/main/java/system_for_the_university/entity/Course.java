@@ -5,19 +5,29 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_course_registration_window", columnList = "start_time, end_time"),
+        @Index(name = "idx_course_end_time", columnList = "end_time")
+})
 @Data
 @NoArgsConstructor
 public class Course {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "course_seq")
+    @SequenceGenerator(name = "course_seq", sequenceName = "course_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -48,16 +58,30 @@ public class Course {
     @OneToMany(mappedBy = "course", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Registration> registrations = new HashSet<>();
 
-    /* Прочитал что доступ к регистрации для нескольких пользователей лучше реализовывать через
-    позитивную блокировку, для этого добавил переменную с аннотацией @Version*/
-    @Version
-    private Integer version;
+    /* Вместо подсчёта записей и позитивной блокировки через @Version места хранятся в слотах курса.
+    Место занимается в любом слоте, где оно есть, а занятые другими заявками слоты пропускаются, поэтому
+    на большом курсе запросы не ждут друг друга на одной строке. Сумма по слотам копируется в эту колонку,
+    чтобы списки курсов и фильтр свободных мест не считали её подзапросом на каждую строку.
+    Колонку меняет только CourseSeatService отдельным UPDATE, поэтому Hibernate при сохранении курса её не пишет */
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @NotNull
+    @Min(0)
+    private Integer occupiedSeats = 0;
+
+    @OneToMany(mappedBy = "course", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("slot")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private List<CourseSeatSlot> seatSlots = new ArrayList<>();
 
     public Course(String name, Integer capacity, LocalDateTime startTime, LocalDateTime endTime) {
         this.name = name;
         this.capacity = capacity;
         this.startTime = startTime;
         this.endTime = endTime;
+        // Слоты сохраняются вместе с курсом, поэтому у любого созданного курса места уже разбиты
+        this.seatSlots = CourseSeatSlot.split(this, capacity);
 
         if (this.endTime.isBefore(this.startTime)) {
             throw new IllegalArgumentException("Время окончания должно быть позже времени начала");
@@ -0,0 +1,81 @@
+package system_for_the_university.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/* Часть мест курса. Вместимость большого курса разбита на несколько строк, и заявки занимают места
+в разных строках, а не ждут друг друга на одной строке курса. Сумма по слотам - точные занятые места курса.
+Как и в Registration, equals и hashCode только по id из за LAZY связи */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_seat_slot_course_slot", columnNames = {"course_id", "slot"}))
+public class CourseSeatSlot {
+    // Курс до 500 мест остаётся одной строкой, больше - по слоту на каждые 250 мест, но не больше 16 слотов
+    public static final int SEATS_PER_SLOT = 250;
+    public static final int MAX_SLOTS = 16;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "course_seat_slot_seq")
+    @SequenceGenerator(name = "course_seat_slot_seq", sequenceName = "course_seat_slot_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "course_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Course course;
+
+    @Column(nullable = false)
+    private int slot;
+
+    @Column(nullable = false)
+    private int capacity;
+
+    @Column(nullable = false)
+    private int occupied;
+
+    public CourseSeatSlot(Course course, int slot, int capacity) {
+        this.course = course;
+        this.slot = slot;
+        this.capacity = capacity;
+    }
+
+    public static int slotCount(int capacity) {
+        return Math.max(1, Math.min(MAX_SLOTS, capacity / SEATS_PER_SLOT));
+    }
+
+    // Вместимость делится поровну, остаток достаётся первым слотам
+    public static List<CourseSeatSlot> split(Course course, int capacity) {
+        int count = slotCount(capacity);
+        List<CourseSeatSlot> slots = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            slots.add(new CourseSeatSlot(course, i, capacity / count + (i < capacity % count ? 1 : 0)));
+        }
+        return slots;
+    }
+
+    public int free() {
+        return capacity - occupied;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CourseSeatSlot that)) return false;
+        return id != null && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -0,0 +1,53 @@
+package system_for_the_university.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/* Результат записи, сохранённый по ключу идемпотентности из заголовка Idempotency-Key.
+Хранится в БД, чтобы повтор запроса после перезапуска приложения получил тот же ответ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(indexes = @Index(name = "idx_idempotency_expires_at", columnList = "expires_at"))
+public class IdempotencyRecord {
+    @Id
+    @Size(max = 100)
+    @Column(length = 100)
+    private String idempotencyKey;
+
+    // По ним проверяю, что ключ повторно прислали с той же заявкой, а не с другой
+    @NotNull
+    @Column(nullable = false)
+    private Long studentId;
+
+    @NotNull
+    @Column(nullable = false)
+    private Long courseId;
+
+    // RegistrationResponseDTO в JSON
+    @NotNull
+    @Column(nullable = false, length = 2000)
+    private String response;
+
+    @NotNull
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    public IdempotencyRecord(String idempotencyKey, Long studentId, Long courseId, String response,
+                             LocalDateTime expiresAt) {
+        this.idempotencyKey = idempotencyKey;
+        this.studentId = studentId;
+        this.courseId = courseId;
+        this.response = response;
+        this.expiresAt = expiresAt;
+    }
+}
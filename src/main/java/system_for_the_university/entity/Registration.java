@@ -18,9 +18,21 @@ import java.util.Objects;
 @Setter
 @NoArgsConstructor
 @Entity
+/* Индексы под выборки записей курса, студента и за период. Уникальность пары студент-курс держит БД:
+проверки в коде не спасают от параллельных заявок одного студента через разные пути записи */
+@Table(uniqueConstraints = @UniqueConstraint(name = Registration.UNIQUE_STUDENT_COURSE,
+        columnNames = {"student_id", "course_id"}),
+        indexes = {
+                @Index(name = "idx_registration_course", columnList = "course_id, id"),
+                @Index(name = "idx_registration_student", columnList = "student_id, id"),
+                @Index(name = "idx_registration_time", columnList = "registration_time")
+        })
 public class Registration {
+    public static final String UNIQUE_STUDENT_COURSE = "uk_registration_student_course";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "registration_seq")
+    @SequenceGenerator(name = "registration_seq", sequenceName = "registration_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,72 @@
+package system_for_the_university.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/* Место в листе ожидания курса. Очередь упорядочена по id: кто раньше встал, тот раньше получит место.
+Как и в Registration, equals и hashCode только по id из за LAZY связей */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_waitlist_student_course",
+        columnNames = {"student_id", "course_id"}),
+        indexes = @Index(name = "idx_waitlist_course_order", columnList = "course_id, id"))
+public class WaitlistEntry {
+    @Id
+    /* В отличие от остальных сущностей id здесь IDENTITY: по нему считается очередь, а пулы id
+    с разных экземпляров приложения нарушили бы порядок, в котором студенты встали в очередь */
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // При удалении студента или курса его места в листах ожидания удаляет сама БД
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "student_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Student student;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "course_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Course course;
+
+    @Column
+    @NotNull
+    private LocalDateTime createdAt;
+
+    public WaitlistEntry(Student student, Course course, LocalDateTime createdAt) {
+        this.student = student;
+        this.course = course;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        WaitlistEntry that = (WaitlistEntry) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "WaitlistEntry{" +
+                "id=" + id +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
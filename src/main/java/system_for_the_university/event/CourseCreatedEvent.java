@@ -0,0 +1,9 @@
+package system_for_the_university.event;
+
+import lombok.Value;
+import system_for_the_university.DTO.response.CourseResponseDTO;
+
+@Value
+public class CourseCreatedEvent {
+    CourseResponseDTO course;
+}
@@ -0,0 +1,8 @@
+package system_for_the_university.event;
+
+import lombok.Value;
+
+@Value
+public class CourseDeletedEvent {
+    Long courseId;
+}
@@ -0,0 +1,10 @@
+package system_for_the_university.event;
+
+import lombok.Value;
+
+@Value
+public class RegistrationCancelledEvent {
+    Long registrationId;
+    Long studentId;
+    Long courseId;
+}
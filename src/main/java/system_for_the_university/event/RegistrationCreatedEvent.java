@@ -0,0 +1,13 @@
+package system_for_the_university.event;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+public class RegistrationCreatedEvent {
+    Long registrationId;
+    Long studentId;
+    Long courseId;
+    LocalDateTime registrationTime;
+}
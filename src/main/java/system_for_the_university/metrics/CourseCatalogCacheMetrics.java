@@ -0,0 +1,56 @@
+package system_for_the_university.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import org.springframework.stereotype.Component;
+import system_for_the_university.service.CourseCatalogCache;
+
+// Стандартные метрики cache.* для кэша каталога курсов, чтобы видеть долю попаданий под нагрузкой
+@Component
+public class CourseCatalogCacheMetrics extends CacheMeterBinder<CourseCatalogCache> {
+
+    public CourseCatalogCacheMetrics(CourseCatalogCache cache) {
+        super(cache, "course-catalog", Tags.empty());
+    }
+
+    @Override
+    protected Long size() {
+        CourseCatalogCache cache = getCache();
+        return cache == null ? null : (long) cache.size();
+    }
+
+    @Override
+    protected long hitCount() {
+        CourseCatalogCache cache = getCache();
+        return cache == null ? 0 : cache.hits();
+    }
+
+    @Override
+    protected Long missCount() {
+        CourseCatalogCache cache = getCache();
+        return cache == null ? null : cache.misses();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        CourseCatalogCache cache = getCache();
+        return cache == null ? null : cache.evictions();
+    }
+
+    // Отдельного счётчика записей в кэш нет: каждый промах загружает курс и кладёт его в кэш
+    @Override
+    protected long putCount() {
+        CourseCatalogCache cache = getCache();
+        return cache == null ? 0 : cache.misses();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("cache.invalidations", getCache(), CourseCatalogCache::invalidations)
+                .tags(getTagsWithCacheName())
+                .description("Записи, удалённые из кэша по событиям изменения курсов")
+                .register(registry);
+    }
+}
@@ -0,0 +1,68 @@
+package system_for_the_university.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Считает SQL-запросы, которые Hibernate отправил в БД в рамках одного HTTP-запроса.
+Счётчик привязан к потоку запроса, а как TaskDecorator переносится в потоки,
+где выполняется работа запроса (например, в поток очереди допуска курса).
+Запросы через JdbcTemplate мимо Hibernate сюда не попадают */
+@Component
+public class DbStatementCounter implements StatementInspector, HibernatePropertiesCustomizer, TaskDecorator {
+    private static final ThreadLocal<AtomicInteger> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger statements = CURRENT.get();
+        if (statements != null) {
+            statements.incrementAndGet();
+        }
+        return sql;
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        AtomicInteger statements = CURRENT.get();
+        if (statements == null) {
+            return runnable;
+        }
+        return () -> {
+            AtomicInteger previous = CURRENT.get();
+            CURRENT.set(statements);
+            try {
+                runnable.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    public AtomicInteger start() {
+        AtomicInteger statements = new AtomicInteger();
+        CURRENT.set(statements);
+        return statements;
+    }
+
+    public void stop() {
+        CURRENT.remove();
+    }
+
+    private void restore(AtomicInteger previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
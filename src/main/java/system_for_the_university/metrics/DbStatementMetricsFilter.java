@@ -0,0 +1,44 @@
+package system_for_the_university.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Записывает число SQL-запросов на HTTP-запрос в db.statements.per.request с тегами как у http.server.requests
+@Component
+public class DbStatementMetricsFilter extends OncePerRequestFilter {
+    private final DbStatementCounter dbStatementCounter;
+    private final MeterRegistry meterRegistry;
+
+    public DbStatementMetricsFilter(DbStatementCounter dbStatementCounter, MeterRegistry meterRegistry) {
+        this.dbStatementCounter = dbStatementCounter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AtomicInteger statements = dbStatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            dbStatementCounter.stop();
+            Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("db.statements.per.request")
+                    .description("Число SQL-запросов в БД на один HTTP-запрос")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+                    .register(meterRegistry)
+                    .record(statements.get());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package system_for_the_university.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import system_for_the_university.event.RegistrationCreatedEvent;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/* Счётчики исходов записи на курс: registration.outcome с тегом outcome.
+Успех считается после коммита по событию, поэтому откатившаяся запись в успехи не попадает */
+@Component
+public class RegistrationMetrics {
+    public enum Outcome {
+        SUCCESS,
+        DUPLICATE,
+        FULL,
+        OUTSIDE_WINDOW,
+        // Учёт мест в памяти выдал место, но условный UPDATE в БД его не подтвердил
+        CONFLICT,
+        // Время курса пересекается с другим курсом студента, только с включённой политикой
+        SCHEDULE_CONFLICT,
+        NOT_FOUND
+    }
+
+    private final Map<Outcome, Counter> counters = new EnumMap<>(Outcome.class);
+
+    public RegistrationMetrics(MeterRegistry meterRegistry) {
+        for (Outcome outcome : Outcome.values()) {
+            counters.put(outcome, Counter.builder("registration.outcome")
+                    .description("Исходы заявок на запись на курс")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    public void record(Outcome outcome) {
+        counters.get(outcome).increment();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationCreated(RegistrationCreatedEvent event) {
+        record(Outcome.SUCCESS);
+    }
+}
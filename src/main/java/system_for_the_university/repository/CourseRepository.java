@@ -1,11 +1,74 @@
 package system_for_the_university.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import system_for_the_university.DTO.response.CourseResponseDTO;
 import system_for_the_university.entity.Course;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 
 @Repository
 public interface CourseRepository extends JpaRepository<Course, Long> {
-    Long countRegistrationsById(Long id);
+    /* Открытые для записи курсы со свободными местами одним запросом, сразу в DTO.
+    Фильтр по окну записи опирается на индексы по start_time/end_time. Окно полуоткрытое, как в CourseWindowIndex */
+    @Query("select new system_for_the_university.DTO.response.CourseResponseDTO(" +
+            "c.id, c.name, c.capacity, c.occupiedSeats, c.startTime, c.endTime, c.timeZone) " +
+            "from Course c where c.startTime <= :now and c.endTime > :now and c.occupiedSeats < c.capacity " +
+            "order by c.id")
+    List<CourseResponseDTO> findAvailable(@Param("now") LocalDateTime now);
+
+    @Query("select new system_for_the_university.DTO.response.CourseResponseDTO(" +
+            "c.id, c.name, c.capacity, c.occupiedSeats, c.startTime, c.endTime, c.timeZone) " +
+            "from Course c where c.id > :afterId order by c.id")
+    List<CourseResponseDTO> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Однонаправленный курсор с ограниченным fetch size для потоковой выгрузки
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new system_for_the_university.DTO.response.CourseResponseDTO(" +
+            "c.id, c.name, c.capacity, c.occupiedSeats, c.startTime, c.endTime, c.timeZone) " +
+            "from Course c order by c.id")
+    Stream<CourseResponseDTO> streamAll();
+
+    /* Занятые места курса меняются одним UPDATE без чтения строки. Вызывает только CourseSeatService,
+    вместе с изменением слотов в той же транзакции */
+    @Modifying
+    @Query("update Course c set c.occupiedSeats = c.occupiedSeats + :delta where c.id = :id")
+    int addOccupiedSeats(@Param("id") Long id, @Param("delta") int delta);
+
+    @Modifying
+    @Query("update Course c set c.occupiedSeats = :occupied where c.id = :id")
+    int setOccupiedSeats(@Param("id") Long id, @Param("occupied") int occupied);
+
+    @Query("select c.occupiedSeats from Course c where c.id = :id")
+    Optional<Integer> findOccupiedSeatsById(@Param("id") Long id);
+
+    @Query("select new system_for_the_university.DTO.response.CourseResponseDTO(" +
+            "c.id, c.name, c.capacity, c.occupiedSeats, c.startTime, c.endTime, c.timeZone) " +
+            "from Course c where c.id in :ids")
+    List<CourseResponseDTO> findResponsesByIds(@Param("ids") Collection<Long> ids);
+
+    // Тройки [id, начало окна, конец окна] для индекса окон записи, закончившиеся окна не нужны
+    @Query("select c.id, c.startTime, c.endTime from Course c where c.endTime > :now")
+    List<Object[]> findWindowsEndingAfter(@Param("now") LocalDateTime now);
+
+    /* Одна пара [число курсов, наибольший id] - отпечаток таблицы для индекса окон записи.
+    Курсы только создаются и удаляются, id растут, поэтому любое изменение меняет хотя бы одно из чисел */
+    @Query("select count(c), coalesce(max(c.id), 0) from Course c")
+    List<Object[]> findCountAndMaxId();
+
+    // Пары [id, название] для индекса поиска курсов
+    @Query("select c.id, c.name from Course c")
+    List<Object[]> findAllNames();
 }
@@ -0,0 +1,43 @@
+package system_for_the_university.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import system_for_the_university.entity.CourseSeatSlot;
+
+import java.util.List;
+
+@Repository
+public interface CourseSeatSlotRepository extends JpaRepository<CourseSeatSlot, Long> {
+    /* Слот курса со свободным местом, начиная с from по кругу. Слоты, заблокированные другими
+    транзакциями, пропускаются (SKIP LOCKED, timeout -2), так что заявки расходятся по разным строкам */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select s from CourseSeatSlot s where s.course.id = :courseId and s.occupied < s.capacity " +
+            "order by case when s.slot >= :from then 0 else 1 end, s.slot")
+    List<CourseSeatSlot> findFreeSkipLocked(@Param("courseId") Long courseId, @Param("from") int from,
+                                            Pageable pageable);
+
+    // То же для освобождения места: слот, в котором есть занятые места
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select s from CourseSeatSlot s where s.course.id = :courseId and s.occupied > 0 " +
+            "order by case when s.slot >= :from then 0 else 1 end, s.slot")
+    List<CourseSeatSlot> findOccupiedSkipLocked(@Param("courseId") Long courseId, @Param("from") int from,
+                                                Pageable pageable);
+
+    // Все слоты курса с ожиданием блокировок, всегда по порядку слотов, чтобы не ловить deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from CourseSeatSlot s where s.course.id = :courseId order by s.slot")
+    List<CourseSeatSlot> findAllByCourseIdForUpdate(@Param("courseId") Long courseId);
+
+    // Тройки [id курса, занято по слотам, вместимость по слотам] для сверки с таблицей записей
+    @Query("select s.course.id, sum(s.occupied), sum(s.capacity) from CourseSeatSlot s group by s.course.id")
+    List<Object[]> summarizeByCourse();
+}
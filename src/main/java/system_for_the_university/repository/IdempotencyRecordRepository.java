@@ -0,0 +1,33 @@
+package system_for_the_university.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import system_for_the_university.entity.IdempotencyRecord;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    /* Занимает ключ, если его ещё нет. Пока транзакция, занявшая ключ, не завершилась, вставка того же ключа
+    ждёт её, а после коммита ничего не вставляет и возвращает 0. Ответ дописывается позже в той же транзакции */
+    @Modifying
+    @Query(value = "insert into idempotency_record (idempotency_key, student_id, course_id, response, expires_at) " +
+            "values (:key, :studentId, :courseId, '', :expiresAt) on conflict do nothing", nativeQuery = true)
+    int insertIfAbsent(@Param("key") String key, @Param("studentId") Long studentId,
+                       @Param("courseId") Long courseId, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("update IdempotencyRecord r set r.response = :response, r.expiresAt = :expiresAt " +
+            "where r.idempotencyKey = :key")
+    int updateResponse(@Param("key") String key, @Param("response") String response,
+                       @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
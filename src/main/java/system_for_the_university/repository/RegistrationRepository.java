@@ -1,10 +1,110 @@
 package system_for_the_university.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import system_for_the_university.DTO.response.CourseRosterRowDTO;
+import system_for_the_university.DTO.response.RegistrationResponseDTO;
 import system_for_the_university.entity.Registration;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface RegistrationRepository extends JpaRepository<Registration, Long> {
     boolean existsByStudentIdAndCourseId(Long studentId, Long courseId);
+
+    long countByCourseId(Long courseId);
+
+    // Пары [id студента, id курса] уже существующих записей для пакетной проверки дублей
+    @Query("select r.student.id, r.course.id from Registration r " +
+            "where r.student.id in :studentIds and r.course.id in :courseIds")
+    List<Object[]> findStudentCoursePairs(@Param("studentIds") Collection<Long> studentIds,
+                                          @Param("courseIds") Collection<Long> courseIds);
+
+    /* Списки курсов для выгрузки: однонаправленный курсор с join студента, сразу в DTO.
+    Внутри курса студенты по алфавиту */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new system_for_the_university.DTO.response.CourseRosterRowDTO(" +
+            "c.id, c.name, s.id, s.name, s.email, r.registrationTime) " +
+            "from Registration r join r.student s join r.course c where c.id = :courseId order by s.name, s.id")
+    Stream<CourseRosterRowDTO> streamRoster(@Param("courseId") Long courseId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new system_for_the_university.DTO.response.CourseRosterRowDTO(" +
+            "c.id, c.name, s.id, s.name, s.email, r.registrationTime) " +
+            "from Registration r join r.student s join r.course c order by c.id, s.name, s.id")
+    Stream<CourseRosterRowDTO> streamAllRosters();
+
+    // Пары [id студента, id курса] всех записей по порядку студентов и курсов для индекса расписаний
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select r.student.id, r.course.id from Registration r order by r.student.id, r.course.id")
+    Stream<Object[]> streamStudentCoursePairs();
+
+    @Query("select r.course.id from Registration r where r.student.id = :studentId order by r.course.id")
+    List<Long> findCourseIdsByStudentId(@Param("studentId") Long studentId);
+
+    // Строки [id студента, id курса, начало, конец] всех записей по порядку студентов для проверки пересечений
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select r.student.id, c.id, c.startTime, c.endTime from Registration r join r.course c " +
+            "order by r.student.id")
+    Stream<Object[]> streamStudentCourseTimes();
+
+    // Записи студента вместе с курсами по порядку id курсов, чтобы вернуть места при удалении студента
+    @Query("select r from Registration r join fetch r.course c where r.student.id = :studentId order by c.id")
+    List<Registration> findWithCourseByStudentId(@Param("studentId") Long studentId);
+
+    @Query("select c.id, c.startTime, c.endTime from Registration r join r.course c where r.student.id = :studentId")
+    List<Object[]> findCourseTimesByStudentId(@Param("studentId") Long studentId);
+
+    // Пары [id курса, число записей] для сверки слотов мест с таблицей записей
+    @Query("select r.course.id, count(r) from Registration r group by r.course.id")
+    List<Object[]> countByCourse();
+
+    @Query("select new system_for_the_university.DTO.response.RegistrationResponseDTO(" +
+            "r.id, s.id, s.name, c.id, c.name, r.registrationTime) " +
+            "from Registration r join r.student s join r.course c where r.id > :afterId order by r.id")
+    List<RegistrationResponseDTO> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new system_for_the_university.DTO.response.RegistrationResponseDTO(" +
+            "r.id, s.id, s.name, c.id, c.name, r.registrationTime) " +
+            "from Registration r join r.student s join r.course c order by r.id")
+    Stream<RegistrationResponseDTO> streamAll();
+
+    /* Записи курса, студента и за период тоже выбираются сразу в DTO одним запросом с join,
+    без загрузки сущностей и ленивых student/course. Постранично по id, как findPageAfter */
+    @Query("select new system_for_the_university.DTO.response.RegistrationResponseDTO(" +
+            "r.id, s.id, s.name, c.id, c.name, r.registrationTime) " +
+            "from Registration r join r.student s join r.course c order by r.id")
+    List<RegistrationResponseDTO> findAllResponses();
+
+    @Query("select new system_for_the_university.DTO.response.RegistrationResponseDTO(" +
+            "r.id, s.id, s.name, c.id, c.name, r.registrationTime) " +
+            "from Registration r join r.student s join r.course c " +
+            "where c.id = :courseId and r.id > :afterId order by r.id")
+    List<RegistrationResponseDTO> findCoursePageAfter(@Param("courseId") Long courseId,
+                                                      @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new system_for_the_university.DTO.response.RegistrationResponseDTO(" +
+            "r.id, s.id, s.name, c.id, c.name, r.registrationTime) " +
+            "from Registration r join r.student s join r.course c " +
+            "where s.id = :studentId and r.id > :afterId order by r.id")
+    List<RegistrationResponseDTO> findStudentPageAfter(@Param("studentId") Long studentId,
+                                                       @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new system_for_the_university.DTO.response.RegistrationResponseDTO(" +
+            "r.id, s.id, s.name, c.id, c.name, r.registrationTime) " +
+            "from Registration r join r.student s join r.course c " +
+            "where r.registrationTime >= :from and r.registrationTime < :to and r.id > :afterId order by r.id")
+    List<RegistrationResponseDTO> findPeriodPageAfter(@Param("from") LocalDateTime from,
+                                                      @Param("to") LocalDateTime to,
+                                                      @Param("afterId") Long afterId, Pageable pageable);
 }
@@ -1,10 +1,38 @@
 package system_for_the_university.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import system_for_the_university.DTO.response.StudentResponseDTO;
 import system_for_the_university.entity.Student;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface StudentRepository extends JpaRepository<Student, Long> {
     boolean existsByEmail(String email);
+
+    @Query("select s.id from Student s where s.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Все email одним проходом, чтобы импорт проверял уникальность в памяти, а не запросом на строку
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select s.email from Student s")
+    Stream<String> streamAllEmails();
+
+    @Query("select new system_for_the_university.DTO.response.StudentResponseDTO(s.id, s.name, s.email) " +
+            "from Student s where s.id > :afterId order by s.id")
+    List<StudentResponseDTO> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new system_for_the_university.DTO.response.StudentResponseDTO(s.id, s.name, s.email) " +
+            "from Student s order by s.id")
+    Stream<StudentResponseDTO> streamAll();
 }
@@ -0,0 +1,28 @@
+package system_for_the_university.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import system_for_the_university.entity.WaitlistEntry;
+
+import java.util.Optional;
+
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+    boolean existsByStudentIdAndCourseId(Long studentId, Long courseId);
+
+    /* Голова очереди курса с блокировкой строки. SKIP LOCKED (timeout -2) нужен, чтобы две
+    одновременные отмены продвинули двух разных студентов, а не ждали друг друга на одной строке */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    Optional<WaitlistEntry> findFirstByCourseIdOrderByIdAsc(Long courseId);
+
+    // Позиция считается по индексу (course_id, id), без загрузки очереди
+    @Query("select count(w) from WaitlistEntry w where w.course.id = :courseId and w.id <= :entryId")
+    long countUpTo(@Param("courseId") Long courseId, @Param("entryId") Long entryId);
+}
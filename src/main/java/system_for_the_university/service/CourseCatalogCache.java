@@ -0,0 +1,274 @@
+package system_for_the_university.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import system_for_the_university.DTO.response.CourseResponseDTO;
+import system_for_the_university.config.DataSourceRouting;
+import system_for_the_university.event.CourseCreatedEvent;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.event.RegistrationCancelledEvent;
+import system_for_the_university.event.RegistrationCreatedEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/* Кэш каталога курсов перед CourseService. Записи не живут по TTL, а удаляются ровно тогда,
+когда курс создаётся, удаляется или у него меняется количество занятых мест. События приходят
+после коммита, поэтому студент не увидит в кэше места, которых уже нет в БД.
+Загрузка всегда идёт с основной БД: значение с отстающей реплики осталось бы в кэше до следующей записи на курс */
+@Slf4j
+@Component
+public class CourseCatalogCache {
+    private final int maxEntries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, CourseResponseDTO> coursesById;
+    private volatile List<CourseResponseDTO> allCourses;
+
+    /* Значение, загруженное из БД до инвалидации, в кэш уже не кладётся, иначе параллельное чтение
+    могло бы вернуть в кэш старые места. Для курса проверяется только его собственная инвалидация:
+    номер каждой хранится в кольце последних, и запись на один курс не мешает кэшировать другие.
+    Если за время загрузки кольцо провернулось целиком, значение просто не кэшируется.
+    Поколение полного каталога растёт при любой инвалидации: в нём места всех курсов */
+    private static final int RECENT_INVALIDATIONS = 1024;
+    private final long[] recentlyInvalidated = new long[RECENT_INVALIDATIONS];
+    private final AtomicLong invalidationSeq = new AtomicLong();
+    private final AtomicLong catalogGeneration = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CourseCatalogCache(@Value("${course.cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.coursesById = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CourseResponseDTO> eldest) {
+                if (size() > CourseCatalogCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public CourseResponseDTO getCourse(Long courseId, Supplier<CourseResponseDTO> loader) {
+        lock.lock();
+        try {
+            CourseResponseDTO cached = coursesById.get(courseId);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        misses.increment();
+        long loadedAt = invalidationSeq.get();
+        CourseResponseDTO loaded = DataSourceRouting.onPrimary(loader);
+        lock.lock();
+        try {
+            if (!invalidatedSince(loadedAt).test(courseId)) {
+                coursesById.put(courseId, loaded);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return loaded;
+    }
+
+    /* Несколько курсов сразу в порядке ids. Курсы, которых нет в кэше, загружаются одним запросом на всех,
+    а не по одному. Курсы, которых нет и в БД, в результат не попадают */
+    public List<CourseResponseDTO> getCourses(List<Long> courseIds,
+                                              Function<Collection<Long>, List<CourseResponseDTO>> loader) {
+        Map<Long, CourseResponseDTO> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Long courseId : courseIds) {
+                CourseResponseDTO cached = coursesById.get(courseId);
+                if (cached != null) {
+                    found.put(courseId, cached);
+                } else {
+                    missing.add(courseId);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        hits.add(found.size());
+
+        if (!missing.isEmpty()) {
+            misses.add(missing.size());
+            long loadedAt = invalidationSeq.get();
+            List<CourseResponseDTO> loaded = DataSourceRouting.onPrimary(() -> loader.apply(missing));
+            lock.lock();
+            try {
+                Predicate<Long> stale = invalidatedSince(loadedAt);
+                for (CourseResponseDTO course : loaded) {
+                    found.put(course.getId(), course);
+                    if (!stale.test(course.getId())) {
+                        coursesById.put(course.getId(), course);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<CourseResponseDTO> courses = new ArrayList<>(courseIds.size());
+        for (Long courseId : courseIds) {
+            CourseResponseDTO course = found.get(courseId);
+            if (course != null) {
+                courses.add(course);
+            }
+        }
+        return courses;
+    }
+
+    public List<CourseResponseDTO> getAllCourses(Supplier<List<CourseResponseDTO>> loader) {
+        List<CourseResponseDTO> cached = allCourses;
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        long loadedAt = catalogGeneration.get();
+        List<CourseResponseDTO> loaded = List.copyOf(DataSourceRouting.onPrimary(loader));
+        lock.lock();
+        try {
+            if (catalogGeneration.get() == loadedAt) {
+                allCourses = loaded;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return loaded;
+    }
+
+    // Полный список, если он сейчас в кэше. Позволяет отфильтровать доступные курсы без запроса в БД
+    public Optional<List<CourseResponseDTO>> cachedAllCourses() {
+        List<CourseResponseDTO> cached = allCourses;
+        if (cached == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(cached);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCourseCreated(CourseCreatedEvent event) {
+        invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCourseDeleted(CourseDeletedEvent event) {
+        invalidate(event.getCourseId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationCreated(RegistrationCreatedEvent event) {
+        invalidate(event.getCourseId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationCancelled(RegistrationCancelledEvent event) {
+        invalidate(event.getCourseId());
+    }
+
+    public void invalidate(Long courseId) {
+        lock.lock();
+        try {
+            long seq = invalidationSeq.incrementAndGet();
+            recentlyInvalidated[(int) (seq % RECENT_INVALIDATIONS)] = courseId;
+            catalogGeneration.incrementAndGet();
+            // Одна инвалидация - одно событие в счётчике, даже если сброшены и курс, и полный каталог
+            boolean dropped = coursesById.remove(courseId) != null;
+            if (dropAllCourses() || dropped) {
+                invalidations.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Только полный каталог: курсы, уже лежащие в кэше, от создания нового курса не меняются
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            catalogGeneration.incrementAndGet();
+            if (dropAllCourses()) {
+                invalidations.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public long invalidations() {
+        return invalidations.sum();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return coursesById.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* Курсы, инвалидированные после loadedAt. Вызывается под lock. Если с тех пор инвалидаций было
+    больше, чем помнит кольцо, устаревшим считается любой курс */
+    private Predicate<Long> invalidatedSince(long loadedAt) {
+        long current = invalidationSeq.get();
+        if (current - loadedAt >= RECENT_INVALIDATIONS) {
+            return courseId -> true;
+        }
+        Set<Long> stale = new HashSet<>();
+        for (long seq = loadedAt + 1; seq <= current; seq++) {
+            stale.add(recentlyInvalidated[(int) (seq % RECENT_INVALIDATIONS)]);
+        }
+        return stale::contains;
+    }
+
+    // Вызывается под lock. Счётчик инвалидаций ведут вызывающие методы
+    private boolean dropAllCourses() {
+        if (allCourses == null) {
+            return false;
+        }
+        allCourses = null;
+        return true;
+    }
+}
@@ -0,0 +1,340 @@
+package system_for_the_university.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import system_for_the_university.DTO.response.CourseResponseDTO;
+import system_for_the_university.config.DataSourceRouting;
+import system_for_the_university.event.CourseCreatedEvent;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.repository.CourseRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/* Поиск курсов по названию в памяти. Названия приводятся к нижнему регистру, ё заменяется на е,
+а всё, кроме букв и цифр, становится пробелом. Ранжирование:
+1. название начинается с запроса (точное совпадение - первым), по алфавиту;
+2. с запроса начинается слово в названии, по алфавиту от этого слова;
+3. запрос встречается внутри слова, по алфавиту названий - только для запросов от трёх символов.
+Первые два уровня - обход отсортированных множеств от запроса, O(log n + offset + limit).
+Третий - пересечение списков курсов по триграммам запроса с проверкой подстроки.
+Индекс загружается при старте, обновляется по событиям создания и удаления курса после коммита
+и периодически перечитывается, чтобы подхватить курсы других экземпляров. Изменения, пришедшие
+во время перезагрузки, повторяются на новом индексе, как в StudentCourseIndex */
+@Slf4j
+@Component
+public class CourseSearchIndex {
+    public static final int MAX_QUERY_LENGTH = 100;
+    private static final Comparator<Entry> BY_TEXT =
+            Comparator.comparing(Entry::text).thenComparingLong(Entry::courseId);
+
+    private final CourseRepository courseRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Защищено lock, как и replay
+    private Names names = new Names();
+    // Изменения за время перезагрузки, null вне перезагрузки
+    private List<Consumer<Names>> replay;
+    private volatile boolean loaded;
+
+    public CourseSearchIndex(CourseRepository courseRepository) {
+        this.courseRepository = courseRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${course.search-index.reload-interval-ms:300000}",
+            fixedDelayString = "${course.search-index.reload-interval-ms:300000}")
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            replay = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Object[]> rows;
+        try {
+            rows = DataSourceRouting.onPrimary(courseRepository::findAllNames);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                replay = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        Names reloaded = new Names();
+        for (Object[] row : rows) {
+            reloaded.add((Long) row[0], (String) row[1]);
+        }
+
+        lock.writeLock().lock();
+        try {
+            replay.forEach(change -> change.accept(reloaded));
+            replay = null;
+            names = reloaded;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс поиска курсов загружен, курсов: {}", rows.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCourseCreated(CourseCreatedEvent event) {
+        CourseResponseDTO course = event.getCourse();
+        add(course.getId(), course.getName());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCourseDeleted(CourseDeletedEvent event) {
+        remove(event.getCourseId());
+    }
+
+    public void add(Long courseId, String name) {
+        apply(index -> {
+            index.remove(courseId);
+            index.add(courseId, name);
+        });
+    }
+
+    public void remove(Long courseId) {
+        apply(index -> index.remove(courseId));
+    }
+
+    /* id курсов по рангу, начиная с offset. Пусто, пока индекс не загружен. Запрос, в котором
+    не осталось букв и цифр, ничего не находит */
+    public Optional<List<Long>> search(String query, int offset, int limit) {
+        if (!loaded) {
+            return Optional.empty();
+        }
+        String normalized = normalize(query);
+        Page page = new Page(offset, limit);
+        if (normalized.isEmpty()) {
+            return Optional.of(page.courseIds);
+        }
+
+        lock.readLock().lock();
+        try {
+            if (collectPrefixed(names.byName, normalized, page) && collectPrefixed(names.byWord, normalized, page)
+                    && normalized.length() >= 3) {
+                names.collectSubstrings(normalized, page);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Optional.of(page.courseIds);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c == 'ё') {
+                c = 'е';
+            }
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        int length = normalized.length();
+        return length > 0 && normalized.charAt(length - 1) == ' '
+                ? normalized.substring(0, length - 1)
+                : normalized.toString();
+    }
+
+    // false, когда страница заполнена и дальше искать не нужно
+    private static boolean collectPrefixed(TreeSet<Entry> entries, String prefix, Page page) {
+        for (Entry entry : entries.tailSet(new Entry(prefix, Long.MIN_VALUE), true)) {
+            if (!entry.text().startsWith(prefix)) {
+                return true;
+            }
+            if (!page.offer(entry.courseId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void apply(Consumer<Names> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(names);
+            if (replay != null) {
+                replay.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Set<Long> trigrams(String normalized) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            trigrams.add(trigram(normalized, i));
+        }
+        return trigrams;
+    }
+
+    // Три символа UTF-16 укладываются в одно long без коллизий
+    private static long trigram(String text, int from) {
+        return ((long) text.charAt(from) << 32) | ((long) text.charAt(from + 1) << 16) | text.charAt(from + 2);
+    }
+
+    private static long[] insert(long[] courseIds, long courseId) {
+        int position = Arrays.binarySearch(courseIds, courseId);
+        if (position >= 0) {
+            return courseIds;
+        }
+        int at = -position - 1;
+        long[] updated = new long[courseIds.length + 1];
+        System.arraycopy(courseIds, 0, updated, 0, at);
+        updated[at] = courseId;
+        System.arraycopy(courseIds, at, updated, at + 1, courseIds.length - at);
+        return updated;
+    }
+
+    private static long[] delete(long[] courseIds, long courseId) {
+        int position = Arrays.binarySearch(courseIds, courseId);
+        if (position < 0) {
+            return courseIds;
+        }
+        long[] updated = new long[courseIds.length - 1];
+        System.arraycopy(courseIds, 0, updated, 0, position);
+        System.arraycopy(courseIds, position + 1, updated, position, courseIds.length - position - 1);
+        return updated;
+    }
+
+    private static final class Names {
+        private final Map<Long, String> byId = new HashMap<>();
+        private final TreeSet<Entry> byName = new TreeSet<>(BY_TEXT);
+        // Хвосты названий от начала каждого слова, кроме первого
+        private final TreeSet<Entry> byWord = new TreeSet<>(BY_TEXT);
+        // Триграмма - отсортированные id курсов, в названии которых она есть
+        private final Map<Long, long[]> postings = new HashMap<>();
+
+        private void collectSubstrings(String query, Page page) {
+            List<long[]> lists = new ArrayList<>();
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                long[] courseIds = postings.get(trigram(query, i));
+                if (courseIds == null) {
+                    return;
+                }
+                lists.add(courseIds);
+            }
+            lists.sort(Comparator.comparingInt(courseIds -> courseIds.length));
+
+            // Кандидаты - курсы из самого короткого списка, которые есть во всех остальных
+            List<Long> matches = new ArrayList<>();
+            candidates:
+            for (long courseId : lists.get(0)) {
+                if (page.seen.contains(courseId)) {
+                    continue;
+                }
+                for (int i = 1; i < lists.size(); i++) {
+                    if (Arrays.binarySearch(lists.get(i), courseId) < 0) {
+                        continue candidates;
+                    }
+                }
+                if (byId.get(courseId).contains(query)) {
+                    matches.add(courseId);
+                }
+            }
+            matches.sort(Comparator.comparing((Long courseId) -> byId.get(courseId)).thenComparing(courseId -> courseId));
+            for (Long courseId : matches) {
+                if (!page.offer(courseId)) {
+                    return;
+                }
+            }
+        }
+
+        private void add(Long courseId, String name) {
+            String normalized = normalize(name);
+            byId.put(courseId, normalized);
+            byName.add(new Entry(normalized, courseId));
+            for (int i = 1; i < normalized.length(); i++) {
+                if (normalized.charAt(i - 1) == ' ') {
+                    byWord.add(new Entry(normalized.substring(i), courseId));
+                }
+            }
+            for (long trigram : trigrams(normalized)) {
+                postings.merge(trigram, new long[]{courseId}, (current, added) -> insert(current, courseId));
+            }
+        }
+
+        private void remove(Long courseId) {
+            String normalized = byId.remove(courseId);
+            if (normalized == null) {
+                return;
+            }
+            byName.remove(new Entry(normalized, courseId));
+            for (int i = 1; i < normalized.length(); i++) {
+                if (normalized.charAt(i - 1) == ' ') {
+                    byWord.remove(new Entry(normalized.substring(i), courseId));
+                }
+            }
+            for (long trigram : trigrams(normalized)) {
+                postings.computeIfPresent(trigram, (key, current) -> {
+                    long[] updated = delete(current, courseId);
+                    return updated.length == 0 ? null : updated;
+                });
+            }
+        }
+    }
+
+    private record Entry(String text, long courseId) {
+    }
+
+    // Страница результата: курс попадает в неё один раз, по лучшему рангу, первые offset курсов пропускаются
+    private static final class Page {
+        private final Set<Long> seen = new HashSet<>();
+        private final List<Long> courseIds = new ArrayList<>();
+        private int skip;
+        private final int limit;
+
+        private Page(int offset, int limit) {
+            this.skip = offset;
+            this.limit = limit;
+        }
+
+        private boolean offer(long courseId) {
+            if (seen.add(courseId)) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    courseIds.add(courseId);
+                }
+            }
+            return courseIds.size() < limit;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package system_for_the_university.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import system_for_the_university.entity.Course;
+import system_for_the_university.entity.CourseSeatSlot;
+import system_for_the_university.repository.CourseRepository;
+import system_for_the_university.repository.CourseSeatSlotRepository;
+import system_for_the_university.repository.RegistrationRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/* Места курса в слотах. Заявка берёт первый слот со свободным местом, начиная со случайного,
+и пропускает слоты, заблокированные другими транзакциями (SKIP LOCKED), так что параллельные записи
+на большой курс расходятся по разным строкам. Если так свободный слот не найден, все слоты курса
+блокируются по порядку и проверяются целиком: свободные места перераспределяются поровну между слотами,
+и одно из них занимается. Отказ "мест нет" даётся только после этой проверки, поэтому итог точный.
+Сумма по слотам копируется в course.occupied_seats: изменения за транзакцию копятся по курсам и пишутся
+в строку курса перед коммитом, по порядку id. Так строка курса блокируется только на время коммита,
+а не на всю запись, и порядок блокировок везде один: сначала слоты, потом курс */
+@Slf4j
+@Service
+public class CourseSeatService {
+    private static final Pageable FIRST = PageRequest.of(0, 1);
+
+    private final CourseSeatSlotRepository slotRepository;
+    private final CourseRepository courseRepository;
+    private final RegistrationRepository registrationRepository;
+
+    public CourseSeatService(CourseSeatSlotRepository slotRepository,
+                             CourseRepository courseRepository,
+                             RegistrationRepository registrationRepository) {
+        this.slotRepository = slotRepository;
+        this.courseRepository = courseRepository;
+        this.registrationRepository = registrationRepository;
+    }
+
+    // Занимает одно место в транзакции вызывающего. Возвращает false, если курс заполнен
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean claim(Course course) {
+        List<CourseSeatSlot> free = slotRepository.findFreeSkipLocked(course.getId(), startSlot(course), FIRST);
+        if (!free.isEmpty()) {
+            CourseSeatSlot slot = free.get(0);
+            slot.setOccupied(slot.getOccupied() + 1);
+            addOccupied(course.getId(), 1);
+            return true;
+        }
+        // Свободные слоты кончились или заняты другими заявками: проверяю курс целиком
+        List<CourseSeatSlot> slots = lockSlots(course.getId());
+        if (free(slots) <= 0) {
+            return false;
+        }
+        occupy(slots, 1);
+        return true;
+    }
+
+    /* Освобождает одно место. Слоты, занятые чужими транзакциями, пропускаются так же, как при записи,
+    а слот, освобождённый в этой транзакции, остаётся за ней, поэтому промоушен из листа ожидания
+    займёт именно его */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Course course) {
+        List<CourseSeatSlot> occupied = slotRepository.findOccupiedSkipLocked(course.getId(), startSlot(course), FIRST);
+        CourseSeatSlot slot = occupied.isEmpty()
+                ? lockSlots(course.getId()).stream().filter(s -> s.getOccupied() > 0).findFirst().orElse(null)
+                : occupied.get(0);
+        if (slot == null) {
+            log.warn("Освобождение места курса {}, в слотах которого нет занятых мест", course.getId());
+            return;
+        }
+        slot.setOccupied(slot.getOccupied() - 1);
+        addOccupied(course.getId(), -1);
+    }
+
+    /* Все слоты курса под блокировкой до конца транзакции, для пакетной записи.
+    Курс, созданный до появления слотов, получает их здесь по числу записей */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<CourseSeatSlot> lockSlots(Long courseId) {
+        List<CourseSeatSlot> slots = slotRepository.findAllByCourseIdForUpdate(courseId);
+        if (!slots.isEmpty()) {
+            return slots;
+        }
+        return courseRepository.findById(courseId)
+                .map(course -> createSlots(course, (int) registrationRepository.countByCourseId(courseId)))
+                .orElse(slots);
+    }
+
+    public static int free(List<CourseSeatSlot> slots) {
+        return slots.stream().mapToInt(CourseSeatSlot::free).sum();
+    }
+
+    private static int occupied(List<CourseSeatSlot> slots) {
+        return slots.stream().mapToInt(CourseSeatSlot::getOccupied).sum();
+    }
+
+    private static int capacity(List<CourseSeatSlot> slots) {
+        return slots.stream().mapToInt(CourseSeatSlot::getCapacity).sum();
+    }
+
+    // Занимает count мест в заблокированных слотах. Если какой-то слот опустел, свободное перераспределяется
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void occupy(List<CourseSeatSlot> slots, int count) {
+        if (count > free(slots)) {
+            throw new IllegalStateException("Недостаточно свободных мест в слотах курса");
+        }
+        int left = count;
+        for (CourseSeatSlot slot : slots) {
+            int taken = Math.min(slot.free(), left);
+            slot.setOccupied(slot.getOccupied() + taken);
+            left -= taken;
+        }
+        if (slots.stream().anyMatch(slot -> slot.free() == 0) && free(slots) > 0) {
+            rebalance(slots);
+        }
+        if (count > 0) {
+            addOccupied(slots.get(0).getCourse().getId(), count);
+        }
+    }
+
+    /* Сверка слотов с таблицей записей при старте: курсы без слотов их получают, а курсы, у которых
+    сумма по слотам разошлась с числом записей или с вместимостью, пересчитываются точно.
+    Сводные суммы читаются без блокировок и только отбирают кандидатов: перед пересчётом слоты курса
+    блокируются и записи считаются заново, иначе запись или отмена, прошедшая между сводкой и пересчётом,
+    потерялась бы. Курсы идут по возрастанию id, как и в пакетной записи */
+    @Transactional
+    public void syncAll() {
+        Map<Long, Long> registrations = new HashMap<>();
+        for (Object[] row : registrationRepository.countByCourse()) {
+            registrations.put((Long) row[0], (Long) row[1]);
+        }
+        Map<Long, long[]> slotTotals = new HashMap<>();
+        for (Object[] row : slotRepository.summarizeByCourse()) {
+            slotTotals.put((Long) row[0], new long[]{((Number) row[1]).longValue(), ((Number) row[2]).longValue()});
+        }
+
+        int fixed = 0;
+        List<Course> courses = new ArrayList<>(courseRepository.findAll());
+        courses.sort(Comparator.comparing(Course::getId));
+        for (Course course : courses) {
+            int occupied = registrations.getOrDefault(course.getId(), 0L).intValue();
+            long[] totals = slotTotals.get(course.getId());
+            if (totals == null) {
+                createSlots(course, occupied);
+                fixed++;
+            } else if (totals[0] != occupied || totals[1] != course.getCapacity()
+                    || course.getOccupiedSeats() != occupied) {
+                List<CourseSeatSlot> slots = new ArrayList<>(slotRepository.findAllByCourseIdForUpdate(course.getId()));
+                int recounted = (int) registrationRepository.countByCourseId(course.getId());
+                if (occupied(slots) != recounted || capacity(slots) != course.getCapacity()) {
+                    resetSlots(course, slots, recounted);
+                    fixed++;
+                }
+                // Колонку в строке курса выставляю под теми же блокировками слотов
+                courseRepository.setOccupiedSeats(course.getId(), recounted);
+            }
+        }
+        if (fixed > 0) {
+            log.info("Слоты мест пересчитаны для {} курсов", fixed);
+        }
+    }
+
+    private List<CourseSeatSlot> createSlots(Course course, int occupied) {
+        List<CourseSeatSlot> slots = CourseSeatSlot.split(course, course.getCapacity());
+        distribute(slots, occupied);
+        courseRepository.setOccupiedSeats(course.getId(), occupied);
+        return slotRepository.saveAll(slots);
+    }
+
+    /* Вместимость заново делится по слотам. Лишние слоты, если вместимость курса уменьшилась, не удаляю:
+    они просто получают свою долю свободных мест при выравнивании */
+    private void resetSlots(Course course, List<CourseSeatSlot> slots, int occupied) {
+        List<CourseSeatSlot> split = CourseSeatSlot.split(course, course.getCapacity());
+        for (int i = 0; i < slots.size(); i++) {
+            slots.get(i).setCapacity(i < split.size() ? split.get(i).getCapacity() : 0);
+            slots.get(i).setOccupied(0);
+        }
+        for (int i = slots.size(); i < split.size(); i++) {
+            slots.add(split.get(i));
+        }
+        distribute(slots, occupied);
+        slotRepository.saveAll(slots);
+    }
+
+    // Занятые места раскладываются по слотам по порядку, а свободные затем выравниваются
+    private static void distribute(List<CourseSeatSlot> slots, int occupied) {
+        int left = occupied;
+        for (CourseSeatSlot slot : slots) {
+            int taken = Math.min(slot.getCapacity(), left);
+            slot.setOccupied(taken);
+            left -= taken;
+        }
+        // Записей больше вместимости, например после её уменьшения: лишнее остаётся в последнем слоте
+        if (left > 0) {
+            CourseSeatSlot last = slots.get(slots.size() - 1);
+            last.setOccupied(last.getOccupied() + left);
+            return;
+        }
+        rebalance(slots);
+    }
+
+    /* Свободные места делятся между слотами поровну, общая вместимость не меняется.
+    После этого любой слот снова может принять заявку, и записи опять расходятся по строкам */
+    static void rebalance(List<CourseSeatSlot> slots) {
+        int free = free(slots);
+        int size = slots.size();
+        for (int i = 0; i < size; i++) {
+            CourseSeatSlot slot = slots.get(i);
+            slot.setCapacity(slot.getOccupied() + free / size + (i < free % size ? 1 : 0));
+        }
+    }
+
+    // Вне транзакции, например в тестах, колонка меняется сразу
+    private void addOccupied(Long courseId, int delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            courseRepository.addOccupiedSeats(courseId, delta);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<Long, Integer> pending = (Map<Long, Integer>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<Long, Integer> deltas = new TreeMap<>();
+            TransactionSynchronizationManager.bindResource(this, deltas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    deltas.forEach((id, delta) -> {
+                        if (delta != 0) {
+                            courseRepository.addOccupiedSeats(id, delta);
+                        }
+                    });
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CourseSeatService.this);
+                }
+            });
+            pending = deltas;
+        }
+        pending.merge(courseId, delta, Integer::sum);
+    }
+
+    private static int startSlot(Course course) {
+        return ThreadLocalRandom.current().nextInt(CourseSeatSlot.slotCount(course.getCapacity()));
+    }
+}
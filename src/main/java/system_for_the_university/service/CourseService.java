@@ -1,27 +1,59 @@
 package system_for_the_university.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 import system_for_the_university.DTO.request.CourseRequestDTO;
 import system_for_the_university.DTO.response.CourseResponseDTO;
+import system_for_the_university.DTO.response.CourseRosterRowDTO;
+import system_for_the_university.DTO.response.KeysetPageDTO;
 import system_for_the_university.entity.Course;
+import system_for_the_university.event.CourseCreatedEvent;
+import system_for_the_university.event.CourseDeletedEvent;
 import system_for_the_university.repository.CourseRepository;
 import system_for_the_university.repository.RegistrationRepository;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 public class CourseService {
-    private final CourseRepository courseRepository;
+    private static final int MAX_UPCOMING_MINUTES = 7 * 24 * 60;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_SEARCH_OFFSET = 10_000;
+    private static final List<String> ROSTER_HEADER = List.of(
+            "course_id", "course_name", "student_id", "student_name", "student_email", "registration_time");
 
-    public CourseService(CourseRepository courseRepository, RegistrationRepository registrationRepository) {
+    private final CourseRepository courseRepository;
+    private final RegistrationRepository registrationRepository;
+    private final NdjsonWriter ndjsonWriter;
+    private final CsvWriter csvWriter;
+    private final CourseCatalogCache courseCatalogCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CourseWindowIndex courseWindowIndex;
+    private final CourseSearchIndex courseSearchIndex;
+
+    public CourseService(CourseRepository courseRepository, RegistrationRepository registrationRepository,
+                         NdjsonWriter ndjsonWriter, CsvWriter csvWriter,
+                         CourseCatalogCache courseCatalogCache, ApplicationEventPublisher eventPublisher,
+                         CourseWindowIndex courseWindowIndex, CourseSearchIndex courseSearchIndex) {
         this.courseRepository = courseRepository;
+        this.registrationRepository = registrationRepository;
+        this.ndjsonWriter = ndjsonWriter;
+        this.csvWriter = csvWriter;
+        this.courseCatalogCache = courseCatalogCache;
+        this.eventPublisher = eventPublisher;
+        this.courseWindowIndex = courseWindowIndex;
+        this.courseSearchIndex = courseSearchIndex;
     }
 
     @Transactional
@@ -38,33 +70,110 @@ public class CourseService {
 
         log.info("Курс успешно создан ID: {}", course.getId());
 
-        return mapToDto(course);
+        CourseResponseDTO response = mapToDto(course);
+        eventPublisher.publishEvent(new CourseCreatedEvent(response));
+        return response;
     }
 
     public CourseResponseDTO getCourseById(Long courseId) {
         log.info("Поиск курса с ID: {}", courseId);
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Курс не найден"));
-        return mapToDto(course);
+        return courseCatalogCache.getCourse(courseId, () -> courseRepository.findById(courseId)
+                .map(this::mapToDto)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Курс не найден")));
     }
 
     public List<CourseResponseDTO> getAvailableCourses() {
         log.info("Поиск доступных курсов");
         LocalDateTime now = LocalDateTime.now(ZoneId.of("Europe/Moscow"));
 
-        return courseRepository.findAll().stream()
-                .filter(course -> course.getCapacity() > courseRepository.countRegistrationsById(course.getId()))
-                .filter(course -> now.isAfter(course.getStartTime()))
-                .filter(course -> now.isBefore(course.getEndTime()))
-                .map(this::mapToDto)
-                .toList();
+        /* Открытые сейчас курсы берутся из индекса окон записи, их данные - из кэша каталога,
+        недостающие догружаются одним запросом. Перед этим индекс сверяется с таблицей курсов, чтобы
+        не отдавать список без курсов, созданных на других экземплярах. Пока индекс не загружен
+        или перезагружается, фильтрация идёт в БД */
+        if (!courseWindowIndex.refreshIfChanged()) {
+            return courseRepository.findAvailable(now);
+        }
+        return courseWindowIndex.openAt(now)
+                .map(courseIds -> courseCatalogCache.getCourses(courseIds, courseRepository::findResponsesByIds)
+                        .stream()
+                        .filter(course -> course.getCapacity() > course.getOccupiedSeats())
+                        .toList())
+                .orElseGet(() -> courseRepository.findAvailable(now));
+    }
+
+    // Курсы, запись на которые откроется в ближайшие minutes минут, в порядке открытия
+    public List<CourseResponseDTO> getUpcomingCourses(int minutes) {
+        log.info("Поиск курсов, запись на которые откроется в ближайшие {} минут", minutes);
+        if (minutes < 1 || minutes > MAX_UPCOMING_MINUTES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Интервал должен быть от 1 до " + MAX_UPCOMING_MINUTES + " минут");
+        }
+        LocalDateTime now = LocalDateTime.now(ZoneId.of("Europe/Moscow"));
+        return courseWindowIndex.opensBetween(now, now.plusMinutes(minutes))
+                .map(courseIds -> courseCatalogCache.getCourses(courseIds, courseRepository::findResponsesByIds))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Индекс курсов ещё загружается"));
+    }
+
+    /* Поиск по названию: id курсов по рангу даёт индекс поиска, сами курсы берутся из кэша каталога,
+    недостающие догружаются одним запросом. Вместо выгрузки /all клиент получает только страницу совпадений */
+    public List<CourseResponseDTO> searchCourses(String query, int offset, int limit) {
+        log.info("Поиск курсов по запросу: {}", query);
+        if (query == null || query.isBlank() || query.length() > CourseSearchIndex.MAX_QUERY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Запрос должен содержать от 1 до " + CourseSearchIndex.MAX_QUERY_LENGTH + " символов");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Размер страницы должен быть от 1 до " + MAX_SEARCH_LIMIT);
+        }
+        if (offset < 0 || offset > MAX_SEARCH_OFFSET) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Смещение должно быть от 0 до " + MAX_SEARCH_OFFSET);
+        }
+        return courseSearchIndex.search(query, offset, limit)
+                .map(courseIds -> courseCatalogCache.getCourses(courseIds, courseRepository::findResponsesByIds))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Индекс поиска курсов ещё загружается"));
     }
 
     public List<CourseResponseDTO> getAllCourse() {
         log.info("Поиск всех курсов");
-        return courseRepository.findAll().stream()
+        return courseCatalogCache.getAllCourses(() -> courseRepository.findAll().stream()
                 .map(this::mapToDto)
-                .toList();
+                .toList());
+    }
+
+    // Постраничный обход по id: каждая страница - один индексный запрос, независимо от глубины
+    @Transactional(readOnly = true)
+    public KeysetPageDTO<CourseResponseDTO> getCoursePage(Long afterId, int limit) {
+        log.info("Страница курсов после ID: {}", afterId);
+        List<CourseResponseDTO> courses = courseRepository.findPageAfter(afterId, KeysetPaging.limit(limit));
+        return KeysetPaging.page(courses, limit, CourseResponseDTO::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllCourses(OutputStream out) throws IOException {
+        log.info("Потоковая выгрузка всех курсов");
+        try (Stream<CourseResponseDTO> courses = courseRepository.streamAll()) {
+            ndjsonWriter.write(courses, out);
+        }
+    }
+
+    /* Список курса (или всех курсов при courseId == null) потоком из курсора БД прямо в ответ.
+    Студенты не загружаются сущностями, поэтому память не зависит от размера курса */
+    @Transactional(readOnly = true)
+    public void exportRoster(Long courseId, ExportFormat format, OutputStream out) throws IOException {
+        log.info("Выгрузка списка курса {} в формате {}", courseId == null ? "все" : courseId, format);
+        try (Stream<CourseRosterRowDTO> rows = courseId == null
+                ? registrationRepository.streamAllRosters()
+                : registrationRepository.streamRoster(courseId)) {
+            long written = format == ExportFormat.CSV
+                    ? csvWriter.write(rows, ROSTER_HEADER, row -> Arrays.asList(row.getCourseId(), row.getCourseName(),
+                            row.getStudentId(), row.getStudentName(), row.getStudentEmail(), row.getRegistrationTime()), out)
+                    : ndjsonWriter.write(rows, out);
+            log.info("Выгружено строк списка: {}", written);
+        }
     }
 
     @Transactional
@@ -73,7 +182,9 @@ public class CourseService {
         if (!courseRepository.existsById(courseID)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Курс с таким ID не существует");
         }
+        // Учёт мест забывает курс сам по событию после коммита, чтобы откат удаления его не терял
         courseRepository.deleteById(courseID);
+        eventPublisher.publishEvent(new CourseDeletedEvent(courseID));
     }
 
     public Course mapToEntity(CourseRequestDTO request) {
@@ -89,10 +200,15 @@ public class CourseService {
         response.setId(course.getId());
         response.setName(course.getName());
         response.setCapacity(course.getCapacity());
-        response.setOccupiedSeats(course.getRegistrations().size());
+        response.setOccupiedSeats(course.getOccupiedSeats());
         response.setStartTime(course.getStartTime());
         response.setEndTime(course.getEndTime());
         response.setTimeZone(course.getTimeZone());
         return response;
     }
+
+    public enum ExportFormat {
+        CSV,
+        NDJSON
+    }
 }
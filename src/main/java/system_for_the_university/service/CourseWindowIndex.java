@@ -0,0 +1,296 @@
+package system_for_the_university.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import system_for_the_university.DTO.response.CourseResponseDTO;
+import system_for_the_university.config.DataSourceRouting;
+import system_for_the_university.event.CourseCreatedEvent;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.repository.CourseRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/* Индекс окон записи на курсы в памяти. Курсы, запись на которые ещё не началась, лежат в множестве,
+отсортированном по началу окна, а открытые - в множестве, отсортированном по концу. При запросе
+индекс продвигается до текущего момента: начавшиеся окна переходят в открытые, закончившиеся удаляются.
+Поэтому "открыто сейчас" и "откроется в ближайший час" отвечаются за O(log n + k) без сравнения
+времени у каждого курса. Время окон московское, как и в проверке при записи.
+Окно открыто с startTime включительно до endTime не включительно, так же проверяет окно и сама запись.
+Изменения, пришедшие во время перезагрузки, повторяются на новом индексе, как в StudentCourseIndex.
+Вместе с окнами запоминается отпечаток таблицы курсов (число и наибольший id). refreshIfChanged сверяет
+его с БД и перезагружает индекс, если курсы создавали или удаляли, в том числе на других экземплярах */
+@Slf4j
+@Component
+public class CourseWindowIndex {
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+    private static final Comparator<Window> BY_START =
+            Comparator.comparing(Window::start).thenComparing(Window::courseId);
+    private static final Comparator<Window> BY_END =
+            Comparator.comparing(Window::end).thenComparing(Window::courseId);
+
+    private final CourseRepository courseRepository;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Перезагрузки идут по одной: плановая и по изменившемуся отпечатку не должны делить replay
+    private final ReentrantLock reloading = new ReentrantLock();
+    // Защищено lock, как и replay и stamp
+    private Windows windows = new Windows();
+    private Stamp stamp;
+    // Изменения за время перезагрузки, null вне перезагрузки
+    private List<Consumer<Windows>> replay;
+    private volatile boolean loaded;
+
+    public CourseWindowIndex(CourseRepository courseRepository) {
+        this.courseRepository = courseRepository;
+    }
+
+    public static boolean isOpen(LocalDateTime start, LocalDateTime end, LocalDateTime now) {
+        return !now.isBefore(start) && now.isBefore(end);
+    }
+
+    /* Полная загрузка при старте и периодически, чтобы подхватить курсы, созданные другими экземплярами.
+    Закончившиеся окна не загружаются вовсе */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${course.window-index.reload-interval-ms:300000}",
+            fixedDelayString = "${course.window-index.reload-interval-ms:300000}")
+    public void reload() {
+        reloading.lock();
+        try {
+            load();
+        } finally {
+            reloading.unlock();
+        }
+    }
+
+    /* true, если индекс можно использовать: он загружен и таблица курсов с загрузки не менялась, либо
+    индекс только что перезагружен. false, пока индекс не загружен или его перезагружает другой поток,
+    тогда решение остаётся за БД. Курс, созданный на этом экземпляре, тоже меняет отпечаток, поэтому после
+    него индекс один раз перезагрузится - курсы создаются редко, а так не нужно отличать свои курсы от чужих */
+    public boolean refreshIfChanged() {
+        if (!loaded) {
+            return false;
+        }
+        Stamp current = DataSourceRouting.onPrimary(this::readStamp);
+        if (current.equals(loadedStamp())) {
+            return true;
+        }
+        if (!reloading.tryLock()) {
+            return false;
+        }
+        try {
+            // Пока проверяли, индекс мог перезагрузить плановый reload
+            if (!current.equals(loadedStamp())) {
+                load();
+            }
+            return true;
+        } finally {
+            reloading.unlock();
+        }
+    }
+
+    // Вызывается под reloading
+    private void load() {
+        lock.lock();
+        try {
+            replay = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+
+        LocalDateTime now = LocalDateTime.now(MOSCOW);
+        Stamp reloadedStamp;
+        List<Object[]> rows;
+        try {
+            /* Отпечаток читается до окон: курс, созданный между запросами, попадёт в окна, но не в отпечаток,
+            и следующая проверка лишний раз перезагрузит индекс. В обратном порядке курс мог бы потеряться */
+            reloadedStamp = DataSourceRouting.onPrimary(this::readStamp);
+            rows = DataSourceRouting.onPrimary(() -> courseRepository.findWindowsEndingAfter(now));
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                replay = null;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        Windows reloaded = new Windows();
+        for (Object[] row : rows) {
+            reloaded.add(new Window((Long) row[0], (LocalDateTime) row[1], (LocalDateTime) row[2]));
+        }
+
+        lock.lock();
+        try {
+            replay.forEach(change -> change.accept(reloaded));
+            replay = null;
+            windows = reloaded;
+            stamp = reloadedStamp;
+            loaded = true;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Индекс окон записи загружен, курсов: {}", rows.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCourseCreated(CourseCreatedEvent event) {
+        CourseResponseDTO course = event.getCourse();
+        add(course.getId(), course.getStartTime(), course.getEndTime());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCourseDeleted(CourseDeletedEvent event) {
+        remove(event.getCourseId());
+    }
+
+    public void add(Long courseId, LocalDateTime start, LocalDateTime end) {
+        Window window = new Window(courseId, start, end);
+        apply(index -> {
+            index.remove(courseId);
+            index.add(window);
+        });
+    }
+
+    public void remove(Long courseId) {
+        apply(index -> index.remove(courseId));
+    }
+
+    // id курсов, открытых для записи в момент now, по возрастанию id. Пусто, пока индекс не загружен
+    public Optional<List<Long>> openAt(LocalDateTime now) {
+        if (!loaded) {
+            return Optional.empty();
+        }
+        lock.lock();
+        try {
+            windows.advance(now);
+            List<Long> courseIds = new ArrayList<>(windows.open.size());
+            for (Window window : windows.open) {
+                courseIds.add(window.courseId());
+            }
+            courseIds.sort(null);
+            return Optional.of(courseIds);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // id курсов, запись на которые откроется в промежутке (from, to], в порядке открытия
+    public Optional<List<Long>> opensBetween(LocalDateTime from, LocalDateTime to) {
+        if (!loaded) {
+            return Optional.empty();
+        }
+        lock.lock();
+        try {
+            windows.advance(from);
+            List<Long> courseIds = new ArrayList<>();
+            for (Window window : windows.notOpened) {
+                if (window.start().isAfter(to)) {
+                    break;
+                }
+                courseIds.add(window.courseId());
+            }
+            return Optional.of(courseIds);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Окно записи курса, если курс есть в индексе. Для неизвестного курса решение остаётся за БД
+    public Optional<Window> window(Long courseId) {
+        lock.lock();
+        try {
+            return Optional.ofNullable(windows.byCourse.get(courseId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return windows.byCourse.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Stamp loadedStamp() {
+        lock.lock();
+        try {
+            return stamp;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Stamp readStamp() {
+        List<Object[]> rows = courseRepository.findCountAndMaxId();
+        if (rows.isEmpty()) {
+            return new Stamp(0, 0);
+        }
+        Object[] row = rows.get(0);
+        return new Stamp(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+    }
+
+    private void apply(Consumer<Windows> change) {
+        lock.lock();
+        try {
+            change.accept(windows);
+            if (replay != null) {
+                replay.add(change);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Windows {
+        private final Map<Long, Window> byCourse = new HashMap<>();
+        private final TreeSet<Window> notOpened = new TreeSet<>(BY_START);
+        private final TreeSet<Window> open = new TreeSet<>(BY_END);
+
+        private void advance(LocalDateTime now) {
+            while (!notOpened.isEmpty() && !notOpened.first().start().isAfter(now)) {
+                open.add(notOpened.pollFirst());
+            }
+            while (!open.isEmpty() && !open.first().end().isAfter(now)) {
+                byCourse.remove(open.pollFirst().courseId());
+            }
+        }
+
+        private void add(Window window) {
+            byCourse.put(window.courseId(), window);
+            notOpened.add(window);
+        }
+
+        private void remove(Long courseId) {
+            Window window = byCourse.remove(courseId);
+            if (window != null) {
+                notOpened.remove(window);
+                open.remove(window);
+            }
+        }
+    }
+
+    private record Stamp(long courses, long maxId) {
+    }
+
+    public record Window(Long courseId, LocalDateTime start, LocalDateTime end) {
+        public boolean isOpenAt(LocalDateTime now) {
+            return isOpen(start, end, now);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package system_for_the_university.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/* Пишет элементы потока в ответ построчно в CSV, как NdjsonWriter в NDJSON: строка формируется
+и сразу уходит в выходной поток, поэтому память не зависит от размера выгрузки */
+@Component
+public class CsvWriter {
+    private static final int FLUSH_EVERY = 500;
+
+    public <T> long write(Stream<T> items, List<String> header, Function<T, List<?>> columns,
+                          OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long[] written = {0};
+        writeLine(writer, header);
+        try {
+            items.forEachOrdered(item -> {
+                try {
+                    writeLine(writer, columns.apply(item));
+                    if (++written[0] % FLUSH_EVERY == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return written[0];
+    }
+
+    private static void writeLine(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    /* Значения с запятой, кавычкой или переводом строки берутся в кавычки. Текст, который начинается
+    с =, +, - или @, Excel выполнил бы как формулу, поэтому перед ним ставится апостроф */
+    static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (value instanceof CharSequence && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
@@ -0,0 +1,29 @@
+package system_for_the_university.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.stereotype.Component;
+
+/* Student, Course, Registration и CourseSeatSlot получают id из последовательностей *_seq пулами по 50:
+один запрос к последовательности на 50 новых строк, и id известен уже при persist, поэтому Hibernate
+отправляет вставки JDBC-батчами. С IDENTITY каждая вставка шла бы отдельным запросом за своим id.
+Этот класс выдаёт id из того же пула, что и Hibernate при persist. Нужен вставкам через JdbcTemplate:
+если брать nextval в самом SQL, значение попало бы в пул, который Hibernate уже раздаёт,
+и id совпали бы. Вызывается внутри транзакции */
+@Component
+public class EntityIdGenerator {
+    private final EntityManager entityManager;
+
+    public EntityIdGenerator(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public Long nextId(Class<?> entityClass) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(entityClass).getGenerator();
+        return (Long) generator.generate(session, null, null, EventType.INSERT);
+    }
+}
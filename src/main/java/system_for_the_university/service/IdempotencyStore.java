@@ -0,0 +1,209 @@
+package system_for_the_university.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.RegistrationResponseDTO;
+import system_for_the_university.entity.IdempotencyRecord;
+import system_for_the_university.repository.IdempotencyRecordRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* Хранилище ответов по ключу идемпотентности. Студент с мобильной сетью повторяет запрос, не дождавшись
+ответа, и повтор должен получить исходный результат, а не 409. Свежие ключи лежат в памяти
+(ограниченный LRU), все ключи - в БД до истечения срока, так что ответ переживает перезапуск */
+@Slf4j
+@Component
+public class IdempotencyStore {
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Entry> entriesByKey;
+
+    public IdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+                            ObjectMapper objectMapper,
+                            @Value("${registration.idempotency.ttl-hours:24}") long ttlHours,
+                            @Value("${registration.idempotency.max-entries:100000}") int maxEntries) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.maxEntries = maxEntries;
+        this.entriesByKey = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > IdempotencyStore.this.maxEntries;
+            }
+        };
+    }
+
+    // Только память: повтор свежего запроса отвечается без транзакции и очереди допуска
+    public Optional<RegistrationResponseDTO> findCached(String key, RegistrationRequestDTO request) {
+        checkKey(key);
+        lock.lock();
+        try {
+            Entry entry = entriesByKey.get(key);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (entry.expiresAt.isBefore(LocalDateTime.now())) {
+                entriesByKey.remove(key);
+                return Optional.empty();
+            }
+            checkSameRequest(entry.studentId, entry.courseId, request);
+            return Optional.of(entry.response);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Память, а при промахе БД. Вызывается внутри транзакции записи, когда ключ уже мог сохранить предыдущий запрос
+    public Optional<RegistrationResponseDTO> find(String key, RegistrationRequestDTO request) {
+        Optional<RegistrationResponseDTO> cached = findCached(key, request);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findById(key)
+                .filter(record -> record.getExpiresAt().isAfter(LocalDateTime.now()));
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+        IdempotencyRecord record = stored.get();
+        checkSameRequest(record.getStudentId(), record.getCourseId(), request);
+        RegistrationResponseDTO response = readResponse(record.getResponse());
+        remember(key, new Entry(record.getStudentId(), record.getCourseId(), response, record.getExpiresAt()));
+        log.info("Ответ по ключу идемпотентности {} взят из БД", key);
+        return Optional.of(response);
+    }
+
+    /* Занимает ключ в текущей транзакции до самой записи. Два первых запроса с одним ключом могут оба
+    не найти его выше: второй ждёт на вставке, пока первый не завершится, и получает его сохранённый ответ.
+    Если первый откатился, ключ занимает второй. Пусто - ключ занят этим запросом, можно записывать */
+    public Optional<RegistrationResponseDTO> claim(String key, RegistrationRequestDTO request) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            LocalDateTime now = LocalDateTime.now();
+            if (idempotencyRecordRepository.insertIfAbsent(key, request.getStudentId(), request.getCourseId(),
+                    now.plus(ttl)) > 0) {
+                return Optional.empty();
+            }
+            Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findById(key);
+            if (stored.isEmpty()) {
+                continue;
+            }
+            IdempotencyRecord record = stored.get();
+            // Просроченный ключ ещё не удалён очисткой: удаляю его и занимаю заново
+            if (record.getExpiresAt().isBefore(now)) {
+                idempotencyRecordRepository.delete(record);
+                idempotencyRecordRepository.flush();
+                continue;
+            }
+            checkSameRequest(record.getStudentId(), record.getCourseId(), request);
+            if (record.getResponse().isEmpty()) {
+                break;
+            }
+            log.info("Ключ идемпотентности {} занят параллельным запросом, отдаю его ответ", key);
+            return Optional.of(readResponse(record.getResponse()));
+        }
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "Запрос с этим ключом идемпотентности ещё выполняется");
+    }
+
+    // Ответ дописывается в ключ, занятый claim, в той же транзакции, что и регистрация. В память - только после коммита
+    public void save(String key, RegistrationRequestDTO request, RegistrationResponseDTO response) {
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        idempotencyRecordRepository.updateResponse(key, writeResponse(response), expiresAt);
+        Entry entry = new Entry(request.getStudentId(), request.getCourseId(), response, expiresAt);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(key, entry);
+                }
+            });
+        } else {
+            remember(key, entry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${registration.idempotency.cleanup-interval-ms:600000}")
+    public void removeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        lock.lock();
+        try {
+            entriesByKey.values().removeIf(entry -> entry.expiresAt.isBefore(now));
+        } finally {
+            lock.unlock();
+        }
+        int removed = idempotencyRecordRepository.deleteExpired(now);
+        if (removed > 0) {
+            log.info("Удалено просроченных ключей идемпотентности: {}", removed);
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entriesByKey.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remember(String key, Entry entry) {
+        lock.lock();
+        try {
+            entriesByKey.put(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkKey(String key) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key должен быть непустым и не длиннее " + MAX_KEY_LENGTH + " символов");
+        }
+    }
+
+    private void checkSameRequest(Long studentId, Long courseId, RegistrationRequestDTO request) {
+        if (!Objects.equals(studentId, request.getStudentId()) || !Objects.equals(courseId, request.getCourseId())) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Ключ идемпотентности уже использован для другой заявки");
+        }
+    }
+
+    private String writeResponse(RegistrationResponseDTO response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сохранить ответ по ключу идемпотентности", e);
+        }
+    }
+
+    private RegistrationResponseDTO readResponse(String json) {
+        try {
+            return objectMapper.readValue(json, RegistrationResponseDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать ответ по ключу идемпотентности", e);
+        }
+    }
+
+    private record Entry(Long studentId, Long courseId, RegistrationResponseDTO response, LocalDateTime expiresAt) {
+    }
+}
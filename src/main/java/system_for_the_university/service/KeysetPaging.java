@@ -0,0 +1,31 @@
+package system_for_the_university.service;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.DTO.response.KeysetPageDTO;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Общие правила постраничного обхода по id для сервисов
+final class KeysetPaging {
+    static final int MAX_LIMIT = 1000;
+
+    private KeysetPaging() {
+    }
+
+    static Pageable limit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Размер страницы должен быть от 1 до " + MAX_LIMIT);
+        }
+        return PageRequest.ofSize(limit);
+    }
+
+    static <T> KeysetPageDTO<T> page(List<T> items, int limit, Function<T, Long> idOf) {
+        Long nextCursor = items.size() < limit ? null : idOf.apply(items.get(items.size() - 1));
+        return new KeysetPageDTO<>(items, nextCursor);
+    }
+}
@@ -0,0 +1,43 @@
+package system_for_the_university.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+
+/* Пишет элементы потока в ответ построчно в формате NDJSON. Каждый объект сериализуется и сразу
+уходит в выходной поток, поэтому память не зависит от размера таблицы */
+@Component
+public class NdjsonWriter {
+    private static final int FLUSH_EVERY = 500;
+
+    private final ObjectMapper objectMapper;
+
+    public NdjsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public long write(Stream<?> items, OutputStream out) throws IOException {
+        long[] written = {0};
+        try {
+            items.forEachOrdered(item -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(item));
+                    out.write('\n');
+                    if (++written[0] % FLUSH_EVERY == 0) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        return written[0];
+    }
+}
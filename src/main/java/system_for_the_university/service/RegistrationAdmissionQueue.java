@@ -0,0 +1,181 @@
+package system_for_the_university.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.event.CourseDeletedEvent;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/* Очередь допуска к записи на курс. В момент открытия записи все студенты приходят одновременно,
+поэтому заявки на один курс выполняются по одной в порядке поступления в отдельном потоке курса.
+Очередь ограничена: кто в неё не поместился, сразу получает ответ "попробуйте позже".
+При spring.threads.virtual.enabled=true на Java 21 потоки курсов виртуальные, как и потоки запросов Tomcat.
+Поток и очередь заводятся только для курса, который есть в учёте мест: id курса приходит от клиента,
+и произвольные id иначе копили бы исполнителей без предела. Исполнитель удалённого курса закрывается
+по событию удаления, а простаивающие исполнители убираются периодически */
+@Slf4j
+@Component
+public class RegistrationAdmissionQueue {
+    private static final int NEW = 0;
+    private static final int STARTED = 1;
+    private static final int ABANDONED = 2;
+
+    private final boolean enabled;
+    private final int queueDepth;
+    private final long waitTimeoutMs;
+    private final long idleTimeoutMs;
+    private final boolean virtualThreads;
+    private final SeatLedger seatLedger;
+
+    private final ConcurrentHashMap<Long, ThreadPoolExecutor> executorsByCourse = new ConcurrentHashMap<>();
+    private TaskDecorator taskDecorator = runnable -> runnable;
+
+    public RegistrationAdmissionQueue(@Value("${registration.admission.enabled:true}") boolean enabled,
+                                      @Value("${registration.admission.queue-depth:200}") int queueDepth,
+                                      @Value("${registration.admission.wait-timeout-ms:10000}") long waitTimeoutMs,
+                                      @Value("${registration.admission.idle-timeout-ms:30000}") long idleTimeoutMs,
+                                      Environment environment,
+                                      SeatLedger seatLedger) {
+        this.enabled = enabled;
+        this.queueDepth = queueDepth;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        // Тот же признак, по которому Spring Boot переводит на виртуальные потоки Tomcat и планировщик
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+        this.seatLedger = seatLedger;
+    }
+
+    // Переносит в поток курса контекст потока запроса, например счётчик SQL-запросов для метрик
+    @Autowired(required = false)
+    public void setTaskDecorator(TaskDecorator taskDecorator) {
+        this.taskDecorator = taskDecorator;
+    }
+
+    public <T> T admit(Long courseId, Supplier<T> task) {
+        // Заявку на несуществующий курс сама запись отклоняет с 404, очередь для неё не нужна
+        if (!enabled || courseId == null || !seatLedger.isTracked(courseId)) {
+            return task.get();
+        }
+
+        AtomicInteger state = new AtomicInteger(NEW);
+        FutureTask<T> future = new FutureTask<>(() -> {
+            // Если клиент уже не дождался своей очереди, заявку не выполняю
+            if (!state.compareAndSet(NEW, STARTED)) {
+                return null;
+            }
+            return task.get();
+        });
+        Runnable decorated = taskDecorator.decorate(future);
+        while (true) {
+            ThreadPoolExecutor executor = executorsByCourse.computeIfAbsent(courseId, this::newExecutor);
+            try {
+                executor.execute(decorated);
+                break;
+            } catch (RejectedExecutionException e) {
+                // Исполнитель закрыли между получением и отправкой заявки: беру новый
+                if (!executor.isShutdown()) {
+                    log.info("Очередь записи на курс {} заполнена", courseId);
+                    throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                            "Слишком много заявок на курс, попробуйте позже");
+                }
+            }
+        }
+
+        try {
+            try {
+                return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (state.compareAndSet(NEW, ABANDONED)) {
+                    log.info("Заявка на курс {} не дождалась очереди", courseId);
+                    throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                            "Слишком много заявок на курс, попробуйте позже");
+                }
+                // Заявка уже выполняется, поэтому дожидаюсь результата, чтобы не потерять запись
+                return future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Запрос прерван");
+        }
+    }
+
+    public int queuedRequests(Long courseId) {
+        ThreadPoolExecutor executor = executorsByCourse.get(courseId);
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    public int courseExecutors() {
+        return executorsByCourse.size();
+    }
+
+    // Заявки, уже стоящие в очереди удалённого курса, доработают и получат 404
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCourseDeleted(CourseDeletedEvent event) {
+        ThreadPoolExecutor executor = executorsByCourse.remove(event.getCourseId());
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /* Убирает исполнителей, у которых поток уже завершился по простою и очередь пуста. Заявка, успевшая
+    попасть в очередь между проверкой и закрытием, всё равно выполнится: shutdown дорабатывает очередь */
+    @Scheduled(fixedDelayString = "${registration.admission.idle-timeout-ms:30000}")
+    public void evictIdle() {
+        executorsByCourse.forEach((courseId, executor) -> {
+            if (executor.getPoolSize() == 0 && executor.getQueue().isEmpty()
+                    && executorsByCourse.remove(courseId, executor)) {
+                executor.shutdown();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorsByCourse.values().forEach(ThreadPoolExecutor::shutdown);
+    }
+
+    // Один поток на курс. Простаивающий поток завершается, так что холодные курсы потоков не держат
+    private ThreadPoolExecutor newExecutor(Long courseId) {
+        String name = "admission-course-" + courseId;
+        ThreadFactory threadFactory = virtualThreads
+                ? new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory()
+                : runnable -> {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, idleTimeoutMs, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,348 @@
+package system_for_the_university.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.DTO.response.JournalEntryDTO;
+import system_for_the_university.DTO.response.JournalPageDTO;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.event.RegistrationCancelledEvent;
+import system_for_the_university.event.RegistrationCreatedEvent;
+import system_for_the_university.event.StudentDeletedEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+
+/* Журнал событий записи: только дописывается, читается по смещению. Биллинг и расписание следят за ним
+вместо того, чтобы перечитывать таблицу записей. Журнал лежит в файлах-сегментах, отображённых в память:
+запись события - копирование 40 байт в страницу, без системного вызова. Записи фиксированного размера,
+поэтому смещение - это номер события, а место в файле вычисляется без индекса. Заполненный сегмент
+закрывается и начинается следующий, старые сегменты сверх лимита удаляются.
+Событие дописывается после коммита транзакции: если процесс упадёт между коммитом и записью, события
+в журнале не будет, и потребителю остаётся сверка с /api/registrations/stream. Страницы сбрасываются
+на диск раз в flush-interval-ms и при остановке, после перезапуска конец журнала находится по контрольным суммам */
+@Slf4j
+@Component
+public class RegistrationJournal {
+    static final int RECORD_BYTES = 40;
+    private static final String SUFFIX = ".journal";
+    private static final JournalEntryDTO.Type[] TYPES = JournalEntryDTO.Type.values();
+
+    private final NdjsonWriter ndjsonWriter;
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final int retainedSegments;
+    private final long maxPollWaitMs;
+    // Сегменты по смещению первого события. Закрытые отображены только на чтение
+    private final ConcurrentSkipListMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final byte[] record = new byte[RECORD_BYTES];
+    private final CRC32 crc = new CRC32();
+    private volatile long nextOffset;
+    // Завершается при каждой записи, на нём ждут потребители, дочитавшие журнал до конца
+    private volatile CompletableFuture<Void> appended = new CompletableFuture<>();
+
+    public RegistrationJournal(NdjsonWriter ndjsonWriter,
+                               @Value("${registration.journal.dir:journal}") String directory,
+                               @Value("${registration.journal.segment-bytes:67108864}") int segmentBytes,
+                               @Value("${registration.journal.retained-segments:32}") int retainedSegments,
+                               @Value("${registration.journal.max-poll-wait-ms:25000}") long maxPollWaitMs) throws IOException {
+        this.ndjsonWriter = ndjsonWriter;
+        this.directory = Path.of(directory);
+        this.recordsPerSegment = Math.max(1, segmentBytes / RECORD_BYTES);
+        this.retainedSegments = Math.max(1, retainedSegments);
+        this.maxPollWaitMs = maxPollWaitMs;
+        open();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationCreated(RegistrationCreatedEvent event) {
+        append(JournalEntryDTO.Type.REGISTRATION_CREATED, event.getRegistrationId(), event.getStudentId(), event.getCourseId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationCancelled(RegistrationCancelledEvent event) {
+        append(JournalEntryDTO.Type.REGISTRATION_CANCELLED, event.getRegistrationId(), event.getStudentId(), event.getCourseId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCourseDeleted(CourseDeletedEvent event) {
+        append(JournalEntryDTO.Type.COURSE_DELETED, null, null, event.getCourseId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentDeleted(StudentDeletedEvent event) {
+        append(JournalEntryDTO.Type.STUDENT_DELETED, null, event.getStudentId(), null);
+    }
+
+    // Ошибка записи в журнал не отменяет уже зафиксированную операцию, поэтому только логирую её
+    void append(JournalEntryDTO.Type type, Long registrationId, Long studentId, Long courseId) {
+        CompletableFuture<Void> signal;
+        appendLock.lock();
+        try {
+            long offset = nextOffset;
+            long base = offset - offset % recordsPerSegment;
+            MappedByteBuffer segment = segments.get(base);
+            if (segment == null) {
+                segment = rotate(base);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            buffer.putInt(0)
+                    .put((byte) (type.ordinal() + 1))
+                    .put(new byte[3])
+                    .putLong(orZero(registrationId))
+                    .putLong(orZero(studentId))
+                    .putLong(orZero(courseId))
+                    .putLong(System.currentTimeMillis());
+            crc.reset();
+            crc.update(record, 4, RECORD_BYTES - 4);
+            buffer.putInt(0, (int) crc.getValue());
+            segment.put((int) (offset - base) * RECORD_BYTES, record);
+            nextOffset = offset + 1;
+            signal = appended;
+            appended = new CompletableFuture<>();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось дописать событие {} в журнал записей", type, e);
+            return;
+        } finally {
+            appendLock.unlock();
+        }
+        signal.complete(null);
+    }
+
+    /* Порция событий начиная с fromOffset. Если события до fromOffset уже удалены, чтение начинается
+    с самого старого хранимого, это видно по firstOffset и offset первого события */
+    public JournalPageDTO read(long fromOffset, int limit) {
+        if (limit < 1 || limit > KeysetPaging.MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Размер страницы должен быть от 1 до " + KeysetPaging.MAX_LIMIT);
+        }
+        long end = checkOffset(fromOffset);
+        List<JournalEntryDTO> entries = new ArrayList<>(limit);
+        long offset = Math.max(fromOffset, firstOffset());
+        for (; offset < end && entries.size() < limit; offset++) {
+            JournalEntryDTO entry = entryAt(offset);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return new JournalPageDTO(entries, offset, firstOffset());
+    }
+
+    /* Чтение для потребителя, дошедшего до конца журнала. С waitMs > 0 ответ приходит, как только появится
+    новое событие, или по истечении ожидания с пустой порцией. Поток запроса при этом не занят */
+    public CompletableFuture<JournalPageDTO> tail(long fromOffset, int limit, long waitMs) {
+        CompletableFuture<Void> signal = appended;
+        JournalPageDTO page = read(fromOffset, limit);
+        if (!page.getEntries().isEmpty() || waitMs <= 0) {
+            return CompletableFuture.completedFuture(page);
+        }
+        return signal.thenApply(ignored -> read(fromOffset, limit))
+                .completeOnTimeout(page, Math.min(waitMs, maxPollWaitMs), TimeUnit.MILLISECONDS);
+    }
+
+    // Проигрывает события от fromOffset до текущего конца журнала, возвращает смещение для продолжения
+    public long replay(long fromOffset, Consumer<JournalEntryDTO> consumer) {
+        long end = checkOffset(fromOffset);
+        try (Stream<JournalEntryDTO> entries = entries(fromOffset, end)) {
+            entries.forEachOrdered(consumer);
+        }
+        return end;
+    }
+
+    public void streamJournal(long fromOffset, OutputStream out) throws IOException {
+        long end = checkOffset(fromOffset);
+        try (Stream<JournalEntryDTO> entries = entries(fromOffset, end)) {
+            ndjsonWriter.write(entries, out);
+        }
+    }
+
+    public long nextOffset() {
+        return nextOffset;
+    }
+
+    public long firstOffset() {
+        Map.Entry<Long, MappedByteBuffer> first = segments.firstEntry();
+        return first == null ? nextOffset : first.getKey();
+    }
+
+    @Scheduled(fixedDelayString = "${registration.journal.flush-interval-ms:1000}")
+    public void flush() {
+        Map.Entry<Long, MappedByteBuffer> last = segments.lastEntry();
+        if (last != null) {
+            last.getValue().force();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        appendLock.lock();
+        try {
+            flush();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private Stream<JournalEntryDTO> entries(long fromOffset, long end) {
+        long[] offset = {Math.max(fromOffset, firstOffset())};
+        Spliterator<JournalEntryDTO> spliterator = new Spliterators.AbstractSpliterator<>(end - offset[0],
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super JournalEntryDTO> action) {
+                while (offset[0] < end) {
+                    JournalEntryDTO entry = entryAt(offset[0]++);
+                    if (entry != null) {
+                        action.accept(entry);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    private long checkOffset(long fromOffset) {
+        long end = nextOffset;
+        if (fromOffset < 0 || fromOffset > end) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Смещение должно быть от 0 до " + end);
+        }
+        return end;
+    }
+
+    // null, если сегмент уже удалён по лимиту хранения
+    private JournalEntryDTO entryAt(long offset) {
+        long base = offset - offset % recordsPerSegment;
+        MappedByteBuffer segment = segments.get(base);
+        if (segment == null) {
+            return null;
+        }
+        byte[] bytes = new byte[RECORD_BYTES];
+        segment.get((int) (offset - base) * RECORD_BYTES, bytes);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new JournalEntryDTO(offset,
+                TYPES[buffer.get(4) - 1],
+                orNull(buffer.getLong(8)),
+                orNull(buffer.getLong(16)),
+                orNull(buffer.getLong(24)),
+                Instant.ofEpochMilli(buffer.getLong(32)));
+    }
+
+    private MappedByteBuffer rotate(long base) throws IOException {
+        Map.Entry<Long, MappedByteBuffer> previous = segments.lastEntry();
+        if (previous != null) {
+            previous.getValue().force();
+        }
+        MappedByteBuffer segment = map(base, FileChannel.MapMode.READ_WRITE);
+        segments.put(base, segment);
+        while (segments.size() > retainedSegments) {
+            long oldest = segments.pollFirstEntry().getKey();
+            // Отображение остаётся действительным для читателей, которые уже взяли сегмент
+            Files.deleteIfExists(segmentPath(oldest));
+            log.info("Сегмент журнала {} удалён по лимиту хранения", oldest);
+        }
+        return segment;
+    }
+
+    // Закрытые сегменты отображаются на чтение, конец последнего ищется по первой испорченной или пустой записи
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Long> bases;
+        try (Stream<Path> files = Files.list(directory)) {
+            bases = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Посторонний файл в каталоге журнала " + directory, e);
+        }
+        if (bases.isEmpty()) {
+            return;
+        }
+        // Смещение считается из размера сегмента, поэтому менять segment-bytes можно только с пустым каталогом
+        for (Long base : bases) {
+            if (base % recordsPerSegment != 0 || Files.size(segmentPath(base)) != segmentBytes()) {
+                throw new IllegalStateException("Сегмент журнала " + segmentPath(base)
+                        + " записан с другим registration.journal.segment-bytes");
+            }
+        }
+        for (Long base : bases.subList(0, bases.size() - 1)) {
+            segments.put(base, map(base, FileChannel.MapMode.READ_ONLY));
+        }
+        long lastBase = bases.get(bases.size() - 1);
+        MappedByteBuffer last = map(lastBase, FileChannel.MapMode.READ_WRITE);
+        segments.put(lastBase, last);
+        int count = 0;
+        while (count < recordsPerSegment && valid(last, count)) {
+            count++;
+        }
+        nextOffset = lastBase + count;
+        log.info("Журнал записей открыт: события с {} по {}, сегментов {}", firstOffset(), nextOffset, segments.size());
+    }
+
+    private boolean valid(MappedByteBuffer segment, int index) {
+        byte[] bytes = new byte[RECORD_BYTES];
+        segment.get(index * RECORD_BYTES, bytes);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int type = buffer.get(4);
+        if (type < 1 || type > TYPES.length) {
+            return false;
+        }
+        CRC32 check = new CRC32();
+        check.update(bytes, 4, RECORD_BYTES - 4);
+        return buffer.getInt(0) == (int) check.getValue();
+    }
+
+    private MappedByteBuffer map(long base, FileChannel.MapMode mode) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(segmentPath(base), options)) {
+            return channel.map(mode, 0, segmentBytes());
+        }
+    }
+
+    private long segmentBytes() {
+        return (long) recordsPerSegment * RECORD_BYTES;
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(String.format("%020d%s", base, SUFFIX));
+    }
+
+    private static long orZero(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static Long orNull(long value) {
+        return value == 0 ? null : value;
+    }
+}
@@ -0,0 +1,228 @@
+package system_for_the_university.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.RegistrationBatchItemDTO;
+import system_for_the_university.DTO.response.RegistrationTicketDTO;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/* Асинхронная запись на курс. Заявка проходит дешёвые проверки, встаёт в ограниченную очередь
+и сразу получает квитанцию, а HTTP-запрос не ждёт транзакцию. Один поток разбирает очередь микробатчами:
+всё, что накопилось, пока шла предыдущая транзакция, группируется по курсам, и каждый курс записывается
+одной пакетной транзакцией вместо множества мелких, конфликтующих за строку курса.
+Итог хранится в памяти до истечения срока квитанции, поэтому переживает только этот экземпляр приложения */
+@Slf4j
+@Component
+public class RegistrationPipeline {
+    private final RegistrationService registrationService;
+    private final int maxBatchSize;
+    private final Duration ticketTtl;
+    private final long maxPollWaitMs;
+    private final BlockingQueue<Ticket> queue;
+    private final ConcurrentHashMap<String, Ticket> ticketsById = new ConcurrentHashMap<>();
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    public RegistrationPipeline(RegistrationService registrationService,
+                                MeterRegistry meterRegistry,
+                                @Value("${registration.pipeline.capacity:10000}") int capacity,
+                                @Value("${registration.pipeline.max-batch-size:500}") int maxBatchSize,
+                                @Value("${registration.pipeline.ticket-ttl-minutes:15}") long ticketTtlMinutes,
+                                @Value("${registration.pipeline.max-poll-wait-ms:25000}") long maxPollWaitMs) {
+        this.registrationService = registrationService;
+        this.maxBatchSize = maxBatchSize;
+        this.ticketTtl = Duration.ofMinutes(ticketTtlMinutes);
+        this.maxPollWaitMs = maxPollWaitMs;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.drainer = new Thread(this::drainLoop, "registration-pipeline");
+        this.drainer.setDaemon(true);
+        Gauge.builder("registration.pipeline.queued", queue, BlockingQueue::size)
+                .description("Заявки асинхронной записи, ожидающие транзакции")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        drainer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        drainer.interrupt();
+        List<Ticket> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(ticket -> ticket.fail("Сервис останавливается, повторите заявку"));
+    }
+
+    public RegistrationTicketDTO submit(RegistrationRequestDTO request) {
+        if (request.getStudentId() == null || request.getCourseId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не указан студент или курс");
+        }
+        // Закрытый или заполненный курс отклоняется сразу, такая заявка в очередь не попадает
+        registrationService.rejectEarly(request);
+
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), request);
+        ticketsById.put(ticket.id, ticket);
+        if (!queue.offer(ticket)) {
+            ticketsById.remove(ticket.id);
+            log.info("Очередь асинхронной записи заполнена");
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Слишком много заявок, попробуйте позже");
+        }
+        return ticket.snapshot();
+    }
+
+    /* Состояние квитанции. С waitMs > 0 ответ приходит, как только заявка обработана, или по истечении
+    ожидания со статусом PENDING. Поток запроса при этом не занят: контроллер возвращает CompletableFuture */
+    public CompletableFuture<RegistrationTicketDTO> awaitTicket(String ticketId, long waitMs) {
+        Ticket ticket = ticketsById.get(ticketId);
+        if (ticket == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Квитанция не найдена или устарела");
+        }
+        if (waitMs <= 0 || ticket.result.isDone()) {
+            return CompletableFuture.completedFuture(ticket.snapshot());
+        }
+        return ticket.result.copy()
+                .completeOnTimeout(ticket.pending(), Math.min(waitMs, maxPollWaitMs), TimeUnit.MILLISECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${registration.pipeline.cleanup-interval-ms:60000}")
+    public void removeExpired() {
+        Instant expiredBefore = Instant.now().minus(ticketTtl);
+        ticketsById.values().removeIf(ticket -> ticket.completedAt != null && ticket.completedAt.isBefore(expiredBefore));
+    }
+
+    public int queued() {
+        return queue.size();
+    }
+
+    // Пока идёт транзакция одного батча, следующие заявки копятся в очереди и образуют следующий батч
+    private void drainLoop() {
+        List<Ticket> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Ticket first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка в очереди асинхронной записи", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<Ticket> batch) {
+        Map<Long, List<Ticket>> ticketsByCourse = new LinkedHashMap<>();
+        for (Ticket ticket : batch) {
+            ticketsByCourse.computeIfAbsent(ticket.request.getCourseId(), courseId -> new ArrayList<>()).add(ticket);
+        }
+        ticketsByCourse.forEach((courseId, tickets) -> {
+            try {
+                register(tickets);
+                log.info("Асинхронная запись на курс {}: обработано заявок {}", courseId, tickets.size());
+            } catch (RuntimeException e) {
+                if (tickets.size() == 1) {
+                    fail(tickets.get(0), e);
+                    return;
+                }
+                /* Транзакцию батча уронила одна заявка, например дубль от параллельной записи на уникальном ключе.
+                Остальные заявки ни при чём, поэтому записываю их заново по одной, каждую своей транзакцией:
+                ошибку получит только виновная заявка */
+                log.warn("Батч заявок на курс {} откатился, записываю заявки по одной: {}", courseId, e.getMessage());
+                for (Ticket ticket : tickets) {
+                    try {
+                        register(List.of(ticket));
+                    } catch (RuntimeException single) {
+                        fail(ticket, single);
+                    }
+                }
+            }
+        });
+    }
+
+    private void register(List<Ticket> tickets) {
+        List<RegistrationBatchItemDTO> results = registrationService.registerBatch(
+                tickets.stream().map(ticket -> ticket.request).toList());
+        for (int i = 0; i < tickets.size(); i++) {
+            tickets.get(i).complete(results.get(i));
+        }
+    }
+
+    // 409 из пакетной записи - дубль, пойманный уникальным ключом. Остальные ошибки отмечают заявку как FAILED
+    private void fail(Ticket ticket, RuntimeException e) {
+        if (e instanceof ResponseStatusException status && status.getStatusCode() == HttpStatus.CONFLICT) {
+            ticket.finish(RegistrationTicketDTO.Status.DUPLICATE, status.getReason());
+            return;
+        }
+        log.error("Не удалось записать заявку {} на курс {}", ticket.id, ticket.request.getCourseId(), e);
+        ticket.finish(RegistrationTicketDTO.Status.FAILED, "Не удалось выполнить запись, повторите заявку");
+    }
+
+    private static final class Ticket {
+        private final String id;
+        private final RegistrationRequestDTO request;
+        private final CompletableFuture<RegistrationTicketDTO> result = new CompletableFuture<>();
+        private volatile Instant completedAt;
+
+        private Ticket(String id, RegistrationRequestDTO request) {
+            this.id = id;
+            this.request = request;
+        }
+
+        private RegistrationTicketDTO pending() {
+            return new RegistrationTicketDTO(id, RegistrationTicketDTO.Status.PENDING, null, null);
+        }
+
+        private RegistrationTicketDTO snapshot() {
+            return result.getNow(pending());
+        }
+
+        private void complete(RegistrationBatchItemDTO item) {
+            finish(new RegistrationTicketDTO(id, RegistrationTicketDTO.Status.valueOf(item.getStatus().name()),
+                    item.getRegistration(), item.getMessage()));
+        }
+
+        private void fail(String message) {
+            finish(RegistrationTicketDTO.Status.FAILED, message);
+        }
+
+        private void finish(RegistrationTicketDTO.Status status, String message) {
+            finish(new RegistrationTicketDTO(id, status, null, message));
+        }
+
+        private void finish(RegistrationTicketDTO outcome) {
+            completedAt = Instant.now();
+            result.complete(outcome);
+        }
+    }
+}
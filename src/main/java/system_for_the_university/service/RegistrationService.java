@@ -1,96 +1,425 @@
 package system_for_the_university.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.OptimisticLockingFailureException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.KeysetPageDTO;
+import system_for_the_university.DTO.response.RegistrationBatchItemDTO;
 import system_for_the_university.DTO.response.RegistrationResponseDTO;
 import system_for_the_university.entity.Course;
+import system_for_the_university.entity.CourseSeatSlot;
 import system_for_the_university.entity.Registration;
 import system_for_the_university.entity.Student;
+import system_for_the_university.event.RegistrationCancelledEvent;
+import system_for_the_university.event.RegistrationCreatedEvent;
+import system_for_the_university.metrics.RegistrationMetrics;
 import system_for_the_university.repository.CourseRepository;
 import system_for_the_university.repository.RegistrationRepository;
 import system_for_the_university.repository.StudentRepository;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 public class RegistrationService {
+    private static final int MAX_BATCH_SIZE = 1000;
+
     private final RegistrationRepository registrationRepository;
     private final StudentRepository studentRepository;
     private final CourseRepository courseRepository;
+    private final SeatLedger seatLedger;
+    private final CourseSeatService courseSeatService;
+    private final NdjsonWriter ndjsonWriter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RegistrationMetrics registrationMetrics;
+    private final IdempotencyStore idempotencyStore;
+    private final WaitlistService waitlistService;
+    private final CourseWindowIndex courseWindowIndex;
+    private final StudentScheduleIndex studentScheduleIndex;
 
     public RegistrationService(RegistrationRepository registrationRepository,
                                StudentRepository studentRepository,
-                               CourseRepository courseRepository) {
+                               CourseRepository courseRepository,
+                               SeatLedger seatLedger,
+                               CourseSeatService courseSeatService,
+                               NdjsonWriter ndjsonWriter,
+                               ApplicationEventPublisher eventPublisher,
+                               RegistrationMetrics registrationMetrics,
+                               IdempotencyStore idempotencyStore,
+                               WaitlistService waitlistService,
+                               CourseWindowIndex courseWindowIndex,
+                               StudentScheduleIndex studentScheduleIndex) {
         this.registrationRepository = registrationRepository;
         this.studentRepository = studentRepository;
         this.courseRepository = courseRepository;
+        this.seatLedger = seatLedger;
+        this.courseSeatService = courseSeatService;
+        this.ndjsonWriter = ndjsonWriter;
+        this.eventPublisher = eventPublisher;
+        this.registrationMetrics = registrationMetrics;
+        this.idempotencyStore = idempotencyStore;
+        this.waitlistService = waitlistService;
+        this.courseWindowIndex = courseWindowIndex;
+        this.studentScheduleIndex = studentScheduleIndex;
+    }
+
+    /* Отказы, которым не нужна БД: окно записи закрыто по индексу или мест нет по учёту в памяти.
+    Вызывается до очереди допуска и транзакции, поэтому такая заявка не занимает место в очереди
+    и не берёт соединение из пула. С виртуальными потоками таких заявок в пике могут быть тысячи.
+    Несуществующий курс тоже отклоняется здесь: в БД за ним идёт только первое обращение к учёту мест */
+    public void rejectEarly(RegistrationRequestDTO request) {
+        checkWindow(request.getCourseId());
+        if (seatLedger.isSoldOut(request.getCourseId())) {
+            registrationMetrics.record(RegistrationMetrics.Outcome.FULL);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Нет свободных мест для записи");
+        }
+        if (request.getCourseId() != null && !seatLedger.isTracked(request.getCourseId())) {
+            throw notFound("Курс не найден");
+        }
     }
 
     @Transactional
     public RegistrationResponseDTO registerStudentToCourse(RegistrationRequestDTO request) {
         log.info("Запись студента {} на курс {}", request.getStudentId(), request.getCourseId());
+        checkWindow(request.getCourseId());
 
-        Student student = studentRepository.findById(request.getStudentId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент не найден"));
+        if (!seatLedger.isTracked(request.getCourseId())) {
+            registrationMetrics.record(RegistrationMetrics.Outcome.NOT_FOUND);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Курс не найден");
+        }
 
-        Course course = courseRepository.findById(request.getCourseId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Курс не найден"));
+        /* Сначала забираю место в учёте в памяти. Если мест нет, запрос отклоняется
+        без обращения к БД, и в транзакции остаются только те, кто действительно получил место */
+        Optional<SeatLedger.Reservation> reserved = seatLedger.tryReserve(request.getCourseId());
+        if (reserved.isEmpty()) {
+            registrationMetrics.record(RegistrationMetrics.Outcome.FULL);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Нет свободных мест для записи");
+        }
+        SeatLedger.Reservation reservation = reserved.get();
 
+        try {
+            Student student = studentRepository.findById(request.getStudentId())
+                    .orElseThrow(() -> notFound("Студент не найден"));
 
-        if (registrationRepository.existsByStudentIdAndCourseId(request.getCourseId(), request.getStudentId())) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Студент уже записан на курс");
+            Course course = courseRepository.findById(request.getCourseId())
+                    .orElseThrow(() -> notFound("Курс не найден"));
+
+            if (registrationRepository.existsByStudentIdAndCourseId(request.getStudentId(), request.getCourseId())) {
+                registrationMetrics.record(RegistrationMetrics.Outcome.DUPLICATE);
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Студент уже записан на курс");
+            }
+
+            /* Преобразую время регистрации к московскому, чтобы проверить,
+            что не смотря на разницу в часовых поясах студет ориентировался на московское время */
+            LocalDateTime nowInMoscow = LocalDateTime.now(ZoneId.of("Europe/Moscow"));
+
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
+            log.info("Попытка регистрации на курс по московскому времени {}", nowInMoscow.format(formatter));
+            if (!CourseWindowIndex.isOpen(course.getStartTime(), course.getEndTime(), nowInMoscow)) {
+                throw registrationClosed(course.getStartTime(), course.getEndTime());
+            }
+
+            // Если политика включена, время курса не должно пересекаться с другими курсами студента
+            Optional<Long> overlapping = studentScheduleIndex.holdOrConflict(student.getId(), course);
+            if (overlapping.isPresent()) {
+                registrationMetrics.record(RegistrationMetrics.Outcome.SCHEDULE_CONFLICT);
+                throw new ResponseStatusException(HttpStatus.CONFLICT, scheduleConflict(overlapping.get()));
+            }
+
+            /* Место в БД занимается в одном из слотов курса, строку самого курса запись не блокирует.
+            Если учёт в памяти разошёлся с БД (например, запись шла через другой экземпляр приложения),
+            отказываем здесь */
+            if (!courseSeatService.claim(course)) {
+                registrationMetrics.record(RegistrationMetrics.Outcome.CONFLICT);
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Нет свободных мест для записи");
+            }
+
+            Registration registration = new Registration(student, course, LocalDateTime.now());
+            Registration savedRegistration = registrationRepository.save(registration);
+            // Параллельная заявка того же студента могла пройти проверку выше: дубль отсекает уникальный ключ
+            flushOrDuplicate();
+            reservation.confirmOnCommit();
+            eventPublisher.publishEvent(new RegistrationCreatedEvent(savedRegistration.getId(),
+                    student.getId(), course.getId(), savedRegistration.getRegistrationTime()));
+            return mapToDto(savedRegistration);
+        } catch (RuntimeException e) {
+            reservation.release();
+            throw e;
         }
+    }
 
-        if (courseRepository.countRegistrationsById(request.getCourseId()) >= course.getCapacity()) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Нет свободных мест для записи");
+    /* Запись с ключом идемпотентности. Повтор, пришедший пока исходный запрос ещё стоял в очереди допуска,
+    находит сохранённый ответ здесь. Ключ занимается до записи, а ответ сохраняется в той же транзакции */
+    @Transactional
+    public RegistrationResponseDTO registerStudentToCourse(RegistrationRequestDTO request, String idempotencyKey) {
+        Optional<RegistrationResponseDTO> previous = idempotencyStore.find(idempotencyKey, request)
+                .or(() -> idempotencyStore.claim(idempotencyKey, request));
+        if (previous.isPresent()) {
+            log.info("Повтор заявки по ключу идемпотентности {}", idempotencyKey);
+            return previous.get();
         }
+        RegistrationResponseDTO response = registerStudentToCourse(request);
+        idempotencyStore.save(idempotencyKey, request, response);
+        return response;
+    }
 
-        /* Преобразую время регистрации к московскому, чтобы проверить,
-        что не смотря на разницу в часовых поясах студет ориентировался на московское время */
-        LocalDateTime nowInMoscow = LocalDateTime.now(ZoneId.of("Europe/Moscow"));
+    /* Пакетная запись для кураторов. Студенты и курсы загружаются одним запросом на всю пачку,
+    дубли и места проверяются в памяти, а записи вставляются JDBC-батчами Hibernate: id выдаются пулом
+    из последовательности, поэтому persist не ходит в БД за каждым id. Ошибка по одной заявке
+    не откатывает остальные, а возвращается в её результате */
+    @Transactional
+    public List<RegistrationBatchItemDTO> registerBatch(List<RegistrationRequestDTO> requests) {
+        log.info("Пакетная запись, заявок: {}", requests.size());
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "В пакете не может быть больше " + MAX_BATCH_SIZE + " заявок");
+        }
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+        Set<Long> studentIds = requests.stream().map(RegistrationRequestDTO::getStudentId)
+                .filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<Long> courseIds = requests.stream().map(RegistrationRequestDTO::getCourseId)
+                .filter(Objects::nonNull).collect(Collectors.toSet());
 
-        log.info("Попытка регистрации на курс по московскому времени {}", nowInMoscow.format(formatter));
-        if (nowInMoscow.isBefore(course.getStartTime()) || nowInMoscow.isAfter(course.getEndTime())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    "Запись возможна только с " + course.getStartTime().format(formatter)
-                            + " до " + course.getEndTime().format(formatter) + "(Московское время)");
+        Map<Long, Student> students = studentRepository.findAllById(studentIds).stream()
+                .collect(Collectors.toMap(Student::getId, Function.identity()));
+        /* Все слоты мест курсов блокируются до конца транзакции, поэтому свободные места не изменятся под нами.
+        Строки самих курсов не блокирую: вставка записи берёт на курс FOR KEY SHARE по внешнему ключу,
+        уже держа слот, и блокировка курса перед слотами дала бы обратный порядок. Слоты берутся по порядку id курсов */
+        Map<Long, Course> courses = courseRepository.findAllById(courseIds).stream()
+                .sorted(Comparator.comparing(Course::getId))
+                .collect(Collectors.toMap(Course::getId, Function.identity(), (a, b) -> a, LinkedHashMap::new));
+        Map<Long, List<CourseSeatSlot>> seatSlots = new HashMap<>();
+        courses.keySet().forEach(courseId -> seatSlots.put(courseId, courseSeatService.lockSlots(courseId)));
+        Set<List<Long>> registered = new HashSet<>();
+        for (Object[] pair : registrationRepository.findStudentCoursePairs(studentIds, courseIds)) {
+            registered.add(List.of((Long) pair[0], (Long) pair[1]));
         }
 
-        /*Обернул логику регистрации в try/catch тобы обработать ошибку позитивной блокировки*/
+        LocalDateTime nowInMoscow = LocalDateTime.now(ZoneId.of("Europe/Moscow"));
+        LocalDateTime registrationTime = LocalDateTime.now();
+        Map<Long, Integer> addedSeats = new HashMap<>();
+        List<SeatLedger.Reservation> reservations = new ArrayList<>();
+        List<Registration> created = new ArrayList<>();
+        List<RegistrationBatchItemDTO> createdItems = new ArrayList<>();
+        List<RegistrationBatchItemDTO> results = new ArrayList<>(requests.size());
+
         try {
-            Registration registration = new Registration(student, course, LocalDateTime.now());
-            Registration savedRegistration = registrationRepository.save(registration);
-            return mapToDto(savedRegistration);
-        } catch (OptimisticLockingFailureException e) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT,
-                    "Курс был изменён другим пользователем. Попробуйте ещё раз.");
+            for (RegistrationRequestDTO request : requests) {
+                Long studentId = request.getStudentId();
+                Long courseId = request.getCourseId();
+                Course course = courses.get(courseId);
+                List<Long> pair = Arrays.asList(studentId, courseId);
+
+                if (!students.containsKey(studentId)) {
+                    results.add(batchItem(request, RegistrationBatchItemDTO.Status.NOT_FOUND, "Студент не найден"));
+                } else if (course == null) {
+                    results.add(batchItem(request, RegistrationBatchItemDTO.Status.NOT_FOUND, "Курс не найден"));
+                } else if (registered.contains(pair)) {
+                    results.add(batchItem(request, RegistrationBatchItemDTO.Status.DUPLICATE, "Студент уже записан на курс"));
+                } else if (!CourseWindowIndex.isOpen(course.getStartTime(), course.getEndTime(), nowInMoscow)) {
+                    results.add(batchItem(request, RegistrationBatchItemDTO.Status.CLOSED, "Запись на курс закрыта"));
+                } else {
+                    int added = addedSeats.getOrDefault(courseId, 0);
+                    Optional<SeatLedger.Reservation> reservation = added < CourseSeatService.free(seatSlots.get(courseId))
+                            ? seatLedger.tryReserve(courseId)
+                            : Optional.empty();
+                    // Интервал занимается сразу, поэтому пересекающиеся курсы одного студента в пачке тоже ловятся
+                    Optional<Long> overlapping = reservation.isEmpty()
+                            ? Optional.empty()
+                            : studentScheduleIndex.holdOrConflict(studentId, course);
+                    if (reservation.isEmpty()) {
+                        results.add(batchItem(request, RegistrationBatchItemDTO.Status.FULL, "Нет свободных мест для записи"));
+                    } else if (overlapping.isPresent()) {
+                        reservation.get().release();
+                        results.add(batchItem(request, RegistrationBatchItemDTO.Status.SCHEDULE_CONFLICT,
+                                scheduleConflict(overlapping.get())));
+                    } else {
+                        reservations.add(reservation.get());
+                        registered.add(pair);
+                        addedSeats.put(courseId, added + 1);
+                        created.add(new Registration(students.get(studentId), course, registrationTime));
+                        RegistrationBatchItemDTO item = batchItem(request, RegistrationBatchItemDTO.Status.CREATED, null);
+                        createdItems.add(item);
+                        results.add(item);
+                    }
+                }
+            }
+
+            if (!created.isEmpty()) {
+                registrationRepository.saveAll(created);
+                flushOrDuplicate();
+            }
+            // id из пула последовательности уже назначены при persist, до отправки батча в БД
+            for (int i = 0; i < created.size(); i++) {
+                createdItems.get(i).setRegistration(mapToDto(created.get(i)));
+            }
+            addedSeats.forEach((courseId, added) -> courseSeatService.occupy(seatSlots.get(courseId), added));
+        } catch (RuntimeException e) {
+            reservations.forEach(SeatLedger.Reservation::release);
+            throw e;
+        }
+        reservations.forEach(SeatLedger.Reservation::confirmOnCommit);
+        for (Registration registration : created) {
+            eventPublisher.publishEvent(new RegistrationCreatedEvent(registration.getId(),
+                    registration.getStudent().getId(), registration.getCourse().getId(), registrationTime));
         }
+
+        log.info("Пакетная запись завершена, создано записей: {}", created.size());
+        return results;
     }
 
+    @Transactional
     public void cancelRegistration(Long registrationId) {
         log.info("Отмена записи: {}", registrationId);
-        if (!registrationRepository.existsById(registrationId)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Запись не найдена");
-        }
-        registrationRepository.deleteById(registrationId);
+        Registration registration = registrationRepository.findById(registrationId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Запись не найдена"));
+        Long courseId = registration.getCourse().getId();
+        /* Слоты курса блокирую, как и при вставании в лист ожидания: либо новая заявка в очереди
+        будет видна промоушену ниже, либо лист ожидания увидит освободившееся место */
+        courseSeatService.lockSlots(courseId);
+        registrationRepository.delete(registration);
+        courseSeatService.release(registration.getCourse());
+        // Освободившееся место сразу достаётся первому из листа ожидания, если он есть
+        waitlistService.promoteNext(registration.getCourse());
+        seatLedger.reconcileAfterCommit(courseId);
+        eventPublisher.publishEvent(new RegistrationCancelledEvent(registrationId,
+                registration.getStudent().getId(), courseId));
     }
 
+    // Сразу DTO одним запросом: mapToDto по сущностям давал два лишних select на каждую запись
+    @Transactional(readOnly = true)
     public List<RegistrationResponseDTO> getAllRegistrations() {
         log.info("Список всех записей");
-        return registrationRepository.findAll().stream()
-                .map(this::mapToDto)
-                .toList();
+        return registrationRepository.findAllResponses();
+    }
+
+    // Курс, запись на который ещё не открылась, отклоняю по индексу окон, не трогая учёт мест и БД
+    private void checkWindow(Long courseId) {
+        Optional<CourseWindowIndex.Window> window = courseWindowIndex.window(courseId);
+        if (window.isPresent() && !window.get().isOpenAt(LocalDateTime.now(ZoneId.of("Europe/Moscow")))) {
+            throw registrationClosed(window.get().start(), window.get().end());
+        }
+    }
+
+    /* Отправляет вставки в БД сейчас, а не при коммите, чтобы нарушение уникальности пары студент-курс
+    пришло из сервиса как 409, а не как ошибка коммита. Транзакция после него всё равно откатывается */
+    private void flushOrDuplicate() {
+        try {
+            registrationRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if (!isDuplicateRegistration(e)) {
+                throw e;
+            }
+            registrationMetrics.record(RegistrationMetrics.Outcome.DUPLICATE);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Студент уже записан на курс");
+        }
+    }
+
+    static boolean isDuplicateRegistration(DataIntegrityViolationException e) {
+        return e.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase().contains(Registration.UNIQUE_STUDENT_COURSE);
+    }
+
+    static String scheduleConflict(Long courseId) {
+        return "Время курса пересекается с курсом " + courseId + " в расписании студента";
+    }
+
+    private ResponseStatusException registrationClosed(LocalDateTime startTime, LocalDateTime endTime) {
+        registrationMetrics.record(RegistrationMetrics.Outcome.OUTSIDE_WINDOW);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Запись возможна только с " + startTime.format(formatter)
+                        + " до " + endTime.format(formatter) + "(Московское время)");
+    }
+
+    private ResponseStatusException notFound(String message) {
+        registrationMetrics.record(RegistrationMetrics.Outcome.NOT_FOUND);
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, message);
+    }
+
+    // Успешные записи пакета считаются по событию после коммита, остальные исходы здесь
+    private RegistrationBatchItemDTO batchItem(RegistrationRequestDTO request,
+                                               RegistrationBatchItemDTO.Status status, String message) {
+        switch (status) {
+            case DUPLICATE -> registrationMetrics.record(RegistrationMetrics.Outcome.DUPLICATE);
+            case FULL -> registrationMetrics.record(RegistrationMetrics.Outcome.FULL);
+            case CLOSED -> registrationMetrics.record(RegistrationMetrics.Outcome.OUTSIDE_WINDOW);
+            case NOT_FOUND -> registrationMetrics.record(RegistrationMetrics.Outcome.NOT_FOUND);
+            default -> {
+            }
+        }
+        return new RegistrationBatchItemDTO(request.getStudentId(), request.getCourseId(), status, message, null);
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPageDTO<RegistrationResponseDTO> getRegistrationPage(Long afterId, int limit) {
+        log.info("Страница записей после ID: {}", afterId);
+        List<RegistrationResponseDTO> registrations =
+                registrationRepository.findPageAfter(afterId, KeysetPaging.limit(limit));
+        return KeysetPaging.page(registrations, limit, RegistrationResponseDTO::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPageDTO<RegistrationResponseDTO> getCourseRegistrationPage(Long courseId, Long afterId, int limit) {
+        log.info("Страница записей курса {} после ID: {}", courseId, afterId);
+        List<RegistrationResponseDTO> registrations =
+                registrationRepository.findCoursePageAfter(courseId, afterId, KeysetPaging.limit(limit));
+        return KeysetPaging.page(registrations, limit, RegistrationResponseDTO::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPageDTO<RegistrationResponseDTO> getStudentRegistrationPage(Long studentId, Long afterId, int limit) {
+        log.info("Страница записей студента {} после ID: {}", studentId, afterId);
+        List<RegistrationResponseDTO> registrations =
+                registrationRepository.findStudentPageAfter(studentId, afterId, KeysetPaging.limit(limit));
+        return KeysetPaging.page(registrations, limit, RegistrationResponseDTO::getId);
+    }
+
+    // Период полуоткрытый: from включительно, to не включительно
+    @Transactional(readOnly = true)
+    public KeysetPageDTO<RegistrationResponseDTO> getPeriodRegistrationPage(LocalDateTime from, LocalDateTime to,
+                                                                            Long afterId, int limit) {
+        log.info("Страница записей с {} по {} после ID: {}", from, to, afterId);
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Начало периода должно быть раньше конца");
+        }
+        List<RegistrationResponseDTO> registrations =
+                registrationRepository.findPeriodPageAfter(from, to, afterId, KeysetPaging.limit(limit));
+        return KeysetPaging.page(registrations, limit, RegistrationResponseDTO::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllRegistrations(OutputStream out) throws IOException {
+        log.info("Потоковая выгрузка всех записей");
+        try (Stream<RegistrationResponseDTO> registrations = registrationRepository.streamAll()) {
+            ndjsonWriter.write(registrations, out);
+        }
     }
 
     public RegistrationResponseDTO mapToDto(Registration registration) {
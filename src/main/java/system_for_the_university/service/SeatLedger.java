@@ -0,0 +1,253 @@
+package system_for_the_university.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import system_for_the_university.config.DataSourceRouting;
+import system_for_the_university.entity.Course;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.repository.CourseRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Учёт свободных мест в памяти. Запросы сначала забирают место здесь атомарным CAS без блокировок,
+и только выигравшие место идут в БД. Остальные получают отказ, не создавая транзакций на строке курса.
+Счётчики читаются только с основной БД, реплика может отставать на несколько записей */
+@Slf4j
+@Component
+public class SeatLedger {
+    // Сколько раз пробуем сверить счётчик с БД, если в это время его меняют параллельные запросы
+    private static final int RECONCILE_ATTEMPTS = 5;
+
+    private final CourseRepository courseRepository;
+    private final CourseSeatService courseSeatService;
+
+    private final ConcurrentHashMap<Long, Seats> seatsByCourse = new ConcurrentHashMap<>();
+    // Курсы, которые сейчас читаются из БД при первом обращении
+    private final ConcurrentHashMap<Long, CompletableFuture<Seats>> loading = new ConcurrentHashMap<>();
+
+    public SeatLedger(CourseRepository courseRepository, CourseSeatService courseSeatService) {
+        this.courseRepository = courseRepository;
+        this.courseSeatService = courseSeatService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileAll() {
+        log.info("Сверка счётчиков свободных мест с таблицей записей");
+        courseSeatService.syncAll();
+
+        List<Course> courses = DataSourceRouting.onPrimary(courseRepository::findAll);
+        for (Course course : courses) {
+            seatsByCourse.computeIfAbsent(course.getId(), id -> new Seats(course.getCapacity()))
+                    .remaining.set(Math.max(0, course.getCapacity() - course.getOccupiedSeats()));
+        }
+        seatsByCourse.keySet().removeIf(courseId -> courses.stream().noneMatch(c -> c.getId().equals(courseId)));
+        log.info("Счётчики мест загружены для {} курсов", seatsByCourse.size());
+    }
+
+    // Загружает курс в учёт при первом обращении. Возвращает false, если такого курса нет
+    public boolean isTracked(Long courseId) {
+        return seats(courseId) != null;
+    }
+
+    public Optional<Reservation> tryReserve(Long courseId) {
+        Seats seats = seats(courseId);
+        if (seats == null) {
+            return Optional.empty();
+        }
+        // Сначала помечаю место как занятое "в полёте", чтобы сверка с БД его не потеряла
+        seats.inFlight.incrementAndGet();
+        int remaining;
+        do {
+            remaining = seats.remaining.get();
+            if (remaining <= 0) {
+                seats.inFlight.decrementAndGet();
+                return Optional.empty();
+            }
+        } while (!seats.remaining.compareAndSet(remaining, remaining - 1));
+        return Optional.of(new Reservation(courseId, seats));
+    }
+
+    // Курс уже в учёте и мест на нём нет. Курс, который ещё не загружался, заполненным не считается
+    public boolean isSoldOut(Long courseId) {
+        Seats seats = seatsByCourse.get(courseId);
+        return seats != null && seats.remaining.get() <= 0;
+    }
+
+    public int remainingSeats(Long courseId) {
+        Seats seats = seatsByCourse.get(courseId);
+        return seats == null ? 0 : Math.max(0, seats.remaining.get());
+    }
+
+    public void forget(Long courseId) {
+        seatsByCourse.remove(courseId);
+    }
+
+    // Только после коммита удаления: при откате курс остаётся в учёте со своими счётчиками
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCourseDeleted(CourseDeletedEvent event) {
+        forget(event.getCourseId());
+    }
+
+    // После отмены записи пересчитываю места по БД, но только когда транзакция зафиксирована
+    public void reconcileAfterCommit(Long courseId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reconcile(courseId);
+                }
+            });
+        } else {
+            reconcile(courseId);
+        }
+    }
+
+    public void reconcile(Long courseId) {
+        Seats seats = seatsByCourse.get(courseId);
+        if (seats == null) {
+            return;
+        }
+        /* Сначала читаю зафиксированные места из БД, потом брони "в полёте". Бронь, подтверждённая между
+        этими чтениями, могла попасть в БД уже после запроса и при этом уйти из inFlight, поэтому такую попытку
+        по счётчику подтверждений повторяю. Иначе она была бы посчитана дважды или не посчитана вовсе */
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+            int snapshot = seats.remaining.get();
+            long confirmed = seats.confirmed.get();
+            Optional<Integer> occupied = DataSourceRouting.onPrimary(
+                    () -> courseRepository.findOccupiedSeatsById(courseId));
+            if (occupied.isEmpty()) {
+                forget(courseId);
+                return;
+            }
+            int inFlight = seats.inFlight.get();
+            if (seats.confirmed.get() != confirmed) {
+                continue;
+            }
+            int actual = Math.max(0, seats.capacity - occupied.get() - inFlight);
+            // Если за время запроса место кто-то забрал или вернул, пересчитываю заново
+            if (seats.remaining.compareAndSet(snapshot, actual)) {
+                return;
+            }
+        }
+        log.info("Не удалось сверить счётчик мест курса {}: идёт активная запись", courseId);
+    }
+
+    /* Курс загружается вне computeIfAbsent: функция computeIfAbsent выполняется под монитором корзины
+    ConcurrentHashMap, и запрос в БД внутри неё блокировал бы соседние курсы и закреплял виртуальный поток
+    за потоком-носителем. Чтобы параллельные первые обращения не читали курс из БД каждый сам, загружает
+    только поток, положивший в loading свой CompletableFuture, остальные ждут его результат */
+    private Seats seats(Long courseId) {
+        Seats seats = seatsByCourse.get(courseId);
+        if (seats != null) {
+            return seats;
+        }
+        CompletableFuture<Seats> mine = new CompletableFuture<>();
+        CompletableFuture<Seats> pending = loading.putIfAbsent(courseId, mine);
+        if (pending != null) {
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            Seats loaded = load(courseId);
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(courseId, mine);
+        }
+    }
+
+    private Seats load(Long courseId) {
+        // Пока ставили CompletableFuture, курс мог загрузить предыдущий загружавший поток
+        Seats seats = seatsByCourse.get(courseId);
+        if (seats != null) {
+            return seats;
+        }
+        Optional<Course> course = DataSourceRouting.onPrimary(() -> courseRepository.findById(courseId));
+        if (course.isEmpty()) {
+            return null;
+        }
+        Seats loaded = new Seats(course.get().getCapacity());
+        loaded.remaining.set(Math.max(0, course.get().getCapacity() - course.get().getOccupiedSeats()));
+        Seats existing = seatsByCourse.putIfAbsent(courseId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private static final class Seats {
+        private final int capacity;
+        private final AtomicInteger remaining = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // Сколько броней подтверждено после коммита, для сверки с БД
+        private final AtomicLong confirmed = new AtomicLong();
+
+        private Seats(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    /* Место, забранное в памяти, но ещё не записанное в БД. Либо подтверждается после коммита,
+    либо возвращается в учёт при ошибке или откате транзакции */
+    public static final class Reservation {
+        private final Long courseId;
+        private final Seats seats;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Reservation(Long courseId, Seats seats) {
+            this.courseId = courseId;
+            this.seats = seats;
+        }
+
+        public Long getCourseId() {
+            return courseId;
+        }
+
+        public void confirmOnCommit() {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                confirm();
+                return;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        confirm();
+                    } else {
+                        release();
+                    }
+                }
+            });
+        }
+
+        public void release() {
+            if (settled.compareAndSet(false, true)) {
+                seats.inFlight.decrementAndGet();
+                seats.remaining.incrementAndGet();
+            }
+        }
+
+        // Счётчик подтверждений растёт раньше, чем бронь уходит из inFlight: на этом держится сверка
+        private void confirm() {
+            if (settled.compareAndSet(false, true)) {
+                seats.confirmed.incrementAndGet();
+                seats.inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package system_for_the_university.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import system_for_the_university.config.DataSourceRouting;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.event.RegistrationCancelledEvent;
+import system_for_the_university.event.RegistrationCreatedEvent;
+import system_for_the_university.event.StudentDeletedEvent;
+import system_for_the_university.repository.RegistrationRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/* Индекс расписаний студентов в памяти: для каждого студента отсортированный массив long с id курсов.
+Расписание отдаётся без загрузки Student.registrations и курсов за ними, а массив занимает 8 байт на запись.
+Массивы не изменяются: запись и отмена заменяют массив студента новым, поэтому чтение идёт без блокировок.
+Индекс обновляется по событиям после коммита, а полная перезагрузка подхватывает записи других экземпляров.
+Изменения, пришедшие во время перезагрузки, повторяются на новом индексе, чтобы не потеряться */
+@Slf4j
+@Component
+public class StudentCourseIndex {
+    private static final long[] EMPTY = new long[0];
+
+    private final RegistrationRepository registrationRepository;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile ConcurrentHashMap<Long, long[]> coursesByStudent = new ConcurrentHashMap<>();
+    // Изменения за время перезагрузки, null вне перезагрузки. Защищено lock
+    private List<Consumer<Map<Long, long[]>>> replay;
+    private volatile boolean loaded;
+
+    public StudentCourseIndex(RegistrationRepository registrationRepository) {
+        this.registrationRepository = registrationRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${student.course-index.reload-interval-ms:600000}",
+            fixedDelayString = "${student.course-index.reload-interval-ms:600000}")
+    @Transactional(readOnly = true)
+    public void reload() {
+        lock.lock();
+        try {
+            replay = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+
+        ConcurrentHashMap<Long, long[]> reloaded = new ConcurrentHashMap<>();
+        try {
+            DataSourceRouting.onPrimary(() -> {
+                try (Stream<Object[]> pairs = registrationRepository.streamStudentCoursePairs()) {
+                    collect(pairs, reloaded);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                replay = null;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            replay.forEach(change -> change.accept(reloaded));
+            replay = null;
+            coursesByStudent = reloaded;
+            loaded = true;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Индекс расписаний загружен, студентов с записями: {}", reloaded.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationCreated(RegistrationCreatedEvent event) {
+        apply(index -> index.compute(event.getStudentId(), (id, courses) -> with(courses, event.getCourseId())));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationCancelled(RegistrationCancelledEvent event) {
+        apply(index -> index.computeIfPresent(event.getStudentId(), (id, courses) -> without(courses, event.getCourseId())));
+    }
+
+    // Записи удалённого курса удаляются каскадом, поэтому курс убирается из расписаний всех студентов
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCourseDeleted(CourseDeletedEvent event) {
+        apply(index -> index.keySet().forEach(studentId ->
+                index.computeIfPresent(studentId, (id, courses) -> without(courses, event.getCourseId()))));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentDeleted(StudentDeletedEvent event) {
+        apply(index -> index.remove(event.getStudentId()));
+    }
+
+    // id курсов студента по возрастанию. Пока индекс не загружен, читаю их из БД
+    public List<Long> courseIds(Long studentId) {
+        if (!loaded) {
+            return registrationRepository.findCourseIdsByStudentId(studentId);
+        }
+        return boxed(coursesByStudent.getOrDefault(studentId, EMPTY));
+    }
+
+    public Map<Long, List<Long>> courseIds(Collection<Long> studentIds) {
+        Map<Long, List<Long>> result = new HashMap<>();
+        for (Long studentId : studentIds) {
+            result.put(studentId, courseIds(studentId));
+        }
+        return result;
+    }
+
+    private void apply(Consumer<Map<Long, long[]>> change) {
+        lock.lock();
+        try {
+            change.accept(coursesByStudent);
+            if (replay != null) {
+                replay.add(change);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Пары приходят по порядку студентов и курсов, поэтому массив каждого студента сразу отсортирован
+    private static void collect(Stream<Object[]> pairs, Map<Long, long[]> index) {
+        Long current = null;
+        long[] buffer = new long[8];
+        int size = 0;
+        Iterator<Object[]> iterator = pairs.iterator();
+        while (iterator.hasNext()) {
+            Object[] pair = iterator.next();
+            Long studentId = (Long) pair[0];
+            if (!studentId.equals(current)) {
+                if (current != null) {
+                    index.put(current, Arrays.copyOf(buffer, size));
+                }
+                current = studentId;
+                size = 0;
+            }
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = (Long) pair[1];
+        }
+        if (current != null) {
+            index.put(current, Arrays.copyOf(buffer, size));
+        }
+    }
+
+    private static long[] with(long[] courses, long courseId) {
+        if (courses == null) {
+            return new long[]{courseId};
+        }
+        int position = Arrays.binarySearch(courses, courseId);
+        if (position >= 0) {
+            return courses;
+        }
+        int insertAt = -position - 1;
+        long[] updated = new long[courses.length + 1];
+        System.arraycopy(courses, 0, updated, 0, insertAt);
+        updated[insertAt] = courseId;
+        System.arraycopy(courses, insertAt, updated, insertAt + 1, courses.length - insertAt);
+        return updated;
+    }
+
+    // null убирает студента из индекса, когда у него не осталось записей
+    private static long[] without(long[] courses, long courseId) {
+        int position = Arrays.binarySearch(courses, courseId);
+        if (position < 0) {
+            return courses;
+        }
+        if (courses.length == 1) {
+            return null;
+        }
+        long[] updated = new long[courses.length - 1];
+        System.arraycopy(courses, 0, updated, 0, position);
+        System.arraycopy(courses, position + 1, updated, position, courses.length - position - 1);
+        return updated;
+    }
+
+    private static List<Long> boxed(long[] courses) {
+        return Arrays.stream(courses).boxed().toList();
+    }
+}
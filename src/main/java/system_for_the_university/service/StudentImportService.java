@@ -0,0 +1,212 @@
+package system_for_the_university.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.DTO.response.StudentImportRejectDTO;
+import system_for_the_university.DTO.response.StudentImportResultDTO;
+import system_for_the_university.entity.Student;
+import system_for_the_university.repository.StudentRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/* Массовый импорт студентов из CSV в начале семестра. Файл читается построчно и в память целиком
+не загружается. Уникальность email проверяется по набору, загруженному из БД один раз на импорт,
+а студенты вставляются JDBC-батчами, поэтому на строку не приходится ни одного отдельного запроса */
+@Slf4j
+@Service
+public class StudentImportService {
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_REJECTS = 1000;
+    /* Если студента с таким email успели создать параллельно, строка пропускается, а не валит весь батч.
+    id берётся из пула последовательности Student, один запрос к ней на 50 строк */
+    private static final String INSERT_STUDENT_SQL =
+            "insert into student (id, name, email) values (?, ?, ?) on conflict do nothing";
+
+    private final StudentRepository studentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Validator validator;
+    private final EntityIdGenerator entityIdGenerator;
+
+    public StudentImportService(StudentRepository studentRepository, JdbcTemplate jdbcTemplate, Validator validator,
+                                EntityIdGenerator entityIdGenerator) {
+        this.studentRepository = studentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.validator = validator;
+        this.entityIdGenerator = entityIdGenerator;
+    }
+
+    @Transactional
+    public StudentImportResultDTO importCsv(InputStream csv) throws IOException {
+        log.info("Импорт студентов из CSV");
+        Set<String> emails;
+        try (Stream<String> existing = studentRepository.streamAllEmails()) {
+            emails = existing.collect(Collectors.toCollection(HashSet::new));
+        }
+        log.info("Загружено существующих email: {}", emails.size());
+
+        Import result = new Import();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        int nameColumn = 0;
+        int emailColumn = 1;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            // Excel сохраняет CSV в UTF-8 с BOM в начале файла
+            if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = parseLine(line);
+
+            // Заголовок необязателен, но если он есть, колонки можно расположить в любом порядке
+            if (lineNumber == 1 && isHeader(fields)) {
+                nameColumn = indexOf(fields, "name");
+                emailColumn = indexOf(fields, "email");
+                if (nameColumn < 0 || emailColumn < 0) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "В заголовке CSV должны быть колонки name и email");
+                }
+                continue;
+            }
+
+            String name = field(fields, nameColumn);
+            String email = field(fields, emailColumn);
+            String reason = validate(name, email);
+            if (reason == null && !emails.add(email)) {
+                reason = "Email уже занят";
+            }
+            if (reason != null) {
+                result.reject(lineNumber, email, reason);
+                continue;
+            }
+
+            result.add(lineNumber, entityIdGenerator.nextId(Student.class), name, email);
+            if (result.pending.size() >= BATCH_SIZE) {
+                flush(result);
+            }
+        }
+        flush(result);
+
+        log.info("Импорт завершён, добавлено студентов: {}, отклонено строк: {}", result.imported, result.rejected);
+        return new StudentImportResultDTO(result.imported, result.rejected, result.rejects);
+    }
+
+    private void flush(Import result) {
+        if (result.pending.isEmpty()) {
+            return;
+        }
+        int[] inserted = jdbcTemplate.batchUpdate(INSERT_STUDENT_SQL, result.pending);
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] == 0) {
+                Object[] row = result.pending.get(i);
+                result.reject(result.pendingLines.get(i), (String) row[2], "Email уже занят");
+            } else {
+                result.imported++;
+            }
+        }
+        result.pending.clear();
+        result.pendingLines.clear();
+    }
+
+    // Проверяю по тем же ограничениям, что стоят на сущности Student
+    private String validate(String name, String email) {
+        if (name == null || name.isBlank()) {
+            return "Не указано имя";
+        }
+        if (email == null || email.isBlank()) {
+            return "Не указан email";
+        }
+        Set<ConstraintViolation<Student>> violations = validator.validate(new Student(name, email));
+        if (violations.isEmpty()) {
+            return null;
+        }
+        ConstraintViolation<Student> violation = violations.iterator().next();
+        return violation.getPropertyPath() + ": " + violation.getMessage();
+    }
+
+    private boolean isHeader(List<String> fields) {
+        return indexOf(fields, "email") >= 0;
+    }
+
+    private int indexOf(List<String> fields, String column) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).trim().toLowerCase(Locale.ROOT).equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index).trim() : null;
+    }
+
+    // Разбор строки CSV: запятая как разделитель, значения в кавычках могут содержать запятые и "" внутри
+    private static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static final class Import {
+        private final List<Object[]> pending = new ArrayList<>(BATCH_SIZE);
+        private final List<Long> pendingLines = new ArrayList<>(BATCH_SIZE);
+        private final List<StudentImportRejectDTO> rejects = new ArrayList<>();
+        private int imported;
+        private int rejected;
+
+        private void add(long line, Long id, String name, String email) {
+            pending.add(new Object[]{id, name, email});
+            pendingLines.add(line);
+        }
+
+        private void reject(long line, String email, String reason) {
+            rejected++;
+            if (rejects.size() < MAX_REPORTED_REJECTS) {
+                rejects.add(new StudentImportRejectDTO(line, email, reason));
+            }
+        }
+    }
+}
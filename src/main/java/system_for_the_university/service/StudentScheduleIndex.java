@@ -0,0 +1,366 @@
+package system_for_the_university.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import system_for_the_university.config.DataSourceRouting;
+import system_for_the_university.entity.Course;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.event.RegistrationCancelledEvent;
+import system_for_the_university.event.StudentDeletedEvent;
+import system_for_the_university.repository.RegistrationRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/* Проверка пересечения курсов по времени в расписании студента. Для каждого студента в памяти лежат
+интервалы его курсов, отсортированные по началу, и для каждого префикса - курс с самым поздним концом.
+Новый курс [начало, конец) пересекается с расписанием, если среди курсов, начавшихся раньше его конца,
+самый поздний конец позже его начала: это один двоичный поиск и одно сравнение, O(log n) без загрузки курсов.
+Курсы, стоящие встык, не пересекаются. Интервалы берутся из startTime и endTime курса, время московское.
+Проверка и занятие интервала идут под одной блокировкой, поэтому две параллельные записи одного студента
+на пересекающиеся курсы не пройдут обе. Занятый интервал снимается, если транзакция записи откатилась.
+Политика включается registration.schedule-conflicts.enabled, выключенная не держит индекс в памяти */
+@Slf4j
+@Component
+public class StudentScheduleIndex {
+    private final RegistrationRepository registrationRepository;
+    private final boolean enabled;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile ConcurrentHashMap<Long, Schedule> schedules = new ConcurrentHashMap<>();
+    // Изменения за время перезагрузки, null вне перезагрузки. Защищено lock
+    private List<Consumer<Map<Long, Schedule>>> replay;
+    private volatile boolean loaded;
+
+    public StudentScheduleIndex(RegistrationRepository registrationRepository,
+                                @Value("${registration.schedule-conflicts.enabled:false}") boolean enabled) {
+        this.registrationRepository = registrationRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${student.course-index.reload-interval-ms:600000}",
+            fixedDelayString = "${student.course-index.reload-interval-ms:600000}")
+    @Transactional(readOnly = true)
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            replay = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+
+        ConcurrentHashMap<Long, Schedule> reloaded = new ConcurrentHashMap<>();
+        try {
+            DataSourceRouting.onPrimary(() -> {
+                try (Stream<Object[]> rows = registrationRepository.streamStudentCourseTimes()) {
+                    collect(rows, reloaded);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                replay = null;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            replay.forEach(change -> change.accept(reloaded));
+            replay = null;
+            schedules = reloaded;
+            loaded = true;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Индекс расписаний по времени загружен, студентов с записями: {}", reloaded.size());
+    }
+
+    /* id курса из расписания студента, с которым пересекается course. Если пересечения нет, интервал course
+    сразу занимается в расписании до конца текущей транзакции и остаётся в нём, только если она зафиксирована.
+    С выключенной политикой всегда пусто */
+    public Optional<Long> holdOrConflict(Long studentId, Course course) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        long courseId = course.getId();
+        long start = seconds(course.getStartTime());
+        long end = seconds(course.getEndTime());
+        if (!loaded) {
+            return conflictInDatabase(studentId, courseId, start, end);
+        }
+
+        long conflict;
+        boolean added = false;
+        lock.lock();
+        try {
+            Schedule schedule = schedules.get(studentId);
+            conflict = schedule == null ? -1 : schedule.conflict(courseId, start, end);
+            // Курс уже в расписании, например у параллельной заявки на тот же курс: этот вызов его не добавлял
+            if (conflict < 0 && (schedule == null || !schedule.contains(courseId))) {
+                applyLocked(index -> add(index, studentId, courseId, start, end));
+                added = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (conflict >= 0) {
+            return Optional.of(conflict);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            boolean removeOnRollback = added;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    // После коммита повторяю добавление: перезагрузка, шедшая параллельно, могла его не увидеть
+                    if (status == STATUS_COMMITTED) {
+                        apply(index -> add(index, studentId, courseId, start, end));
+                    } else if (removeOnRollback) {
+                        // Откат снимает только интервал, занятый этим вызовом, а не чужой зафиксированный
+                        apply(index -> remove(index, studentId, courseId));
+                    }
+                }
+            });
+        }
+        return Optional.empty();
+    }
+
+    // Проверка без занятия интервала, например перед постановкой в лист ожидания
+    public Optional<Long> conflict(Long studentId, Course course) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        long start = seconds(course.getStartTime());
+        long end = seconds(course.getEndTime());
+        if (!loaded) {
+            return conflictInDatabase(studentId, course.getId(), start, end);
+        }
+        Schedule schedule = schedules.get(studentId);
+        long conflict = schedule == null ? -1 : schedule.conflict(course.getId(), start, end);
+        return conflict < 0 ? Optional.empty() : Optional.of(conflict);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationCancelled(RegistrationCancelledEvent event) {
+        if (enabled) {
+            apply(index -> remove(index, event.getStudentId(), event.getCourseId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCourseDeleted(CourseDeletedEvent event) {
+        if (enabled) {
+            // Записи удалённого курса удаляются каскадом, поэтому курс убирается из расписаний всех студентов
+            apply(index -> index.keySet().forEach(studentId -> remove(index, studentId, event.getCourseId())));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentDeleted(StudentDeletedEvent event) {
+        if (enabled) {
+            apply(index -> index.remove(event.getStudentId()));
+        }
+    }
+
+    // Пока индекс не загружен, расписание студента читается из БД и проверяется перебором
+    private Optional<Long> conflictInDatabase(Long studentId, long courseId, long start, long end) {
+        for (Object[] row : registrationRepository.findCourseTimesByStudentId(studentId)) {
+            long otherId = (Long) row[0];
+            if (otherId != courseId && seconds((LocalDateTime) row[1]) < end && seconds((LocalDateTime) row[2]) > start) {
+                return Optional.of(otherId);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Расписания не изменяются на месте, а заменяются новыми, поэтому conflict читает их без блокировки
+    private void apply(Consumer<Map<Long, Schedule>> change) {
+        lock.lock();
+        try {
+            applyLocked(change);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void applyLocked(Consumer<Map<Long, Schedule>> change) {
+        change.accept(schedules);
+        if (replay != null) {
+            replay.add(change);
+        }
+    }
+
+    private static void add(Map<Long, Schedule> index, Long studentId, long courseId, long start, long end) {
+        index.compute(studentId, (id, current) -> current == null
+                ? Schedule.of(courseId, start, end)
+                : current.with(courseId, start, end));
+    }
+
+    // Студент без курсов убирается из индекса
+    private static void remove(Map<Long, Schedule> index, Long studentId, long courseId) {
+        index.computeIfPresent(studentId, (id, current) -> {
+            Schedule updated = current.without(courseId);
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    private static void collect(Stream<Object[]> rows, Map<Long, Schedule> index) {
+        Iterator<Object[]> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            Object[] row = iterator.next();
+            add(index, (Long) row[0], (Long) row[1], seconds((LocalDateTime) row[2]), seconds((LocalDateTime) row[3]));
+        }
+    }
+
+    // Время курсов московское, поэтому для сравнения достаточно секунд от эпохи без учёта пояса
+    private static long seconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /* Курсы студента, отсортированные по началу. latest[i] - номер курса с самым поздним концом среди 0..i,
+    он и проверяется на пересечение. Добавление и удаление копируют массивы: курсов у студента единицы */
+    static final class Schedule {
+        private static final Schedule EMPTY = new Schedule(new long[0], new long[0], new long[0], new int[0]);
+
+        private final long[] courseIds;
+        private final long[] starts;
+        private final long[] ends;
+        private final int[] latest;
+
+        private Schedule(long[] courseIds, long[] starts, long[] ends, int[] latest) {
+            this.courseIds = courseIds;
+            this.starts = starts;
+            this.ends = ends;
+            this.latest = latest;
+        }
+
+        static Schedule of(long courseId, long start, long end) {
+            return EMPTY.with(courseId, start, end);
+        }
+
+        // id курса, пересекающегося с [start, end), или -1. Сам courseId пересечением не считается
+        long conflict(long courseId, long start, long end) {
+            int before = firstStartingAtOrAfter(end);
+            if (before == 0) {
+                return -1;
+            }
+            int candidate = latest[before - 1];
+            if (ends[candidate] <= start) {
+                return -1;
+            }
+            if (courseIds[candidate] != courseId) {
+                return courseIds[candidate];
+            }
+            // Самый поздний конец у самого курса: редкий случай повторной проверки, ищу другой перебором
+            for (int i = 0; i < before; i++) {
+                if (courseIds[i] != courseId && ends[i] > start) {
+                    return courseIds[i];
+                }
+            }
+            return -1;
+        }
+
+        boolean contains(long courseId) {
+            return indexOf(courseId) >= 0;
+        }
+
+        Schedule with(long courseId, long start, long end) {
+            if (contains(courseId)) {
+                return this;
+            }
+            int at = firstStartingAtOrAfter(start);
+            int size = courseIds.length + 1;
+            long[] newCourseIds = insert(courseIds, at, courseId);
+            long[] newStarts = insert(starts, at, start);
+            long[] newEnds = insert(ends, at, end);
+            return new Schedule(newCourseIds, newStarts, newEnds, latest(newEnds, size));
+        }
+
+        Schedule without(long courseId) {
+            int at = indexOf(courseId);
+            if (at < 0) {
+                return this;
+            }
+            long[] newEnds = remove(ends, at);
+            return new Schedule(remove(courseIds, at), remove(starts, at), newEnds, latest(newEnds, newEnds.length));
+        }
+
+        boolean isEmpty() {
+            return courseIds.length == 0;
+        }
+
+        private int firstStartingAtOrAfter(long time) {
+            int low = 0;
+            int high = starts.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (starts[middle] < time) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int indexOf(long courseId) {
+            for (int i = 0; i < courseIds.length; i++) {
+                if (courseIds[i] == courseId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static int[] latest(long[] ends, int size) {
+            int[] latest = new int[size];
+            for (int i = 1; i < size; i++) {
+                latest[i] = ends[i] > ends[latest[i - 1]] ? i : latest[i - 1];
+            }
+            return latest;
+        }
+
+        private static long[] insert(long[] values, int at, long value) {
+            long[] updated = new long[values.length + 1];
+            System.arraycopy(values, 0, updated, 0, at);
+            updated[at] = value;
+            System.arraycopy(values, at, updated, at + 1, values.length - at);
+            return updated;
+        }
+
+        private static long[] remove(long[] values, int at) {
+            long[] updated = new long[values.length - 1];
+            System.arraycopy(values, 0, updated, 0, at);
+            System.arraycopy(values, at + 1, updated, at, values.length - at - 1);
+            return updated;
+        }
+    }
+}
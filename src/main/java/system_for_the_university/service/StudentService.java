@@ -1,23 +1,56 @@
 package system_for_the_university.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.DTO.response.KeysetPageDTO;
+import system_for_the_university.DTO.response.StudentCoursesDTO;
 import system_for_the_university.DTO.response.StudentResponseDTO;
+import system_for_the_university.entity.Course;
+import system_for_the_university.entity.Registration;
 import system_for_the_university.entity.Student;
+import system_for_the_university.event.RegistrationCancelledEvent;
+import system_for_the_university.event.StudentDeletedEvent;
+import system_for_the_university.repository.RegistrationRepository;
 import system_for_the_university.repository.StudentRepository;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 public class StudentService {
     private final StudentRepository studentRepository;
+    private final NdjsonWriter ndjsonWriter;
+    private final StudentCourseIndex studentCourseIndex;
+    private final RegistrationRepository registrationRepository;
+    private final CourseSeatService courseSeatService;
+    private final SeatLedger seatLedger;
+    private final WaitlistService waitlistService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public StudentService(StudentRepository studentRepository) {
+    public StudentService(StudentRepository studentRepository, NdjsonWriter ndjsonWriter,
+                          StudentCourseIndex studentCourseIndex, RegistrationRepository registrationRepository,
+                          CourseSeatService courseSeatService, SeatLedger seatLedger,
+                          WaitlistService waitlistService, ApplicationEventPublisher eventPublisher) {
         this.studentRepository = studentRepository;
+        this.ndjsonWriter = ndjsonWriter;
+        this.studentCourseIndex = studentCourseIndex;
+        this.registrationRepository = registrationRepository;
+        this.courseSeatService = courseSeatService;
+        this.seatLedger = seatLedger;
+        this.waitlistService = waitlistService;
+        this.eventPublisher = eventPublisher;
     }
 
     // Добавил эту аннотацию для целостности данных в рамках ACID в дальнейшем добавил во всех операциях создания, удаления
@@ -35,24 +68,90 @@ public class StudentService {
         return student;
     }
 
+    @Transactional(readOnly = true)
     public Student getStudentById(Long studentId) {
         log.info("Поиск студента с ID: {}", studentId);
         return studentRepository.findById(studentId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент с таким ID не найден"));
     }
 
+    @Transactional(readOnly = true)
     public List<Student> getAllStudents() {
         log.info("Получение списка всех студентов");
         return studentRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
+    public KeysetPageDTO<StudentResponseDTO> getStudentPage(Long afterId, int limit) {
+        log.info("Страница студентов после ID: {}", afterId);
+        List<StudentResponseDTO> students = studentRepository.findPageAfter(afterId, KeysetPaging.limit(limit));
+        students.forEach(this::fillCourses);
+        return KeysetPaging.page(students, limit, StudentResponseDTO::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllStudents(OutputStream out) throws IOException {
+        log.info("Потоковая выгрузка всех студентов");
+        try (Stream<StudentResponseDTO> students = studentRepository.streamAll()) {
+            ndjsonWriter.write(students.peek(this::fillCourses), out);
+        }
+    }
+
     @Transactional
     public void deleteStudent(Long studentId) {
         log.info("Удаление студента с ID: {}", studentId);
         if (!studentRepository.existsById(studentId)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент с таким ID не найден");
         }
+        /* Записи студента удаляются не каскадом, а по одной, как при отмене: иначе места в слотах, учёт мест
+        и кэш каталога остались бы со старыми значениями, а лист ожидания не продвинулся бы.
+        Курсы идут по возрастанию id, в том же порядке блокировок слотов, что и пакетная запись */
+        for (Registration registration : registrationRepository.findWithCourseByStudentId(studentId)) {
+            Course course = registration.getCourse();
+            courseSeatService.lockSlots(course.getId());
+            registrationRepository.delete(registration);
+            courseSeatService.release(course);
+            waitlistService.promoteNext(course);
+            seatLedger.reconcileAfterCommit(course.getId());
+            eventPublisher.publishEvent(new RegistrationCancelledEvent(registration.getId(), studentId, course.getId()));
+        }
         studentRepository.deleteById(studentId);
+        eventPublisher.publishEvent(new StudentDeletedEvent(studentId));
+    }
+
+    /* Расписание студента из индекса в памяти. В БД иду только за тем, чтобы отличить студента
+    без записей от несуществующего */
+    public StudentCoursesDTO getStudentCourses(Long studentId) {
+        List<Long> courseIds = studentCourseIndex.courseIds(studentId);
+        if (courseIds.isEmpty() && !studentRepository.existsById(studentId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент с таким ID не найден");
+        }
+        return new StudentCoursesDTO(studentId, courseIds);
+    }
+
+    // Расписания нескольких студентов в порядке запроса. Несуществующие студенты пропускаются
+    public List<StudentCoursesDTO> getStudentsCourses(List<Long> studentIds) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(studentIds);
+        if (uniqueIds.size() > KeysetPaging.MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Не больше " + KeysetPaging.MAX_LIMIT + " студентов за запрос");
+        }
+        Map<Long, List<Long>> coursesByStudent = studentCourseIndex.courseIds(uniqueIds);
+        List<Long> withoutCourses = uniqueIds.stream()
+                .filter(studentId -> coursesByStudent.get(studentId).isEmpty())
+                .toList();
+        Set<Long> existing = withoutCourses.isEmpty()
+                ? Set.of()
+                : new HashSet<>(studentRepository.findExistingIds(withoutCourses));
+
+        List<StudentCoursesDTO> result = new ArrayList<>(uniqueIds.size());
+        for (Long studentId : uniqueIds) {
+            List<Long> courseIds = coursesByStudent.get(studentId);
+            if (!courseIds.isEmpty() || existing.contains(studentId)) {
+                result.add(new StudentCoursesDTO(studentId, courseIds));
+            }
+        }
+        return result;
     }
 
     public StudentResponseDTO response(Student student) {
@@ -60,7 +159,12 @@ public class StudentService {
         response.setId(student.getId());
         response.setName(student.getName());
         response.setEmail(student.getEmail());
+        fillCourses(response);
 
         return response;
     }
+
+    private void fillCourses(StudentResponseDTO student) {
+        student.setEnrolledCourseIds(studentCourseIndex.courseIds(student.getId()));
+    }
 }
@@ -0,0 +1,179 @@
+package system_for_the_university.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.WaitlistResponseDTO;
+import system_for_the_university.entity.Course;
+import system_for_the_university.entity.Registration;
+import system_for_the_university.entity.Student;
+import system_for_the_university.entity.WaitlistEntry;
+import system_for_the_university.event.RegistrationCreatedEvent;
+import system_for_the_university.repository.CourseRepository;
+import system_for_the_university.repository.RegistrationRepository;
+import system_for_the_university.repository.StudentRepository;
+import system_for_the_university.repository.WaitlistEntryRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+
+/* Лист ожидания курса. Вместо того чтобы опрашивать запись на заполненный курс, студент один раз
+встаёт в очередь, а при отмене чужой записи первый в очереди записывается автоматически
+в той же транзакции, что и отмена */
+@Slf4j
+@Service
+public class WaitlistService {
+    private final WaitlistEntryRepository waitlistEntryRepository;
+    private final RegistrationRepository registrationRepository;
+    private final StudentRepository studentRepository;
+    private final CourseRepository courseRepository;
+    private final CourseSeatService courseSeatService;
+    private final StudentScheduleIndex studentScheduleIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public WaitlistService(WaitlistEntryRepository waitlistEntryRepository,
+                           RegistrationRepository registrationRepository,
+                           StudentRepository studentRepository,
+                           CourseRepository courseRepository,
+                           CourseSeatService courseSeatService,
+                           StudentScheduleIndex studentScheduleIndex,
+                           ApplicationEventPublisher eventPublisher) {
+        this.waitlistEntryRepository = waitlistEntryRepository;
+        this.registrationRepository = registrationRepository;
+        this.studentRepository = studentRepository;
+        this.courseRepository = courseRepository;
+        this.courseSeatService = courseSeatService;
+        this.studentScheduleIndex = studentScheduleIndex;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public WaitlistResponseDTO joinWaitlist(RegistrationRequestDTO request) {
+        log.info("Студент {} встаёт в лист ожидания курса {}", request.getStudentId(), request.getCourseId());
+
+        Student student = studentRepository.findById(request.getStudentId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент не найден"));
+
+        Course course = courseRepository.findById(request.getCourseId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Курс не найден"));
+
+        if (!isRegistrationOpen(course)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Запись на курс закрыта");
+        }
+        /* Все слоты курса блокируются, поэтому проверка мест не пересечётся с отменой записи:
+        либо отмена увидит новую заявку в очереди, либо здесь будет видно освободившееся место.
+        Строку курса не блокирую, чтобы порядок блокировок был тот же, что у записи: сначала слоты */
+        if (CourseSeatService.free(courseSeatService.lockSlots(course.getId())) > 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "На курсе есть свободные места, запишитесь на курс");
+        }
+        if (registrationRepository.existsByStudentIdAndCourseId(student.getId(), course.getId())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Студент уже записан на курс");
+        }
+        if (waitlistEntryRepository.existsByStudentIdAndCourseId(student.getId(), course.getId())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Студент уже в листе ожидания курса");
+        }
+        Optional<Long> overlapping = studentScheduleIndex.conflict(student.getId(), course);
+        if (overlapping.isPresent()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, RegistrationService.scheduleConflict(overlapping.get()));
+        }
+
+        WaitlistEntry entry = waitlistEntryRepository.save(new WaitlistEntry(student, course, LocalDateTime.now()));
+        log.info("Студент {} в листе ожидания курса {} под номером {}", student.getId(), course.getId(), entry.getId());
+        return mapToDto(entry);
+    }
+
+    @Transactional(readOnly = true)
+    public WaitlistResponseDTO getWaitlistEntry(Long entryId) {
+        return mapToDto(findEntry(entryId));
+    }
+
+    @Transactional
+    public void leaveWaitlist(Long entryId) {
+        log.info("Выход из листа ожидания: {}", entryId);
+        waitlistEntryRepository.delete(findEntry(entryId));
+    }
+
+    /* Записывает первого из очереди на место, освобождённое в текущей транзакции.
+    Вызывается из отмены записи, поэтому отдельную транзакцию не открывает */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<Registration> promoteNext(Course course) {
+        if (!isRegistrationOpen(course)) {
+            return Optional.empty();
+        }
+
+        /* Место занимается раньше интервала в расписании студента: иначе без места интервал остался бы
+        в расписании после коммита отмены, хотя записи нет. Если заявку сняли, место переходит следующему */
+        boolean claimed = false;
+        Optional<WaitlistEntry> head;
+        while ((head = waitlistEntryRepository.findFirstByCourseIdOrderByIdAsc(course.getId())).isPresent()) {
+            WaitlistEntry entry = head.get();
+            Student student = entry.getStudent();
+
+            // Студента могли записать в обход очереди, например пакетной записью
+            if (registrationRepository.existsByStudentIdAndCourseId(student.getId(), course.getId())) {
+                waitlistEntryRepository.delete(entry);
+                continue;
+            }
+            if (!claimed && !courseSeatService.claim(course)) {
+                return Optional.empty();
+            }
+            claimed = true;
+            // Пока студент ждал, он мог записаться на курс в то же время: такая заявка снимается
+            Optional<Long> overlapping = studentScheduleIndex.holdOrConflict(student.getId(), course);
+            if (overlapping.isPresent()) {
+                log.info("Студент {} снят из листа ожидания курса {}: пересечение с курсом {}",
+                        student.getId(), course.getId(), overlapping.get());
+                waitlistEntryRepository.delete(entry);
+                continue;
+            }
+
+            waitlistEntryRepository.delete(entry);
+            Registration registration = registrationRepository.save(
+                    new Registration(student, course, LocalDateTime.now()));
+            try {
+                registrationRepository.flush();
+            } catch (DataIntegrityViolationException e) {
+                if (!RegistrationService.isDuplicateRegistration(e)) {
+                    throw e;
+                }
+                // Студент записался сам параллельно с отменой. Отмена откатывается, её можно повторить
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Студент из листа ожидания одновременно записался на курс, повторите отмену");
+            }
+            eventPublisher.publishEvent(new RegistrationCreatedEvent(registration.getId(),
+                    student.getId(), course.getId(), registration.getRegistrationTime()));
+            log.info("Студент {} записан на курс {} из листа ожидания", student.getId(), course.getId());
+            return Optional.of(registration);
+        }
+        // Очередь кончилась, а место уже занято под снятую заявку: возвращаю его
+        if (claimed) {
+            courseSeatService.release(course);
+        }
+        return Optional.empty();
+    }
+
+    private WaitlistEntry findEntry(Long entryId) {
+        return waitlistEntryRepository.findById(entryId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Заявка в листе ожидания не найдена"));
+    }
+
+    // Окно записи проверяется по московскому времени, как и при обычной записи
+    private boolean isRegistrationOpen(Course course) {
+        LocalDateTime nowInMoscow = LocalDateTime.now(ZoneId.of("Europe/Moscow"));
+        return CourseWindowIndex.isOpen(course.getStartTime(), course.getEndTime(), nowInMoscow);
+    }
+
+    private WaitlistResponseDTO mapToDto(WaitlistEntry entry) {
+        Long courseId = entry.getCourse().getId();
+        return new WaitlistResponseDTO(entry.getId(), entry.getStudent().getId(), courseId,
+                waitlistEntryRepository.countUpTo(courseId, entry.getId()), entry.getCreatedAt());
+    }
+}
@@ -0,0 +1,10 @@
+-- Колонка course.occupied_seats снова хранит занятые места курса: это копия суммы по слотам course_seat_slot.
+-- Пока места считались только по слотам, в колонку никто не писал, и в ней остались старые значения.
+-- Выполняется один раз на существующей БД до запуска новой версии приложения.
+-- Расхождения, появившиеся позже, исправляет сверка слотов при старте.
+
+update course c
+set occupied_seats = coalesce((select sum(s.occupied) from course_seat_slot s where s.course_id = c.id), 0);
+
+alter table course alter column occupied_seats set default 0;
+alter table course alter column occupied_seats set not null;
@@ -0,0 +1,12 @@
+-- Уникальность пары студент-курс в registration. Выполняется один раз на существующей БД
+-- до запуска новой версии приложения: ddl-auto=update не создаст ключ, если в таблице уже есть дубли.
+-- Из дублей остаётся самая ранняя запись. Слоты мест курса пересчитываются сверкой при старте.
+
+delete from registration r
+using registration earlier
+where earlier.student_id = r.student_id
+  and earlier.course_id = r.course_id
+  and earlier.id < r.id;
+
+alter table registration
+    add constraint uk_registration_student_course unique (student_id, course_id);
@@ -0,0 +1,21 @@
+-- Переход student, course и registration с IDENTITY на последовательности с пулом из 50 id.
+-- Выполняется один раз на существующей БД до запуска новой версии приложения.
+-- Hibernate берёт из последовательности верхнюю границу пула и раздаёт 50 id ниже неё,
+-- поэтому последовательность выставляется с запасом в 50 над текущим максимумом.
+
+create sequence if not exists student_seq start with 1 increment by 50;
+create sequence if not exists course_seq start with 1 increment by 50;
+create sequence if not exists registration_seq start with 1 increment by 50;
+
+select setval('student_seq', coalesce(max(id), 0) + 50) from student;
+select setval('course_seq', coalesce(max(id), 0) + 50) from course;
+select setval('registration_seq', coalesce(max(id), 0) + 50) from registration;
+
+-- id теперь всегда передаёт приложение. Без значения по умолчанию вставка без id упадёт,
+-- а не получит из старой последовательности id, который уже выдан из пула
+alter table student alter column id drop identity if exists;
+alter table student alter column id drop default;
+alter table course alter column id drop identity if exists;
+alter table course alter column id drop default;
+alter table registration alter column id drop identity if exists;
+alter table registration alter column id drop default;
@@ -1,31 +1,65 @@
 package system_for_the_university;
 
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
+import system_for_the_university.DTO.request.CourseRequestDTO;
 import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.CourseResponseDTO;
+import system_for_the_university.DTO.response.JournalEntryDTO;
+import system_for_the_university.DTO.response.JournalPageDTO;
+import system_for_the_university.DTO.response.KeysetPageDTO;
 import system_for_the_university.DTO.response.RegistrationResponseDTO;
+import system_for_the_university.DTO.response.RegistrationTicketDTO;
+import system_for_the_university.DTO.response.StudentCoursesDTO;
+import system_for_the_university.DTO.response.StudentImportResultDTO;
+import system_for_the_university.DTO.response.WaitlistResponseDTO;
 import system_for_the_university.entity.Course;
+import system_for_the_university.entity.Registration;
 import system_for_the_university.entity.Student;
 import system_for_the_university.repository.CourseRepository;
+import system_for_the_university.repository.CourseSeatSlotRepository;
+import system_for_the_university.repository.RegistrationRepository;
 import system_for_the_university.repository.StudentRepository;
+import system_for_the_university.service.CourseCatalogCache;
+import system_for_the_university.service.CourseSearchIndex;
+import system_for_the_university.service.CourseWindowIndex;
+import system_for_the_university.service.RegistrationJournal;
+import system_for_the_university.service.SeatLedger;
+import system_for_the_university.service.StudentService;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @Slf4j
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "registration.journal.dir=target/journal-it")
 @ActiveProfiles("test")
+// В тестах выгрузка метрик по умолчанию выключена, а эндпоинт /actuator/prometheus здесь проверяется
+@AutoConfigureObservability
 class ControllerIntegrationTest {
 
     // HTTP клиент для тестирования REST-эндпоинтов
@@ -38,6 +72,30 @@ class ControllerIntegrationTest {
     @Autowired
     private StudentRepository studentRepository;
 
+    @Autowired
+    private RegistrationRepository registrationRepository;
+
+    @Autowired
+    private CourseSeatSlotRepository courseSeatSlotRepository;
+
+    @Autowired
+    private CourseCatalogCache courseCatalogCache;
+
+    @Autowired
+    private CourseWindowIndex courseWindowIndex;
+
+    @Autowired
+    private CourseSearchIndex courseSearchIndex;
+
+    @Autowired
+    private RegistrationJournal registrationJournal;
+
+    @Autowired
+    private SeatLedger seatLedger;
+
+    @Autowired
+    private StudentService studentService;
+
     private final LocalDateTime now = LocalDateTime.now();
 
     // Перед каждым тестом очищаем репозиторий и заполняем заново
@@ -45,6 +103,8 @@ class ControllerIntegrationTest {
     void setUp() {
         courseRepository.deleteAll();
         studentRepository.deleteAll();
+        // Репозиторий меняется напрямую, минуя сервисы, поэтому кэш каталога и индексы курсов обновляем вручную
+        courseCatalogCache.invalidateAll();
 
         Course activeCourse1 = new Course("Math", 30,
                 now.minusDays(1), now.plusDays(7));
@@ -58,6 +118,8 @@ class ControllerIntegrationTest {
         Student student = new Student("Иван Иванов", "ivan@example.com");
 
         studentRepository.save(student);
+        courseWindowIndex.reload();
+        courseSearchIndex.reload();
     }
 
 
@@ -157,4 +219,443 @@ class ControllerIntegrationTest {
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(response.getBody());
     }
+
+    @Test
+    @DisplayName("Повторная запись студента на курс отсекается уникальным ключом в БД")
+    void testRegistration_UniqueStudentCourse() {
+        Course mathCourse = courseRepository.findAll().get(0);
+        Student student = studentRepository.findAll().get(0);
+        registrationRepository.saveAndFlush(new Registration(student, mathCourse, LocalDateTime.now()));
+
+        log.info("Дубль в обход проверок сервиса");
+        DataIntegrityViolationException exception = assertThrows(DataIntegrityViolationException.class,
+                () -> registrationRepository.saveAndFlush(new Registration(student, mathCourse, LocalDateTime.now())));
+        // По имени ключа сервисы отличают дубль записи от прочих нарушений и отвечают 409
+        ConstraintViolationException violation = assertInstanceOf(ConstraintViolationException.class, exception.getCause());
+        assertTrue(violation.getConstraintName().toLowerCase().contains(Registration.UNIQUE_STUDENT_COURSE));
+
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/registrations",
+                new RegistrationRequestDTO(student.getId(), mathCourse.getId()), String.class);
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("GET /api/courses/page обходит курсы постранично по курсору")
+    void testGetCoursePage_KeysetCursor() {
+        ResponseEntity<KeysetPageDTO<CourseResponseDTO>> first = restTemplate.exchange(
+                "/api/courses/page?limit=2", HttpMethod.GET, null,
+                new ParameterizedTypeReference<>() {});
+
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertNotNull(first.getBody());
+        assertEquals(2, first.getBody().getItems().size());
+        assertNotNull(first.getBody().getNextCursor(), "Курсор следующей страницы не передан");
+
+        ResponseEntity<KeysetPageDTO<CourseResponseDTO>> second = restTemplate.exchange(
+                "/api/courses/page?limit=2&afterId={cursor}", HttpMethod.GET, null,
+                new ParameterizedTypeReference<>() {}, first.getBody().getNextCursor());
+
+        assertNotNull(second.getBody());
+        assertEquals(1, second.getBody().getItems().size());
+        assertNull(second.getBody().getNextCursor(), "Последняя страница не должна иметь курсора");
+    }
+
+    @Test
+    @DisplayName("GET /api/courses/stream отдаёт курсы построчно в NDJSON")
+    void testStreamAllCourses_Ndjson() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/api/courses/stream", String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        assertNotNull(response.getBody());
+        assertEquals(3, response.getBody().lines().count());
+    }
+
+    @Test
+    @DisplayName("GET /actuator/prometheus отдаёт исходы записи и число SQL на запрос")
+    void testMetrics_RegistrationOutcomeAndStatements() {
+        Course mathCourse = courseRepository.findAll().get(0);
+        Student student = studentRepository.findAll().get(0);
+        RegistrationRequestDTO request = new RegistrationRequestDTO(student.getId(), mathCourse.getId());
+        restTemplate.postForEntity("/api/registrations", request, RegistrationResponseDTO.class);
+        // Повторная запись того же студента считается дубликатом
+        restTemplate.postForEntity("/api/registrations", request, String.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        String metrics = response.getBody();
+        assertNotNull(metrics);
+        assertTrue(metrics.contains("registration_outcome_total{outcome=\"success\""));
+        assertTrue(metrics.contains("registration_outcome_total{outcome=\"duplicate\""));
+        assertTrue(metrics.contains("db_statements_per_request_count{method=\"POST\",uri=\"/api/registrations\""));
+        assertTrue(metrics.contains("http_server_requests_seconds_bucket"), "Нет гистограммы времени ответа");
+    }
+
+    @Test
+    @DisplayName("POST /api/students/import импортирует CSV и сообщает об отклонённых строках")
+    void testImportStudents_Csv() {
+        StringBuilder csv = new StringBuilder("name,email\n");
+        for (int i = 0; i < 2500; i++) {
+            csv.append("Студент ").append(i).append(",student").append(i).append("@example.com\n");
+        }
+        // Этот email уже занят студентом из setUp()
+        csv.append("Иван,ivan@example.com\n");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+
+        ResponseEntity<StudentImportResultDTO> response = restTemplate.postForEntity("/api/students/import",
+                new HttpEntity<>(csv.toString(), headers), StudentImportResultDTO.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(2500, response.getBody().getImported());
+        assertEquals(1, response.getBody().getRejected());
+        assertEquals(2502, response.getBody().getRejects().get(0).getLine());
+        assertEquals(2501, studentRepository.count());
+
+        log.info("Проверка, что id импорта и id Hibernate берутся из одного пула и не совпадают");
+        studentRepository.save(new Student("Пётр Петров", "petr@example.com"));
+        assertEquals(2502, studentRepository.count());
+    }
+
+    @Test
+    @DisplayName("POST /api/registrations с тем же Idempotency-Key возвращает исходную запись")
+    void testRegisterStudent_IdempotencyKey() {
+        Course mathCourse = courseRepository.findAll().get(0);
+        Student student = studentRepository.findAll().get(0);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", "retry-" + student.getId());
+        HttpEntity<RegistrationRequestDTO> request =
+                new HttpEntity<>(new RegistrationRequestDTO(student.getId(), mathCourse.getId()), headers);
+
+        ResponseEntity<RegistrationResponseDTO> first =
+                restTemplate.postForEntity("/api/registrations", request, RegistrationResponseDTO.class);
+        ResponseEntity<RegistrationResponseDTO> retry =
+                restTemplate.postForEntity("/api/registrations", request, RegistrationResponseDTO.class);
+
+        assertEquals(HttpStatus.CREATED, first.getStatusCode());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertNotNull(first.getBody());
+        assertNotNull(retry.getBody());
+        assertEquals(first.getBody().getId(), retry.getBody().getId());
+
+        log.info("Тот же ключ с другой заявкой отклоняется");
+        HttpEntity<RegistrationRequestDTO> other =
+                new HttpEntity<>(new RegistrationRequestDTO(student.getId(), courseRepository.findAll().get(1).getId()), headers);
+        ResponseEntity<String> rejected = restTemplate.postForEntity("/api/registrations", other, String.class);
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, rejected.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Параллельные первые запросы с одним Idempotency-Key получают одну и ту же запись")
+    void testRegisterStudent_ConcurrentIdempotencyKey() throws Exception {
+        Course mathCourse = courseRepository.findAll().get(0);
+        Student student = studentRepository.findAll().get(0);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", "concurrent-" + student.getId());
+        HttpEntity<RegistrationRequestDTO> request =
+                new HttpEntity<>(new RegistrationRequestDTO(student.getId(), mathCourse.getId()), headers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<ResponseEntity<RegistrationResponseDTO>>> responses = IntStream.range(0, 4)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> restTemplate.postForEntity(
+                            "/api/registrations", request, RegistrationResponseDTO.class), executor))
+                    .toList();
+            Long registrationId = null;
+            for (CompletableFuture<ResponseEntity<RegistrationResponseDTO>> response : responses) {
+                assertEquals(HttpStatus.CREATED, response.get().getStatusCode());
+                assertNotNull(response.get().getBody());
+                if (registrationId == null) {
+                    registrationId = response.get().getBody().getId();
+                }
+                assertEquals(registrationId, response.get().getBody().getId());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, courseRepository.findOccupiedSeatsById(mathCourse.getId()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Отмена записи на заполненный курс записывает первого из листа ожидания")
+    void testWaitlist_PromotedOnCancel() {
+        Course smallCourse = courseRepository.save(new Course("Seminar", 1, now.minusDays(1), now.plusDays(1)));
+        Student first = studentRepository.findAll().get(0);
+        Student second = studentRepository.save(new Student("Пётр Петров", "petr@example.com"));
+        ResponseEntity<RegistrationResponseDTO> registration = restTemplate.postForEntity("/api/registrations",
+                new RegistrationRequestDTO(first.getId(), smallCourse.getId()), RegistrationResponseDTO.class);
+        assertEquals(HttpStatus.CREATED, registration.getStatusCode());
+        assertNotNull(registration.getBody());
+
+        ResponseEntity<WaitlistResponseDTO> joined = restTemplate.postForEntity("/api/waitlist",
+                new RegistrationRequestDTO(second.getId(), smallCourse.getId()), WaitlistResponseDTO.class);
+        assertEquals(HttpStatus.CREATED, joined.getStatusCode());
+        assertNotNull(joined.getBody());
+        assertEquals(1, joined.getBody().getPosition());
+
+        log.info("Первый студент отменяет запись");
+        restTemplate.delete("/api/registrations/{id}", registration.getBody().getId());
+
+        ResponseEntity<String> entry = restTemplate.getForEntity("/api/waitlist/{id}", String.class,
+                joined.getBody().getId());
+        assertEquals(HttpStatus.NOT_FOUND, entry.getStatusCode(), "Студент остался в очереди");
+        assertTrue(registrationRepository.existsByStudentIdAndCourseId(second.getId(), smallCourse.getId()));
+        assertFalse(registrationRepository.existsByStudentIdAndCourseId(first.getId(), smallCourse.getId()));
+        assertEquals(1, courseRepository.findOccupiedSeatsById(smallCourse.getId()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Удаление студента возвращает его места и продвигает лист ожидания")
+    void testDeleteStudent_ReleasesSeats() {
+        Course smallCourse = courseRepository.save(new Course("Seminar", 1, now.minusDays(1), now.plusDays(1)));
+        Course math = courseRepository.findAll().stream()
+                .filter(course -> course.getName().equals("Math")).findFirst().orElseThrow();
+        Student first = studentRepository.findAll().get(0);
+        Student second = studentRepository.save(new Student("Пётр Петров", "petr@example.com"));
+        for (Course course : List.of(smallCourse, math)) {
+            assertEquals(HttpStatus.CREATED, restTemplate.postForEntity("/api/registrations",
+                    new RegistrationRequestDTO(first.getId(), course.getId()), RegistrationResponseDTO.class)
+                    .getStatusCode());
+        }
+        assertEquals(HttpStatus.CREATED, restTemplate.postForEntity("/api/waitlist",
+                new RegistrationRequestDTO(second.getId(), smallCourse.getId()), WaitlistResponseDTO.class)
+                .getStatusCode());
+
+        log.info("Удаление записанного студента");
+        studentService.deleteStudent(first.getId());
+
+        assertTrue(registrationRepository.existsByStudentIdAndCourseId(second.getId(), smallCourse.getId()));
+        assertEquals(1, courseRepository.findOccupiedSeatsById(smallCourse.getId()).orElseThrow());
+        assertEquals(0, courseRepository.findOccupiedSeatsById(math.getId()).orElseThrow());
+        assertEquals(30, seatLedger.remainingSeats(math.getId()));
+        assertEquals(0, seatLedger.remainingSeats(smallCourse.getId()));
+    }
+
+    @Test
+    @DisplayName("GET /api/registrations/course, /student и /period отбирают записи одним запросом")
+    void testGetFilteredRegistrations() {
+        List<Course> courses = courseRepository.findAll();
+        Student student = studentRepository.findAll().get(0);
+        restTemplate.postForEntity("/api/registrations",
+                new RegistrationRequestDTO(student.getId(), courses.get(0).getId()), RegistrationResponseDTO.class);
+        restTemplate.postForEntity("/api/registrations",
+                new RegistrationRequestDTO(student.getId(), courses.get(1).getId()), RegistrationResponseDTO.class);
+
+        ResponseEntity<KeysetPageDTO<RegistrationResponseDTO>> byCourse = restTemplate.exchange(
+                "/api/registrations/course/{id}", HttpMethod.GET, null,
+                new ParameterizedTypeReference<>() {}, courses.get(0).getId());
+        assertNotNull(byCourse.getBody());
+        assertEquals(1, byCourse.getBody().getItems().size());
+        assertEquals("Math", byCourse.getBody().getItems().get(0).getCourseName());
+        assertEquals("Иван Иванов", byCourse.getBody().getItems().get(0).getStudentName());
+
+        ResponseEntity<KeysetPageDTO<RegistrationResponseDTO>> byStudent = restTemplate.exchange(
+                "/api/registrations/student/{id}", HttpMethod.GET, null,
+                new ParameterizedTypeReference<>() {}, student.getId());
+        assertNotNull(byStudent.getBody());
+        assertEquals(2, byStudent.getBody().getItems().size());
+
+        ResponseEntity<KeysetPageDTO<RegistrationResponseDTO>> byPeriod = restTemplate.exchange(
+                "/api/registrations/period?from={from}&to={to}&limit=1", HttpMethod.GET, null,
+                new ParameterizedTypeReference<>() {}, now.minusHours(1), now.plusDays(1));
+        assertNotNull(byPeriod.getBody());
+        assertEquals(1, byPeriod.getBody().getItems().size());
+        assertNotNull(byPeriod.getBody().getNextCursor());
+    }
+
+    @Test
+    @DisplayName("GET /api/courses/upcoming возвращает курсы, запись на которые скоро откроется")
+    void testGetUpcomingCourses() {
+        LocalDateTime opensAt = LocalDateTime.now(ZoneId.of("Europe/Moscow")).plusMinutes(30);
+        CourseRequestDTO request = new CourseRequestDTO("Chemistry", 20, opensAt, opensAt.plusDays(3), "Europe/Moscow");
+        ResponseEntity<CourseResponseDTO> created = restTemplate.postForEntity("/api/courses", request,
+                CourseResponseDTO.class);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+
+        ResponseEntity<CourseResponseDTO[]> upcoming = restTemplate.getForEntity(
+                "/api/courses/upcoming?withinMinutes=60", CourseResponseDTO[].class);
+
+        assertEquals(HttpStatus.OK, upcoming.getStatusCode());
+        assertNotNull(upcoming.getBody());
+        assertEquals(1, upcoming.getBody().length);
+        assertEquals("Chemistry", upcoming.getBody()[0].getName());
+    }
+
+    @Test
+    @DisplayName("POST /api/registrations/async отвечает 202, итог забирается по квитанции")
+    void testRegisterStudentAsync_TicketPolling() {
+        Course math = courseRepository.findAll().stream()
+                .filter(course -> course.getName().equals("Math")).findFirst().orElseThrow();
+        Student student = studentRepository.findAll().get(0);
+
+        ResponseEntity<RegistrationTicketDTO> accepted = restTemplate.postForEntity("/api/registrations/async",
+                new RegistrationRequestDTO(student.getId(), math.getId()), RegistrationTicketDTO.class);
+
+        assertEquals(HttpStatus.ACCEPTED, accepted.getStatusCode());
+        assertNotNull(accepted.getBody());
+        assertNotNull(accepted.getHeaders().getLocation());
+
+        log.info("Опрос квитанции с ожиданием итога");
+        ResponseEntity<RegistrationTicketDTO> result = restTemplate.getForEntity(
+                accepted.getHeaders().getLocation() + "?waitMs=5000", RegistrationTicketDTO.class);
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertNotNull(result.getBody());
+        assertEquals(RegistrationTicketDTO.Status.CREATED, result.getBody().getStatus());
+        assertEquals(1, registrationRepository.count());
+        assertEquals(result.getBody().getRegistration().getId(), registrationRepository.findAll().get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Параллельная запись на большой курс занимает места в разных слотах, итог точный")
+    void testRegisterStudent_LargeCourseSeatSlots() throws Exception {
+        Course lecture = courseRepository.save(new Course("Lecture", 1000, now.minusDays(1), now.plusDays(1)));
+        List<Student> students = studentRepository.saveAll(IntStream.range(0, 12)
+                .mapToObj(i -> new Student("Студент " + i, "lecture" + i + "@example.com")).toList());
+
+        log.info("Запись 12 студентов параллельно");
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<CompletableFuture<HttpStatus>> responses = students.stream()
+                    .map(student -> CompletableFuture.supplyAsync(() -> HttpStatus.valueOf(restTemplate.postForEntity(
+                            "/api/registrations", new RegistrationRequestDTO(student.getId(), lecture.getId()),
+                            String.class).getStatusCode().value()), executor))
+                    .toList();
+            for (CompletableFuture<HttpStatus> response : responses) {
+                assertEquals(HttpStatus.CREATED, response.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(12, courseRepository.findOccupiedSeatsById(lecture.getId()).orElseThrow());
+        Object[] slots = courseSeatSlotRepository.summarizeByCourse().stream()
+                .filter(row -> row[0].equals(lecture.getId())).findFirst().orElseThrow();
+        assertEquals(1000L, ((Number) slots[2]).longValue(), "Вместимость по слотам не совпадает с курсом");
+        assertEquals(4, courseSeatSlotRepository.findAll().stream()
+                .filter(slot -> slot.getCourse().getId().equals(lecture.getId())).count());
+    }
+
+    @Test
+    @DisplayName("GET /api/students/{id}/courses и /api/students/courses отдают расписание из индекса")
+    void testGetStudentCourses() {
+        Course math = courseRepository.findAll().stream()
+                .filter(course -> course.getName().equals("Math")).findFirst().orElseThrow();
+        Student ivan = studentRepository.findAll().get(0);
+        Student petr = studentRepository.save(new Student("Пётр Петров", "petr@example.com"));
+        assertEquals(HttpStatus.CREATED, restTemplate.postForEntity("/api/registrations",
+                new RegistrationRequestDTO(ivan.getId(), math.getId()), String.class).getStatusCode());
+
+        ResponseEntity<StudentCoursesDTO> schedule = restTemplate.getForEntity(
+                "/api/students/{id}/courses", StudentCoursesDTO.class, ivan.getId());
+        assertEquals(HttpStatus.OK, schedule.getStatusCode());
+        assertNotNull(schedule.getBody());
+        assertEquals(List.of(math.getId()), schedule.getBody().getCourseIds());
+
+        log.info("Пакетный запрос: студент без записей есть в ответе, несуществующий пропущен");
+        ResponseEntity<List<StudentCoursesDTO>> bulk = restTemplate.exchange(
+                "/api/students/courses?ids={ids}", HttpMethod.GET, null,
+                new ParameterizedTypeReference<>() {}, ivan.getId() + "," + petr.getId() + ",-1");
+        assertEquals(HttpStatus.OK, bulk.getStatusCode());
+        assertNotNull(bulk.getBody());
+        assertEquals(List.of(new StudentCoursesDTO(ivan.getId(), List.of(math.getId())),
+                new StudentCoursesDTO(petr.getId(), List.of())), bulk.getBody());
+
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity(
+                "/api/students/{id}/courses", String.class, -1L).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("GET /api/courses/{id}/roster выгружает список курса в CSV и NDJSON")
+    void testExportRoster() {
+        Course math = courseRepository.findAll().stream()
+                .filter(course -> course.getName().equals("Math")).findFirst().orElseThrow();
+        Student ivan = studentRepository.findAll().get(0);
+        Student anna = studentRepository.save(new Student("Анна, староста", "anna@example.com"));
+        for (Student student : List.of(ivan, anna)) {
+            assertEquals(HttpStatus.CREATED, restTemplate.postForEntity("/api/registrations",
+                    new RegistrationRequestDTO(student.getId(), math.getId()), String.class).getStatusCode());
+        }
+
+        ResponseEntity<String> csv = restTemplate.getForEntity("/api/courses/{id}/roster", String.class, math.getId());
+        assertEquals(HttpStatus.OK, csv.getStatusCode());
+        assertTrue(csv.getHeaders().getContentDisposition().isAttachment());
+        assertNotNull(csv.getBody());
+        String[] lines = csv.getBody().split("\r\n");
+        log.info("Проверка строк CSV: заголовок и студенты по алфавиту");
+        assertEquals(3, lines.length);
+        assertEquals("course_id,course_name,student_id,student_name,student_email,registration_time", lines[0]);
+        assertTrue(lines[1].startsWith(math.getId() + ",Math," + anna.getId() + ",\"Анна, староста\",anna@example.com,"));
+        assertTrue(lines[2].startsWith(math.getId() + ",Math," + ivan.getId() + ",Иван Иванов,ivan@example.com,"));
+
+        ResponseEntity<String> ndjson = restTemplate.getForEntity("/api/courses/roster?format=ndjson", String.class);
+        assertEquals(HttpStatus.OK, ndjson.getStatusCode());
+        assertEquals(MediaType.APPLICATION_NDJSON, ndjson.getHeaders().getContentType());
+        assertNotNull(ndjson.getBody());
+        assertEquals(2, ndjson.getBody().lines().count());
+        assertTrue(ndjson.getBody().contains("\"studentEmail\":\"anna@example.com\""));
+
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity(
+                "/api/courses/{id}/roster", String.class, -1L).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(
+                "/api/courses/roster?format=xlsx", String.class).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("GET /api/registrations/journal отдаёт запись и отмену по смещению и ждёт новых событий")
+    void testRegistrationJournal() throws Exception {
+        // Журнал переживает перезапуски тестов, поэтому читаю только события после текущего конца
+        long from = registrationJournal.nextOffset();
+        Course math = courseRepository.findAll().stream()
+                .filter(course -> course.getName().equals("Math")).findFirst().orElseThrow();
+        Student ivan = studentRepository.findAll().get(0);
+
+        CompletableFuture<JournalPageDTO> waiting = CompletableFuture.supplyAsync(() -> restTemplate.getForObject(
+                "/api/registrations/journal?fromOffset={from}&waitMs=10000", JournalPageDTO.class, from));
+        RegistrationResponseDTO registration = restTemplate.postForObject("/api/registrations",
+                new RegistrationRequestDTO(ivan.getId(), math.getId()), RegistrationResponseDTO.class);
+        JournalPageDTO created = waiting.get();
+        log.info("Ожидавший потребитель получил события: {}", created.getEntries());
+        assertEquals(1, created.getEntries().size());
+        assertEquals(JournalEntryDTO.Type.REGISTRATION_CREATED, created.getEntries().get(0).getType());
+        assertEquals(registration.getId(), created.getEntries().get(0).getRegistrationId());
+
+        restTemplate.delete("/api/registrations/{id}", registration.getId());
+        JournalPageDTO cancelled = restTemplate.getForObject("/api/registrations/journal?fromOffset={from}",
+                JournalPageDTO.class, created.getNextOffset());
+        assertEquals(JournalEntryDTO.Type.REGISTRATION_CANCELLED, cancelled.getEntries().get(0).getType());
+        assertEquals(math.getId(), cancelled.getEntries().get(0).getCourseId());
+
+        ResponseEntity<String> stream = restTemplate.getForEntity("/api/registrations/journal/stream?fromOffset={from}",
+                String.class, from);
+        assertEquals(HttpStatus.OK, stream.getStatusCode());
+        assertNotNull(stream.getBody());
+        assertEquals(2, stream.getBody().lines().count());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity("/api/registrations/journal?fromOffset={from}",
+                String.class, from + 100).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("GET /api/courses/search находит курсы по началу и части названия, новый курс - сразу после создания")
+    void testSearchCourses() {
+        CourseResponseDTO created = restTemplate.postForObject("/api/courses", new CourseRequestDTO(
+                "Высшая математика", 40, now.minusHours(1), now.plusDays(3), "Europe/Moscow"), CourseResponseDTO.class);
+
+        ResponseEntity<CourseResponseDTO[]> math = restTemplate.getForEntity("/api/courses/search?q={q}",
+                CourseResponseDTO[].class, "MATH");
+        assertEquals(HttpStatus.OK, math.getStatusCode());
+        assertNotNull(math.getBody());
+        assertEquals(List.of("Math"), Arrays.stream(math.getBody()).map(CourseResponseDTO::getName).toList());
+
+        log.info("Поиск по слову и по части слова на кириллице");
+        CourseResponseDTO[] byWord = restTemplate.getForObject("/api/courses/search?q={q}", CourseResponseDTO[].class, "матем");
+        assertEquals(1, byWord.length);
+        assertEquals(created.getId(), byWord[0].getId());
+        assertEquals(1, restTemplate.getForObject("/api/courses/search?q={q}", CourseResponseDTO[].class, "тема").length);
+        assertEquals(0, restTemplate.getForObject("/api/courses/search?q={q}&offset=1", CourseResponseDTO[].class, "тема").length);
+
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity("/api/courses/search?q={q}&limit=0",
+                String.class, "math").getStatusCode());
+    }
 }
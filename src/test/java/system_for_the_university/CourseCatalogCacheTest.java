@@ -0,0 +1,146 @@
+package system_for_the_university;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import system_for_the_university.DTO.response.CourseResponseDTO;
+import system_for_the_university.event.CourseCreatedEvent;
+import system_for_the_university.event.RegistrationCreatedEvent;
+import system_for_the_university.service.CourseCatalogCache;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class CourseCatalogCacheTest {
+    LocalDateTime now = LocalDateTime.now();
+
+    private CourseResponseDTO course(long id, int occupied) {
+        return new CourseResponseDTO(id, "Math", 30, occupied, now.minusDays(1), now.plusDays(1), "Europe/Moscow");
+    }
+
+    @Test
+    @DisplayName("Повторное чтение курса берётся из кэша")
+    void testGetCourse_HitAfterMiss() {
+        CourseCatalogCache cache = new CourseCatalogCache(100);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getCourse(1L, () -> {
+            loads.incrementAndGet();
+            return course(1L, 0);
+        });
+        CourseResponseDTO cached = cache.getCourse(1L, () -> {
+            loads.incrementAndGet();
+            return course(1L, 0);
+        });
+
+        assertEquals(1, loads.get(), "Курс загружен из БД повторно");
+        assertEquals(1L, cached.getId());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    @DisplayName("Запись на курс сбрасывает его в кэше и полный каталог")
+    void testRegistrationEvent_InvalidatesCourseAndCatalog() {
+        CourseCatalogCache cache = new CourseCatalogCache(100);
+        cache.getCourse(1L, () -> course(1L, 0));
+        cache.getAllCourses(() -> List.of(course(1L, 0), course(2L, 0)));
+
+        cache.onRegistrationCreated(new RegistrationCreatedEvent(10L, 5L, 1L, now));
+
+        log.info("Проверка, что после записи места читаются заново");
+        CourseResponseDTO reloaded = cache.getCourse(1L, () -> course(1L, 1));
+        assertEquals(1, reloaded.getOccupiedSeats(), "В кэше остались старые места");
+        assertTrue(cache.cachedAllCourses().isEmpty(), "Полный каталог не сброшен");
+        assertEquals(1, cache.invalidations(), "Одна запись посчитана как несколько инвалидаций");
+    }
+
+    @Test
+    @DisplayName("Создание курса сбрасывает только полный каталог")
+    void testCourseCreated_KeepsOtherCourses() {
+        CourseCatalogCache cache = new CourseCatalogCache(100);
+        cache.getCourse(1L, () -> course(1L, 0));
+        cache.getAllCourses(() -> List.of(course(1L, 0)));
+
+        cache.onCourseCreated(new CourseCreatedEvent(course(2L, 0)));
+
+        assertTrue(cache.cachedAllCourses().isEmpty());
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.invalidations());
+    }
+
+    @Test
+    @DisplayName("Инвалидация уже пустого кэша не попадает в счётчик")
+    void testInvalidate_NothingCachedNotCounted() {
+        CourseCatalogCache cache = new CourseCatalogCache(100);
+        cache.getAllCourses(() -> List.of(course(1L, 0)));
+
+        cache.invalidate(2L);
+        cache.invalidate(2L);
+        cache.invalidateAll();
+
+        assertEquals(1, cache.invalidations());
+    }
+
+    @Test
+    @DisplayName("Кэш ограничен по размеру и считает вытеснения")
+    void testBoundedSize_EvictsLeastRecentlyUsed() {
+        CourseCatalogCache cache = new CourseCatalogCache(2);
+        cache.getCourse(1L, () -> course(1L, 0));
+        cache.getCourse(2L, () -> course(2L, 0));
+        // Обращение к первому курсу делает второй самым старым
+        cache.getCourse(1L, () -> course(1L, 0));
+        cache.getCourse(3L, () -> course(3L, 0));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        AtomicInteger loads = new AtomicInteger();
+        cache.getCourse(1L, () -> {
+            loads.incrementAndGet();
+            return course(1L, 0);
+        });
+        assertEquals(0, loads.get(), "Вытеснен недавно использованный курс");
+    }
+
+    @Test
+    @DisplayName("Значение, загруженное до инвалидации, не попадает в кэш")
+    void testStaleLoad_NotCachedAfterInvalidation() {
+        CourseCatalogCache cache = new CourseCatalogCache(100);
+
+        cache.getCourse(1L, () -> {
+            // Пока читали из БД, на курс кто-то записался
+            cache.invalidate(1L);
+            return course(1L, 0);
+        });
+
+        CourseResponseDTO reloaded = cache.getCourse(1L, () -> course(1L, 1));
+        assertEquals(1, reloaded.getOccupiedSeats());
+    }
+
+    @Test
+    @DisplayName("Запись на другой курс во время загрузки не мешает закэшировать загруженный курс")
+    void testConcurrentLoad_OtherCourseInvalidated() {
+        CourseCatalogCache cache = new CourseCatalogCache(100);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getCourses(List.of(1L, 2L), courseIds -> {
+            loads.incrementAndGet();
+            // Пока читали из БД, на курс 2 кто-то записался, а на курс 3 - несколько раз
+            cache.invalidate(2L);
+            cache.invalidate(3L);
+            cache.invalidate(3L);
+            return List.of(course(1L, 0), course(2L, 0));
+        });
+        cache.getCourse(1L, () -> {
+            loads.incrementAndGet();
+            return course(1L, 0);
+        });
+
+        assertEquals(1, loads.get(), "Курс 1 не попал в кэш из за записи на другие курсы");
+        assertEquals(1, cache.getCourse(2L, () -> course(2L, 1)).getOccupiedSeats(), "Курс 2 закэширован устаревшим");
+    }
+}
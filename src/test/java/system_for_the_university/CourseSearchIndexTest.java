@@ -0,0 +1,122 @@
+package system_for_the_university;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import system_for_the_university.DTO.response.CourseResponseDTO;
+import system_for_the_university.event.CourseCreatedEvent;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.repository.CourseRepository;
+import system_for_the_university.service.CourseSearchIndex;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class CourseSearchIndexTest {
+    @Mock
+    CourseRepository courseRepository;
+
+    CourseSearchIndex courseSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        courseSearchIndex = new CourseSearchIndex(courseRepository);
+        when(courseRepository.findAllNames()).thenReturn(List.of(
+                new Object[]{1L, "Основы программирования"},
+                new Object[]{2L, "Программирование на Java"},
+                new Object[]{3L, "Программирование"},
+                new Object[]{4L, "Веб-программирование"},
+                new Object[]{5L, "Алгоритмы и структуры данных"},
+                new Object[]{6L, "Ёмкостные методы"},
+                new Object[]{8L, "Непрограммируемые контроллеры"}));
+        courseSearchIndex.reload();
+    }
+
+    private List<Long> search(String query) {
+        return courseSearchIndex.search(query, 0, 20).orElseThrow();
+    }
+
+    @Test
+    @DisplayName("Сначала названия, начинающиеся с запроса, затем слова, затем подстрока внутри слова")
+    void testSearch_Ranking() {
+        List<Long> found = search("Программ");
+
+        log.info("Найдено по рангу: {}", found);
+        assertEquals(List.of(3L, 2L, 4L, 1L, 8L), found);
+    }
+
+    @Test
+    @DisplayName("Регистр, ё и знаки препинания на поиск не влияют")
+    void testSearch_Normalization() {
+        assertEquals(List.of(6L), search("емкост"));
+        assertEquals(List.of(6L), search("ЁМКОСТНЫЕ"));
+        assertEquals(List.of(4L), search("веб программ"));
+        assertEquals(List.of(2L), search("java"));
+        assertEquals(List.of(), search("!!!"));
+    }
+
+    @Test
+    @DisplayName("Короткий запрос ищет только по началу слов, длинный - и внутри слов")
+    void testSearch_ShortQuery() {
+        assertEquals(List.of(5L), search("а"));
+        assertEquals(List.of(5L), search("данн"));
+        log.info("Подстрока внутри слова");
+        assertEquals(List.of(5L), search("горитм"));
+        assertEquals(List.of(), search("ит"));
+    }
+
+    @Test
+    @DisplayName("Смещение и размер страницы считаются по общему рангу")
+    void testSearch_OffsetLimit() {
+        assertEquals(List.of(3L, 2L), courseSearchIndex.search("програм", 0, 2).orElseThrow());
+        assertEquals(List.of(4L, 1L), courseSearchIndex.search("програм", 2, 2).orElseThrow());
+        assertEquals(List.of(8L), courseSearchIndex.search("програм", 4, 2).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Созданный курс находится сразу, удалённый пропадает из выдачи")
+    void testEvents() {
+        LocalDateTime now = LocalDateTime.now();
+        courseSearchIndex.onCourseCreated(new CourseCreatedEvent(
+                new CourseResponseDTO(7L, "Структурное программирование", 30, 0, now, now.plusDays(1), "Europe/Moscow")));
+        assertEquals(List.of(7L, 5L), search("структур"));
+
+        courseSearchIndex.onCourseDeleted(new CourseDeletedEvent(5L));
+        assertEquals(List.of(7L), search("структур"));
+        assertEquals(List.of(), search("горитм"));
+        assertEquals(7, courseSearchIndex.size());
+    }
+
+    @Test
+    @DisplayName("Пока индекс не загружен, поиск не выполняется")
+    void testNotLoaded() {
+        assertEquals(Optional.empty(), new CourseSearchIndex(courseRepository).search("прог", 0, 20));
+    }
+
+    @Test
+    @DisplayName("Курс, созданный или удалённый во время перезагрузки, не теряется и не воскресает")
+    void testReload_ReplaysConcurrentChanges() {
+        LocalDateTime now = LocalDateTime.now();
+        // Снимок из БД сделан до коммитов: в нём ещё есть курс 5 и нет курса 7
+        when(courseRepository.findAllNames()).thenAnswer(invocation -> {
+            courseSearchIndex.onCourseCreated(new CourseCreatedEvent(
+                    new CourseResponseDTO(7L, "Структурное программирование", 30, 0, now, now.plusDays(1), "Europe/Moscow")));
+            courseSearchIndex.onCourseDeleted(new CourseDeletedEvent(5L));
+            return List.<Object[]>of(new Object[]{5L, "Алгоритмы и структуры данных"});
+        });
+        courseSearchIndex.reload();
+
+        assertEquals(List.of(7L), search("структур"));
+        assertEquals(1, courseSearchIndex.size());
+    }
+}
@@ -0,0 +1,230 @@
+package system_for_the_university;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import system_for_the_university.entity.Course;
+import system_for_the_university.entity.CourseSeatSlot;
+import system_for_the_university.repository.CourseRepository;
+import system_for_the_university.repository.CourseSeatSlotRepository;
+import system_for_the_university.repository.RegistrationRepository;
+import system_for_the_university.service.CourseSeatService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class CourseSeatServiceTest {
+    @Mock
+    CourseSeatSlotRepository slotRepository;
+
+    @Mock
+    CourseRepository courseRepository;
+
+    @Mock
+    RegistrationRepository registrationRepository;
+
+    @InjectMocks
+    CourseSeatService courseSeatService;
+
+    LocalDateTime now = LocalDateTime.now();
+
+    private Course course(int capacity) {
+        Course course = new Course("Math", capacity, now.minusDays(1), now.plusDays(1));
+        course.setId(1L);
+        return course;
+    }
+
+    private List<Object[]> rows(Object[] row) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(row);
+        return rows;
+    }
+
+    @Test
+    @DisplayName("Вместимость большого курса делится на слоты поровну, маленький курс остаётся одним слотом")
+    void testSplit() {
+        assertEquals(1, CourseSeatSlot.split(course(30), 30).size());
+
+        List<CourseSeatSlot> slots = CourseSeatSlot.split(course(1001), 1001);
+
+        log.info("Проверка числа и вместимости слотов");
+        assertEquals(4, slots.size());
+        assertEquals(List.of(251, 250, 250, 250), slots.stream().map(CourseSeatSlot::getCapacity).toList());
+        assertEquals(CourseSeatSlot.MAX_SLOTS, CourseSeatSlot.split(course(100_000), 100_000).size());
+    }
+
+    @Test
+    @DisplayName("Место занимается в свободном слоте без блокировки остальных")
+    void testClaim_FreeSlot() {
+        Course course = course(1000);
+        CourseSeatSlot slot = course.getSeatSlots().get(2);
+        when(slotRepository.findFreeSkipLocked(eq(1L), anyInt(), any())).thenReturn(List.of(slot));
+
+        assertTrue(courseSeatService.claim(course));
+
+        assertEquals(1, slot.getOccupied());
+        verify(slotRepository, never()).findAllByCourseIdForUpdate(any());
+        verify(courseRepository).addOccupiedSeats(1L, 1);
+    }
+
+    @Test
+    @DisplayName("Когда свободные слоты кончились, места перераспределяются и заявка всё равно получает место")
+    void testClaim_RebalancesWhenSlotsRunDry() {
+        Course course = course(1000);
+        List<CourseSeatSlot> slots = course.getSeatSlots();
+        // Три слота заполнены, в последнем остались два места
+        slots.forEach(slot -> slot.setOccupied(slot.getCapacity()));
+        slots.get(3).setOccupied(248);
+        when(slotRepository.findFreeSkipLocked(eq(1L), anyInt(), any())).thenReturn(List.of());
+        when(slotRepository.findAllByCourseIdForUpdate(1L)).thenReturn(slots);
+
+        assertTrue(courseSeatService.claim(course));
+
+        log.info("Проверка, что занятые места точные, а оставшееся место досталось другому слоту");
+        assertEquals(1, CourseSeatService.free(slots));
+        assertEquals(1000, slots.stream().mapToInt(CourseSeatSlot::getCapacity).sum(), "Вместимость курса изменилась");
+        assertEquals(1, slots.stream().filter(slot -> slot.free() > 0).count());
+    }
+
+    @Test
+    @DisplayName("Заполненный курс отклоняется только после проверки всех слотов")
+    void testClaim_CourseFull() {
+        Course course = course(600);
+        List<CourseSeatSlot> slots = course.getSeatSlots();
+        slots.forEach(slot -> slot.setOccupied(slot.getCapacity()));
+        when(slotRepository.findFreeSkipLocked(eq(1L), anyInt(), any())).thenReturn(List.of());
+        when(slotRepository.findAllByCourseIdForUpdate(1L)).thenReturn(slots);
+
+        assertFalse(courseSeatService.claim(course));
+        assertEquals(600, slots.stream().mapToInt(CourseSeatSlot::getOccupied).sum());
+    }
+
+    @Test
+    @DisplayName("Пакет занимает места в нескольких слотах, свободные места после этого выравниваются")
+    void testOccupy_SpreadsAcrossSlots() {
+        List<CourseSeatSlot> slots = course(1000).getSeatSlots();
+
+        courseSeatService.occupy(slots, 260);
+
+        assertEquals(740, CourseSeatService.free(slots));
+        assertEquals(List.of(185, 185, 185, 185), slots.stream().map(CourseSeatSlot::free).toList());
+        assertThrows(IllegalStateException.class, () -> courseSeatService.occupy(slots, 741));
+    }
+
+    @Test
+    @DisplayName("Сверка при старте создаёт слоты старым курсам и исправляет разошедшиеся")
+    void testSyncAll() {
+        Course legacy = course(10);
+        legacy.setSeatSlots(new ArrayList<>());
+        Course drifted = course(1000);
+        drifted.setId(2L);
+        List<CourseSeatSlot> driftedSlots = drifted.getSeatSlots();
+        driftedSlots.get(0).setOccupied(5);
+
+        List<Object[]> counts = rows(new Object[]{1L, 4L});
+        counts.add(new Object[]{2L, 700L});
+        when(registrationRepository.countByCourse()).thenReturn(counts);
+        when(slotRepository.summarizeByCourse()).thenReturn(rows(new Object[]{2L, 5L, 1000L}));
+        when(courseRepository.findAll()).thenReturn(List.of(legacy, drifted));
+        when(slotRepository.findAllByCourseIdForUpdate(2L)).thenReturn(driftedSlots);
+        when(registrationRepository.countByCourseId(2L)).thenReturn(700L);
+
+        courseSeatService.syncAll();
+
+        log.info("Проверка слотов курса без слотов");
+        verify(slotRepository).saveAll(argThat((List<CourseSeatSlot> created) -> created.size() == 1
+                && created.get(0).getCapacity() == 10 && created.get(0).getOccupied() == 4));
+        log.info("Проверка пересчитанных слотов");
+        assertEquals(700, driftedSlots.stream().mapToInt(CourseSeatSlot::getOccupied).sum());
+        assertEquals(1000, driftedSlots.stream().mapToInt(CourseSeatSlot::getCapacity).sum());
+        assertEquals(List.of(75, 75, 75, 75), driftedSlots.stream().map(CourseSeatSlot::free).toList());
+    }
+
+    @Test
+    @DisplayName("Сверка пересчитывает слоты по записям, посчитанным под блокировкой слотов, а не по сводке")
+    void testSyncAll_RecountsUnderSlotLock() {
+        Course course = course(10);
+        List<CourseSeatSlot> slots = course.getSeatSlots();
+        slots.get(0).setOccupied(5);
+
+        // Записи посчитаны до коммита параллельной записи, а слоты уже после него
+        when(registrationRepository.countByCourse()).thenReturn(rows(new Object[]{1L, 4L}));
+        when(slotRepository.summarizeByCourse()).thenReturn(rows(new Object[]{1L, 5L, 10L}));
+        when(courseRepository.findAll()).thenReturn(List.of(course));
+        when(slotRepository.findAllByCourseIdForUpdate(1L)).thenReturn(slots);
+        when(registrationRepository.countByCourseId(1L)).thenReturn(5L);
+
+        courseSeatService.syncAll();
+
+        log.info("Проверка, что верные слоты не перезаписаны устаревшей сводкой");
+        assertEquals(5, slots.get(0).getOccupied());
+        verify(slotRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("Занятые места копятся за транзакцию и пишутся в строку курса перед коммитом по порядку id")
+    void testOccupiedSeats_WrittenBeforeCommit() {
+        Course math = course(10);
+        math.setId(2L);
+        Course physics = course(10);
+        when(slotRepository.findFreeSkipLocked(anyLong(), anyInt(), any()))
+                .thenAnswer(invocation -> List.of(invocation.getArgument(0, Long.class) == 2L
+                        ? math.getSeatSlots().get(0) : physics.getSeatSlots().get(0)));
+        when(slotRepository.findOccupiedSkipLocked(eq(2L), anyInt(), any())).thenReturn(math.getSeatSlots());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            courseSeatService.claim(math);
+            courseSeatService.claim(math);
+            courseSeatService.claim(physics);
+            courseSeatService.release(math);
+            verify(courseRepository, never()).addOccupiedSeats(anyLong(), anyInt());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.beforeCommit(false));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        log.info("Проверка одного UPDATE на курс в порядке id");
+        InOrder updates = inOrder(courseRepository);
+        updates.verify(courseRepository).addOccupiedSeats(1L, 1);
+        updates.verify(courseRepository).addOccupiedSeats(2L, 1);
+        verifyNoMoreInteractions(courseRepository);
+        assertNull(TransactionSynchronizationManager.getResource(courseSeatService));
+    }
+
+    @Test
+    @DisplayName("Сверка исправляет колонку занятых мест курса, даже если слоты сходятся с записями")
+    void testSyncAll_FixesOccupiedSeatsColumn() {
+        Course course = course(10);
+        course.setOccupiedSeats(7);
+        List<CourseSeatSlot> slots = course.getSeatSlots();
+        slots.get(0).setOccupied(4);
+
+        when(registrationRepository.countByCourse()).thenReturn(rows(new Object[]{1L, 4L}));
+        when(slotRepository.summarizeByCourse()).thenReturn(rows(new Object[]{1L, 4L, 10L}));
+        when(courseRepository.findAll()).thenReturn(List.of(course));
+        when(slotRepository.findAllByCourseIdForUpdate(1L)).thenReturn(slots);
+        when(registrationRepository.countByCourseId(1L)).thenReturn(4L);
+
+        courseSeatService.syncAll();
+
+        verify(courseRepository).setOccupiedSeats(1L, 4);
+        verify(slotRepository, never()).saveAll(any());
+    }
+}
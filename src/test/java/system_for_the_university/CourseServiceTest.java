@@ -6,21 +6,29 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 import system_for_the_university.DTO.request.CourseRequestDTO;
 import system_for_the_university.DTO.response.CourseResponseDTO;
 import system_for_the_university.entity.Course;
+import system_for_the_university.event.CourseCreatedEvent;
 import system_for_the_university.repository.CourseRepository;
 import system_for_the_university.repository.RegistrationRepository;
+import system_for_the_university.service.CourseCatalogCache;
+import system_for_the_university.service.CourseSearchIndex;
 import system_for_the_university.service.CourseService;
+import system_for_the_university.service.CourseWindowIndex;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -32,6 +40,18 @@ class CourseServiceTest {
     @Mock
     private CourseRepository courseRepository;
 
+    @Mock
+    private CourseCatalogCache courseCatalogCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private CourseWindowIndex courseWindowIndex;
+
+    @Mock
+    private CourseSearchIndex courseSearchIndex;
+
     // Внедряю связь с моком репозитория так как в проверяемые методы в сервисе взаимодейстуют с репозиторием
     @InjectMocks
     private CourseService courseService;
@@ -80,6 +100,8 @@ class CourseServiceTest {
 
         // Проверяю, что метод вызывался только один раз
         verify(courseRepository, times(1)).save(any(Course.class));
+        // Созданный курс должен сбросить закэшированный каталог
+        verify(eventPublisher).publishEvent(any(CourseCreatedEvent.class));
     }
 
     @Test
@@ -106,43 +128,75 @@ class CourseServiceTest {
 
     @Test
     void testGetAvailableCourses_Filtering() {
-        log.info("Запуск теста на проверку вывода отфильтрованных курсов");
-
-
-        log.debug("Создание тестовых курсов");
-        // Создаю 3 вида курсов и только 1 с валидными данными для проверки вывода по запросу
-        Course validCourse = new Course("Math", 30, past, future);
-        validCourse.setId(1L);
-        Course overregCourse = new Course("Physics", 10, now, future);
-        overregCourse.setId(2L);
-        Course nonStartRegCourse = new Course("Physics", 25, past.minusDays(2), past.minusDays(1));
-        nonStartRegCourse.setId(3L);
+        log.info("Запуск теста на проверку вывода доступных курсов");
 
-        log.debug("Настройка мока для списка курсов");
-        // Мокаю чтобы потом вернуть заготовленный список
-        when(courseRepository.findAll()).thenReturn(List.of(validCourse, overregCourse, nonStartRegCourse));
+        log.debug("Создание ответа репозитория");
+        // Фильтрация теперь выполняется запросом в БД, поэтому репозиторий сразу возвращает DTO
+        CourseResponseDTO validCourse = new CourseResponseDTO(1L, "Math", 30, 10, past, future, "Europe/Moscow");
 
-        log.debug("Настройка мока для подсчета регистраций");
-        // Мокирую для подсчета регистраций на каждом курсе
-        when(courseRepository.countRegistrationsById(validCourse.getId())).thenReturn(10L);
-        when(courseRepository.countRegistrationsById(overregCourse.getId())).thenReturn(10L);
-        when(courseRepository.countRegistrationsById(nonStartRegCourse.getId())).thenReturn(10L);
+        ArgumentCaptor<LocalDateTime> nowCaptor = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(courseRepository.findAvailable(nowCaptor.capture())).thenReturn(List.of(validCourse));
 
         log.info("Вызов метода возвращающего список доступных курсов");
-        // Вызываем метод возвращающий доступные курсы
+        LocalDateTime before = LocalDateTime.now(ZoneId.of("Europe/Moscow"));
         List<CourseResponseDTO> resultCourses = courseService.getAvailableCourses();
+        LocalDateTime after = LocalDateTime.now(ZoneId.of("Europe/Moscow"));
 
-        log.info("Проверка результатов фильтрации");
-        // Проверяем, что вернулся 1 курс
+        log.info("Проверка результатов");
         assertEquals(1, resultCourses.size(), "Размер списка не совпадает с количеством доступных курсов");
-        // Проверяем что это тот курс который нам нужен
-        assertEquals(resultCourses.get(0).getName(), validCourse.getName(), "Возвращен неверный курс");
-        // Проверяем что у полученного курса есть свободные места
-        assertTrue(resultCourses.get(0).getCapacity() >
-                        courseRepository.countRegistrationsById(resultCourses.get(0).getId()),
-                "У полученного курса нет свобоных мест");
-        // Проверяем что курс доступен для записи
-        assertTrue(now.isAfter(resultCourses.get(0).getStartTime()));
-        assertTrue(now.isBefore(resultCourses.get(0).getEndTime()));
+        assertEquals(validCourse.getName(), resultCourses.get(0).getName(), "Возвращен неверный курс");
+        assertEquals(10, resultCourses.get(0).getOccupiedSeats(), "Занятые места не совпадают");
+
+        // Проверяем что в запрос передано московское время
+        assertFalse(nowCaptor.getValue().isBefore(before));
+        assertFalse(nowCaptor.getValue().isAfter(after));
+
+        // Проверяем что курсы не загружаются целиком и места не пересчитываются по одному
+        verify(courseRepository, times(1)).findAvailable(any());
+        verify(courseRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Доступные курсы берутся по индексу окон записи из кэша, без фильтрации в БД")
+    void testGetAvailableCourses_FromWindowIndex() {
+        CourseResponseDTO open = new CourseResponseDTO(1L, "Math", 30, 10, past, future, "Europe/Moscow");
+        CourseResponseDTO full = new CourseResponseDTO(2L, "Physic", 10, 10, past, future, "Europe/Moscow");
+        when(courseWindowIndex.refreshIfChanged()).thenReturn(true);
+        when(courseWindowIndex.openAt(any())).thenReturn(Optional.of(List.of(1L, 2L)));
+        when(courseCatalogCache.getCourses(eq(List.of(1L, 2L)), any())).thenReturn(List.of(open, full));
+
+        List<CourseResponseDTO> resultCourses = courseService.getAvailableCourses();
+
+        log.info("Проверка, что заполненный курс отфильтрован");
+        assertEquals(List.of(open), resultCourses);
+        verify(courseRepository, never()).findAvailable(any());
+    }
+
+    @Test
+    @DisplayName("Интервал для ближайших открытий ограничен")
+    void testGetUpcomingCourses_InvalidInterval() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> courseService.getUpcomingCourses(0));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(courseWindowIndex);
+    }
+
+    @Test
+    @DisplayName("Поиск отдаёт курсы из кэша в порядке ранга из индекса поиска")
+    void testSearchCourses() {
+        CourseResponseDTO programming = new CourseResponseDTO(2L, "Программирование", 30, 0, past, future, "Europe/Moscow");
+        CourseResponseDTO basics = new CourseResponseDTO(1L, "Основы программирования", 30, 0, past, future, "Europe/Moscow");
+        when(courseSearchIndex.search("прогр", 0, 20)).thenReturn(Optional.of(List.of(2L, 1L)));
+        when(courseCatalogCache.getCourses(eq(List.of(2L, 1L)), any())).thenReturn(List.of(programming, basics));
+
+        assertEquals(List.of(programming, basics), courseService.searchCourses("прогр", 0, 20));
+
+        log.info("Пустой запрос и слишком большая страница отклоняются до индекса");
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> courseService.searchCourses(" ", 0, 20)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> courseService.searchCourses("прогр", 0, 101)).getStatusCode());
+        verify(courseSearchIndex, times(1)).search(any(), anyInt(), anyInt());
     }
 }
@@ -0,0 +1,150 @@
+package system_for_the_university;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import system_for_the_university.DTO.response.CourseResponseDTO;
+import system_for_the_university.event.CourseCreatedEvent;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.repository.CourseRepository;
+import system_for_the_university.service.CourseWindowIndex;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class CourseWindowIndexTest {
+    @Mock
+    private CourseRepository courseRepository;
+
+    @InjectMocks
+    private CourseWindowIndex courseWindowIndex;
+
+    // Фиксированное время, чтобы проверять продвижение индекса без ожидания
+    LocalDateTime now = LocalDateTime.of(2025, 9, 1, 10, 0);
+
+    private void load(Object[]... rows) {
+        when(courseRepository.findWindowsEndingAfter(any())).thenReturn(List.of(rows));
+        courseWindowIndex.reload();
+    }
+
+    @Test
+    @DisplayName("Пока индекс не загружен, решение остаётся за БД")
+    void testOpenAt_NotLoaded() {
+        assertTrue(courseWindowIndex.openAt(now).isEmpty());
+        assertTrue(courseWindowIndex.opensBetween(now, now.plusHours(1)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Окна открываются и закрываются по мере хода времени")
+    void testOpenAt_AdvancesWithTime() {
+        load(new Object[]{1L, now.minusHours(1), now.plusHours(1)},
+                new Object[]{2L, now.plusMinutes(30), now.plusHours(5)},
+                new Object[]{3L, now.plusDays(1), now.plusDays(2)});
+
+        log.info("Проверка открытых курсов в разные моменты времени");
+        assertEquals(List.of(1L), courseWindowIndex.openAt(now).orElseThrow());
+        assertEquals(List.of(1L, 2L), courseWindowIndex.openAt(now.plusMinutes(30)).orElseThrow());
+        // Конец окна не включается
+        assertEquals(List.of(2L), courseWindowIndex.openAt(now.plusHours(1)).orElseThrow());
+        assertEquals(List.of(), courseWindowIndex.openAt(now.plusHours(6)).orElseThrow());
+        // Закончившиеся окна из индекса удаляются
+        assertTrue(courseWindowIndex.window(1L).isEmpty());
+        assertEquals(1, courseWindowIndex.size());
+    }
+
+    @Test
+    @DisplayName("Ближайшие открытия в порядке времени начала записи")
+    void testOpensBetween_OrderedByStart() {
+        load(new Object[]{1L, now.plusMinutes(50), now.plusDays(1)},
+                new Object[]{2L, now.plusMinutes(10), now.plusDays(1)},
+                new Object[]{3L, now.plusHours(2), now.plusDays(1)},
+                new Object[]{4L, now.minusHours(1), now.plusDays(1)});
+
+        assertEquals(List.of(2L, 1L), courseWindowIndex.opensBetween(now, now.plusHours(1)).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Созданный и удалённый курс сразу отражаются в индексе")
+    void testEvents_UpdateIndex() {
+        load();
+        courseWindowIndex.onCourseCreated(new CourseCreatedEvent(new CourseResponseDTO(7L, "Math", 30, 0,
+                now.minusHours(1), now.plusHours(1), "Europe/Moscow")));
+
+        assertEquals(List.of(7L), courseWindowIndex.openAt(now).orElseThrow());
+        assertTrue(courseWindowIndex.window(7L).orElseThrow().isOpenAt(now));
+
+        courseWindowIndex.onCourseDeleted(new CourseDeletedEvent(7L));
+        assertEquals(List.of(), courseWindowIndex.openAt(now).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Курс, созданный или удалённый во время перезагрузки, не теряется и не воскресает")
+    void testReload_ReplaysConcurrentChanges() {
+        load(new Object[]{1L, now.minusHours(1), now.plusHours(1)});
+
+        // Снимок из БД сделан до коммитов: в нём ещё есть курс 1 и нет курса 2
+        when(courseRepository.findWindowsEndingAfter(any())).thenAnswer(invocation -> {
+            courseWindowIndex.onCourseCreated(new CourseCreatedEvent(new CourseResponseDTO(2L, "Physic", 30, 0,
+                    now.minusHours(1), now.plusHours(1), "Europe/Moscow")));
+            courseWindowIndex.onCourseDeleted(new CourseDeletedEvent(1L));
+            return List.<Object[]>of(new Object[]{1L, now.minusHours(1), now.plusHours(1)});
+        });
+        courseWindowIndex.reload();
+
+        assertEquals(List.of(2L), courseWindowIndex.openAt(now).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Пока таблица курсов не менялась, индекс не перечитывается")
+    void testRefreshIfChanged_SameStamp() {
+        when(courseRepository.findCountAndMaxId()).thenReturn(List.<Object[]>of(new Object[]{1L, 1L}));
+        load(new Object[]{1L, now.minusHours(1), now.plusHours(1)});
+
+        assertTrue(courseWindowIndex.refreshIfChanged());
+        verify(courseRepository, times(1)).findWindowsEndingAfter(any());
+    }
+
+    @Test
+    @DisplayName("Курс, созданный на другом экземпляре, подхватывается при следующей проверке")
+    void testRefreshIfChanged_CourseCreatedElsewhere() {
+        when(courseRepository.findCountAndMaxId()).thenReturn(List.<Object[]>of(new Object[]{1L, 1L}));
+        load(new Object[]{1L, now.minusHours(1), now.plusHours(1)});
+
+        // Другой экземпляр создал курс 2, событие до этого экземпляра не дошло
+        when(courseRepository.findCountAndMaxId()).thenReturn(List.<Object[]>of(new Object[]{2L, 2L}));
+        when(courseRepository.findWindowsEndingAfter(any())).thenReturn(List.of(
+                new Object[]{1L, now.minusHours(1), now.plusHours(1)},
+                new Object[]{2L, now.minusHours(1), now.plusHours(1)}));
+
+        assertTrue(courseWindowIndex.refreshIfChanged());
+        assertEquals(List.of(1L, 2L), courseWindowIndex.openAt(now).orElseThrow());
+        // Отпечаток обновился вместе с окнами, повторная проверка индекс не перечитывает
+        assertTrue(courseWindowIndex.refreshIfChanged());
+        verify(courseRepository, times(2)).findWindowsEndingAfter(any());
+    }
+
+    @Test
+    @DisplayName("Пока индекс не загружен, проверка отправляет запрос в БД")
+    void testRefreshIfChanged_NotLoaded() {
+        assertFalse(courseWindowIndex.refreshIfChanged());
+        verify(courseRepository, never()).findCountAndMaxId();
+    }
+
+    @Test
+    @DisplayName("Окно открыто с начала включительно до конца не включительно")
+    void testIsOpen_HalfOpenWindow() {
+        assertTrue(CourseWindowIndex.isOpen(now, now.plusHours(1), now));
+        assertTrue(CourseWindowIndex.isOpen(now, now.plusHours(1), now.plusMinutes(59)));
+        assertFalse(CourseWindowIndex.isOpen(now, now.plusHours(1), now.plusHours(1)));
+        assertFalse(CourseWindowIndex.isOpen(now, now.plusHours(1), now.minusNanos(1)));
+    }
+}
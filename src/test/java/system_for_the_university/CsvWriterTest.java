@@ -0,0 +1,39 @@
+package system_for_the_university;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import system_for_the_university.service.CsvWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class CsvWriterTest {
+    private final CsvWriter csvWriter = new CsvWriter();
+
+    @Test
+    @DisplayName("CSV экранирует запятые, кавычки и переводы строк и не пропускает формулы")
+    void testWrite_Escaping() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = csvWriter.write(Stream.of(
+                        new String[]{"Иванов, Иван", "ivan@mail.ru"},
+                        new String[]{"Пётр \"Петя\"", null},
+                        new String[]{"=HYPERLINK(\"x\")", "строка\nперенос"}),
+                List.of("name", "email"), row -> Arrays.asList(row[0], row[1]), out);
+
+        log.info("Проверка строк CSV");
+        assertEquals(3, written);
+        assertEquals("name,email\r\n"
+                        + "\"Иванов, Иван\",ivan@mail.ru\r\n"
+                        + "\"Пётр \"\"Петя\"\"\",\r\n"
+                        + "\"'=HYPERLINK(\"\"x\"\")\",\"строка\nперенос\"\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,141 @@
+package system_for_the_university;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.RegistrationResponseDTO;
+import system_for_the_university.entity.IdempotencyRecord;
+import system_for_the_university.repository.IdempotencyRecordRepository;
+import system_for_the_university.service.IdempotencyStore;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+    @Mock
+    IdempotencyRecordRepository idempotencyRecordRepository;
+
+    ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    IdempotencyStore idempotencyStore;
+
+    LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        idempotencyStore = new IdempotencyStore(idempotencyRecordRepository, objectMapper, 24, 2);
+    }
+
+    private RegistrationResponseDTO response(long id) {
+        return new RegistrationResponseDTO(id, 1L, "Иван", 2L, "Math", now);
+    }
+
+    @Test
+    @DisplayName("Сохранённый ответ отдаётся из памяти без обращения к БД")
+    void testFindCached_AfterSave() {
+        RegistrationRequestDTO request = new RegistrationRequestDTO(1L, 2L);
+
+        idempotencyStore.save("key-1", request, response(10L));
+
+        log.info("Проверка повтора по тому же ключу");
+        assertEquals(10L, idempotencyStore.findCached("key-1", request).orElseThrow().getId());
+        verify(idempotencyRecordRepository).updateResponse(eq("key-1"), anyString(), any());
+        verify(idempotencyRecordRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("После перезапуска ответ берётся из БД")
+    void testFind_FallsBackToDatabase() throws Exception {
+        RegistrationRequestDTO request = new RegistrationRequestDTO(1L, 2L);
+        IdempotencyRecord record = new IdempotencyRecord("key-1", 1L, 2L,
+                objectMapper.writeValueAsString(response(10L)), now.plusHours(1));
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(record));
+
+        assertEquals(10L, idempotencyStore.find("key-1", request).orElseThrow().getId());
+        // Второй повтор уже из памяти
+        assertTrue(idempotencyStore.findCached("key-1", request).isPresent());
+        verify(idempotencyRecordRepository, times(1)).findById("key-1");
+    }
+
+    @Test
+    @DisplayName("Просроченный ключ в БД не используется")
+    void testFind_IgnoresExpiredRecord() {
+        IdempotencyRecord record = new IdempotencyRecord("key-1", 1L, 2L, "{}", now.minusMinutes(1));
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(record));
+
+        assertTrue(idempotencyStore.find("key-1", new RegistrationRequestDTO(1L, 2L)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Ключ от другой заявки отклоняется")
+    void testFindCached_OtherRequest() {
+        idempotencyStore.save("key-1", new RegistrationRequestDTO(1L, 2L), response(10L));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> idempotencyStore.findCached("key-1", new RegistrationRequestDTO(1L, 3L)));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, exception.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Память ограничена по числу ключей")
+    void testSave_BoundedMemory() {
+        RegistrationRequestDTO request = new RegistrationRequestDTO(1L, 2L);
+        idempotencyStore.save("key-1", request, response(1L));
+        idempotencyStore.save("key-2", request, response(2L));
+        idempotencyStore.save("key-3", request, response(3L));
+
+        assertEquals(2, idempotencyStore.size());
+        assertTrue(idempotencyStore.findCached("key-1", request).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Первый запрос занимает ключ вставкой до записи")
+    void testClaim_FreeKey() {
+        RegistrationRequestDTO request = new RegistrationRequestDTO(1L, 2L);
+        when(idempotencyRecordRepository.insertIfAbsent(eq("key-1"), eq(1L), eq(2L), any())).thenReturn(1);
+
+        assertTrue(idempotencyStore.claim("key-1", request).isEmpty());
+        verify(idempotencyRecordRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Параллельный первый запрос с тем же ключом получает ответ того, кто занял ключ")
+    void testClaim_LoserReplaysStoredResponse() throws Exception {
+        RegistrationRequestDTO request = new RegistrationRequestDTO(1L, 2L);
+        // Вставка дождалась коммита первого запроса и ничего не вставила
+        when(idempotencyRecordRepository.insertIfAbsent(eq("key-1"), eq(1L), eq(2L), any())).thenReturn(0);
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(new IdempotencyRecord("key-1",
+                1L, 2L, objectMapper.writeValueAsString(response(10L)), now.plusHours(1))));
+
+        assertEquals(10L, idempotencyStore.claim("key-1", request).orElseThrow().getId());
+    }
+
+    @Test
+    @DisplayName("Просроченный ключ, который ещё не удалила очистка, занимается заново")
+    void testClaim_ExpiredKey() {
+        RegistrationRequestDTO request = new RegistrationRequestDTO(1L, 2L);
+        IdempotencyRecord expired = new IdempotencyRecord("key-1", 1L, 3L, "{}", now.minusMinutes(1));
+        when(idempotencyRecordRepository.insertIfAbsent(eq("key-1"), eq(1L), eq(2L), any())).thenReturn(0, 1);
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(expired));
+
+        assertTrue(idempotencyStore.claim("key-1", request).isEmpty());
+        verify(idempotencyRecordRepository).delete(expired);
+    }
+}
@@ -0,0 +1,88 @@
+package system_for_the_university;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import system_for_the_university.config.DataSourceRouting;
+import system_for_the_university.config.ReadWriteRoutingDataSource;
+import system_for_the_university.config.ReplicaLagMonitor;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+class ReadWriteRoutingDataSourceTest {
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    private TestRoutingDataSource routing(boolean replicaUsable) {
+        ReplicaLagMonitor monitor = mock(ReplicaLagMonitor.class);
+        when(monitor.isReplicaUsable()).thenReturn(replicaUsable);
+        TestRoutingDataSource routing = new TestRoutingDataSource(monitor);
+        routing.setTargetDataSources(Map.of(
+                DataSourceRouting.Target.WRITE, mock(DataSource.class),
+                DataSourceRouting.Target.PRIMARY_READ, mock(DataSource.class),
+                DataSourceRouting.Target.REPLICA_READ, mock(DataSource.class)));
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    @Test
+    @DisplayName("Пишущая транзакция идёт в пул записи")
+    void testWriteTransaction_RoutesToWritePool() {
+        assertEquals(DataSourceRouting.Target.WRITE, routing(true).key());
+    }
+
+    @Test
+    @DisplayName("readOnly-транзакция читает с реплики, пока она не отстаёт")
+    void testReadOnlyTransaction_RoutesToReplica() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(DataSourceRouting.Target.REPLICA_READ, routing(true).key());
+    }
+
+    @Test
+    @DisplayName("При отставании реплики чтение уходит на основную БД")
+    void testReplicaLagging_FallsBackToPrimary() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(DataSourceRouting.Target.PRIMARY_READ, routing(false).key());
+    }
+
+    @Test
+    @DisplayName("Чтение для учёта в памяти идёт на основную БД даже при живой реплике")
+    void testOnPrimary_OverridesReplica() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        TestRoutingDataSource routing = routing(true);
+
+        Object key = DataSourceRouting.onPrimary(routing::key);
+
+        assertEquals(DataSourceRouting.Target.PRIMARY_READ, key);
+        log.info("Проверка, что после выхода из onPrimary снова читается реплика");
+        assertEquals(DataSourceRouting.Target.REPLICA_READ, routing.key());
+    }
+
+    @Test
+    @DisplayName("Без реплики монитор не разрешает чтение с неё")
+    void testMonitorWithoutReplica_NotUsable() {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(null, 5000);
+        monitor.check();
+        assertFalse(monitor.isReplicaUsable());
+    }
+
+    private static final class TestRoutingDataSource extends ReadWriteRoutingDataSource {
+        private TestRoutingDataSource(ReplicaLagMonitor replicaLagMonitor) {
+            super(replicaLagMonitor);
+        }
+
+        private Object key() {
+            return determineCurrentLookupKey();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package system_for_the_university;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.service.RegistrationAdmissionQueue;
+import system_for_the_university.service.SeatLedger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+class RegistrationAdmissionQueueTest {
+    private final SeatLedger seatLedger = mock(SeatLedger.class);
+    private final RegistrationAdmissionQueue admissionQueue = new RegistrationAdmissionQueue(true, 2, 5000, 1000,
+            new StandardEnvironment(), seatLedger);
+
+    // Курсы 1 и 2 существуют, остальных нет
+    @BeforeEach
+    void setUp() {
+        when(seatLedger.isTracked(1L)).thenReturn(true);
+        when(seatLedger.isTracked(2L)).thenReturn(true);
+    }
+    private final ExecutorService clients = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        clients.shutdownNow();
+        admissionQueue.shutdown();
+    }
+
+    @Test
+    @DisplayName("Заявки на один курс выполняются по одной в порядке поступления")
+    void testAdmit_SerializesPerCourse() throws Exception {
+        RegistrationAdmissionQueue queue = new RegistrationAdmissionQueue(true, 100, 5000, 1000,
+                new StandardEnvironment(), seatLedger);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+        for (int i = 0; i < 20; i++) {
+            int number = i;
+            queue.admit(1L, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                order.add(number);
+                running.decrementAndGet();
+                return number;
+            });
+        }
+
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(clients.submit(() -> queue.admit(1L, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                running.decrementAndGet();
+                return 0;
+            })));
+        }
+        for (Future<Integer> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        queue.shutdown();
+
+        log.info("Проверка, что по курсу одновременно выполнялась одна заявка");
+        assertEquals(1, maxRunning.get());
+        assertEquals(20, order.size());
+        for (int i = 0; i < order.size(); i++) {
+            assertEquals(i, order.get(i), "Нарушен порядок поступления заявок");
+        }
+    }
+
+    @Test
+    @DisplayName("Заявки сверх глубины очереди сразу получают отказ")
+    void testAdmit_RejectsBeyondQueueDepth() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        // Первая заявка занимает поток курса, ещё две заполняют очередь глубиной 2
+        List<Future<Object>> queued = new ArrayList<>();
+        queued.add(clients.submit(() -> admissionQueue.admit(1L, () -> {
+            started.countDown();
+            await(blocker);
+            return null;
+        })));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        queued.add(clients.submit(() -> admissionQueue.admit(1L, () -> null)));
+        queued.add(clients.submit(() -> admissionQueue.admit(1L, () -> null)));
+        while (admissionQueue.queuedRequests(1L) < 2) {
+            Thread.sleep(10);
+        }
+
+        log.info("Проверка отказа для заявки сверх очереди");
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> admissionQueue.admit(1L, () -> null));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatusCode());
+
+        // Другой курс обслуживается независимо
+        assertEquals("ok", admissionQueue.admit(2L, () -> "ok"));
+
+        blocker.countDown();
+        for (Future<Object> future : queued) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    @DisplayName("Ошибка заявки пробрасывается вызывающему без обёртки")
+    void testAdmit_PropagatesResponseStatus() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> admissionQueue.admit(1L, () -> {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Нет свободных мест для записи");
+                }));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Для несуществующего курса исполнитель не создаётся, заявка выполняется сразу")
+    void testAdmit_UnknownCourseRunsInline() {
+        for (long courseId = 1000; courseId < 1100; courseId++) {
+            assertEquals(Thread.currentThread().getName(),
+                    admissionQueue.admit(courseId, () -> Thread.currentThread().getName()));
+        }
+        assertEquals(0, admissionQueue.courseExecutors());
+    }
+
+    @Test
+    @DisplayName("Исполнитель удалённого или простаивающего курса убирается, следующая заявка получает новый")
+    void testEvict_DeletedAndIdle() throws Exception {
+        assertEquals("ok", admissionQueue.admit(1L, () -> "ok"));
+        assertEquals("ok", admissionQueue.admit(2L, () -> "ok"));
+        assertEquals(2, admissionQueue.courseExecutors());
+
+        admissionQueue.onCourseDeleted(new CourseDeletedEvent(1L));
+        assertEquals(1, admissionQueue.courseExecutors());
+
+        log.info("Поток курса 2 завершается по простою через секунду");
+        while (admissionQueue.courseExecutors() > 0) {
+            Thread.sleep(100);
+            admissionQueue.evictIdle();
+        }
+        assertEquals("again", admissionQueue.admit(2L, () -> "again"));
+        assertEquals(1, admissionQueue.courseExecutors());
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    @DisplayName("С включёнными виртуальными потоками заявки курса выполняются в виртуальном потоке")
+    void testAdmit_VirtualThreads() throws Exception {
+        RegistrationAdmissionQueue queue = new RegistrationAdmissionQueue(true, 2, 5000, 1000,
+                new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true"), seatLedger);
+        try {
+            Thread thread = queue.admit(1L, Thread::currentThread);
+            // Проект собирается под Java 17, поэтому Thread.isVirtual вызывается через отражение
+            assertEquals(true, Thread.class.getMethod("isVirtual").invoke(thread));
+            assertTrue(thread.getName().startsWith("admission-course-1-"));
+        } finally {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    @DisplayName("До Java 21 настройка виртуальных потоков игнорируется, поток курса платформенный")
+    void testAdmit_VirtualThreadsIgnoredBeforeJava21() {
+        RegistrationAdmissionQueue queue = new RegistrationAdmissionQueue(true, 2, 5000, 1000,
+                new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true"), seatLedger);
+        try {
+            Thread thread = queue.admit(1L, Thread::currentThread);
+            assertEquals("admission-course-1", thread.getName());
+            assertTrue(thread.isDaemon());
+        } finally {
+            queue.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package system_for_the_university;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.DTO.response.JournalEntryDTO;
+import system_for_the_university.DTO.response.JournalPageDTO;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.event.RegistrationCancelledEvent;
+import system_for_the_university.event.RegistrationCreatedEvent;
+import system_for_the_university.service.NdjsonWriter;
+import system_for_the_university.service.RegistrationJournal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class RegistrationJournalTest {
+    // Сегмент на три события, чтобы смена сегментов проверялась на нескольких записях
+    private static final int SEGMENT_BYTES = 3 * 40;
+
+    @TempDir
+    Path directory;
+
+    NdjsonWriter ndjsonWriter = new NdjsonWriter(new ObjectMapper().registerModule(new JavaTimeModule()));
+
+    private RegistrationJournal journal(int retainedSegments) throws IOException {
+        return new RegistrationJournal(ndjsonWriter, directory.toString(), SEGMENT_BYTES, retainedSegments, 1000);
+    }
+
+    private static void register(RegistrationJournal journal, long registrationId) {
+        journal.onRegistrationCreated(new RegistrationCreatedEvent(registrationId, 100 + registrationId, 7L, LocalDateTime.now()));
+    }
+
+    private static List<Long> registrationIds(JournalPageDTO page) {
+        return page.getEntries().stream().map(JournalEntryDTO::getRegistrationId).toList();
+    }
+
+    @Test
+    @DisplayName("События читаются по смещению порциями, nextOffset продолжает чтение")
+    void testRead() throws IOException {
+        RegistrationJournal journal = journal(10);
+        register(journal, 1L);
+        journal.onRegistrationCancelled(new RegistrationCancelledEvent(1L, 101L, 7L));
+        journal.onCourseDeleted(new CourseDeletedEvent(7L));
+
+        JournalPageDTO first = journal.read(0, 2);
+        assertEquals(2, first.getNextOffset());
+        assertEquals(JournalEntryDTO.Type.REGISTRATION_CREATED, first.getEntries().get(0).getType());
+        assertEquals(101L, first.getEntries().get(0).getStudentId());
+        assertEquals(JournalEntryDTO.Type.REGISTRATION_CANCELLED, first.getEntries().get(1).getType());
+
+        log.info("Продолжение со смещения {}", first.getNextOffset());
+        JournalPageDTO second = journal.read(first.getNextOffset(), 2);
+        assertEquals(1, second.getEntries().size());
+        JournalEntryDTO courseDeleted = second.getEntries().get(0);
+        assertEquals(2, courseDeleted.getOffset());
+        assertEquals(JournalEntryDTO.Type.COURSE_DELETED, courseDeleted.getType());
+        assertNull(courseDeleted.getRegistrationId());
+        assertNull(courseDeleted.getStudentId());
+        assertEquals(7L, courseDeleted.getCourseId());
+        assertEquals(3, second.getNextOffset());
+        assertTrue(journal.read(3, 10).getEntries().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Заполненный сегмент сменяется новым, старые сегменты сверх лимита удаляются")
+    void testRotation_Retention() throws IOException {
+        RegistrationJournal journal = journal(2);
+        for (long id = 1; id <= 7; id++) {
+            register(journal, id);
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+        JournalPageDTO page = journal.read(0, 100);
+        log.info("Первое хранимое смещение: {}", page.getFirstOffset());
+        assertEquals(3, page.getFirstOffset());
+        assertEquals(List.of(4L, 5L, 6L, 7L), registrationIds(page));
+        assertEquals(7, page.getNextOffset());
+    }
+
+    @Test
+    @DisplayName("После перезапуска журнал продолжается с конца, недописанная запись отбрасывается")
+    void testReopen() throws IOException {
+        RegistrationJournal journal = journal(10);
+        for (long id = 1; id <= 5; id++) {
+            register(journal, id);
+        }
+        journal.close();
+
+        // Пятое событие повреждено, как при сбое питания посреди записи страницы
+        try (RandomAccessFile segment = new RandomAccessFile(directory.resolve("00000000000000000003.journal").toFile(), "rw")) {
+            segment.seek(40 + 10);
+            segment.write(0xFF);
+        }
+
+        RegistrationJournal reopened = journal(10);
+        assertEquals(4, reopened.nextOffset());
+        register(reopened, 6L);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 6L), registrationIds(reopened.read(0, 100)));
+    }
+
+    @Test
+    @DisplayName("Потребитель в конце журнала получает новое событие, как только оно записано")
+    void testTail() throws Exception {
+        RegistrationJournal journal = journal(10);
+        register(journal, 1L);
+
+        CompletableFuture<JournalPageDTO> waiting = journal.tail(1, 10, 5000);
+        assertFalse(waiting.isDone());
+        register(journal, 2L);
+        JournalPageDTO page = waiting.get(1, TimeUnit.SECONDS);
+        assertEquals(List.of(2L), registrationIds(page));
+        assertEquals(2, page.getNextOffset());
+
+        log.info("Без новых событий ожидание заканчивается пустой порцией");
+        JournalPageDTO empty = journal.tail(2, 10, 50).get(1, TimeUnit.SECONDS);
+        assertTrue(empty.getEntries().isEmpty());
+        assertEquals(2, empty.getNextOffset());
+    }
+
+    @Test
+    @DisplayName("Проигрывание и выгрузка NDJSON идут от смещения до текущего конца")
+    void testReplay() throws IOException {
+        RegistrationJournal journal = journal(10);
+        for (long id = 1; id <= 4; id++) {
+            register(journal, id);
+        }
+
+        List<Long> replayed = new ArrayList<>();
+        assertEquals(4, journal.replay(1, entry -> replayed.add(entry.getRegistrationId())));
+        assertEquals(List.of(2L, 3L, 4L), replayed);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        journal.streamJournal(2, out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"offset\":2"));
+    }
+
+    @Test
+    @DisplayName("Смещение за концом журнала - ошибка 400")
+    void testRead_OffsetBeyondEnd() throws IOException {
+        RegistrationJournal journal = journal(10);
+        register(journal, 1L);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> journal.read(2, 10));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+}
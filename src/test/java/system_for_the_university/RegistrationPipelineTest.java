@@ -0,0 +1,155 @@
+package system_for_the_university;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.RegistrationBatchItemDTO;
+import system_for_the_university.DTO.response.RegistrationResponseDTO;
+import system_for_the_university.DTO.response.RegistrationTicketDTO;
+import system_for_the_university.service.RegistrationPipeline;
+import system_for_the_university.service.RegistrationService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class RegistrationPipelineTest {
+    @Mock
+    RegistrationService registrationService;
+
+    RegistrationPipeline pipeline;
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    private RegistrationPipeline pipeline(int capacity) {
+        pipeline = new RegistrationPipeline(registrationService, new SimpleMeterRegistry(), capacity, 500, 15, 5000);
+        return pipeline;
+    }
+
+    private RegistrationBatchItemDTO created(RegistrationRequestDTO request, long registrationId) {
+        return new RegistrationBatchItemDTO(request.getStudentId(), request.getCourseId(),
+                RegistrationBatchItemDTO.Status.CREATED, null,
+                new RegistrationResponseDTO(registrationId, request.getStudentId(), "Иван",
+                        request.getCourseId(), "Math", LocalDateTime.now()));
+    }
+
+    @Test
+    @DisplayName("Накопившиеся заявки записываются одной транзакцией на курс")
+    void testDrain_GroupsByCourse() throws Exception {
+        RegistrationPipeline pipeline = pipeline(100);
+        RegistrationRequestDTO math1 = new RegistrationRequestDTO(1L, 10L);
+        RegistrationRequestDTO physics = new RegistrationRequestDTO(2L, 20L);
+        RegistrationRequestDTO math2 = new RegistrationRequestDTO(3L, 10L);
+        when(registrationService.registerBatch(List.of(math1, math2)))
+                .thenReturn(List.of(created(math1, 100L), new RegistrationBatchItemDTO(3L, 10L,
+                        RegistrationBatchItemDTO.Status.FULL, "Нет свободных мест для записи", null)));
+        when(registrationService.registerBatch(List.of(physics))).thenReturn(List.of(created(physics, 101L)));
+
+        log.info("Заявки встают в очередь до запуска обработки, поэтому попадают в один микробатч");
+        RegistrationTicketDTO first = pipeline.submit(math1);
+        RegistrationTicketDTO second = pipeline.submit(physics);
+        RegistrationTicketDTO third = pipeline.submit(math2);
+        assertEquals(RegistrationTicketDTO.Status.PENDING, first.getStatus());
+
+        pipeline.start();
+
+        RegistrationTicketDTO firstResult = pipeline.awaitTicket(first.getTicketId(), 5000).get();
+        assertEquals(RegistrationTicketDTO.Status.CREATED, firstResult.getStatus());
+        assertEquals(100L, firstResult.getRegistration().getId());
+        RegistrationTicketDTO thirdResult = pipeline.awaitTicket(third.getTicketId(), 5000).get();
+        assertEquals(RegistrationTicketDTO.Status.FULL, thirdResult.getStatus());
+        // Курсы записываются по очереди, поэтому дожидаюсь и второго курса
+        assertEquals(RegistrationTicketDTO.Status.CREATED,
+                pipeline.awaitTicket(second.getTicketId(), 5000).get().getStatus());
+        verify(registrationService, times(2)).registerBatch(anyList());
+    }
+
+    @Test
+    @DisplayName("Заявка сверх размера очереди получает 429")
+    void testSubmit_QueueFull() {
+        RegistrationPipeline pipeline = pipeline(1);
+        pipeline.submit(new RegistrationRequestDTO(1L, 10L));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> pipeline.submit(new RegistrationRequestDTO(2L, 10L)));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatusCode());
+        assertEquals(1, pipeline.queued());
+    }
+
+    @Test
+    @DisplayName("Заявка на заполненный курс отклоняется без квитанции")
+    void testSubmit_RejectedEarly() {
+        RegistrationPipeline pipeline = pipeline(10);
+        RegistrationRequestDTO request = new RegistrationRequestDTO(1L, 10L);
+        doThrow(new ResponseStatusException(HttpStatus.CONFLICT, "Нет свободных мест для записи"))
+                .when(registrationService).rejectEarly(request);
+
+        assertThrows(ResponseStatusException.class, () -> pipeline.submit(request));
+        assertEquals(0, pipeline.queued());
+    }
+
+    @Test
+    @DisplayName("Ошибка транзакции отмечает заявки батча как FAILED")
+    void testDrain_FailedBatch() throws Exception {
+        RegistrationPipeline pipeline = pipeline(10);
+        when(registrationService.registerBatch(anyList())).thenThrow(new IllegalStateException("БД недоступна"));
+        RegistrationTicketDTO ticket = pipeline.submit(new RegistrationRequestDTO(1L, 10L));
+        pipeline.start();
+
+        assertEquals(RegistrationTicketDTO.Status.FAILED, pipeline.awaitTicket(ticket.getTicketId(), 5000).get().getStatus());
+    }
+
+    @Test
+    @DisplayName("Дубль в батче отмечается только у своей заявки, остальные записываются по одной")
+    void testDrain_BadRequestIsolated() throws Exception {
+        RegistrationPipeline pipeline = pipeline(10);
+        RegistrationRequestDTO first = new RegistrationRequestDTO(1L, 10L);
+        RegistrationRequestDTO duplicate = new RegistrationRequestDTO(2L, 10L);
+        RegistrationRequestDTO third = new RegistrationRequestDTO(3L, 10L);
+        ResponseStatusException conflict = new ResponseStatusException(HttpStatus.CONFLICT, "Студент уже записан на курс");
+        when(registrationService.registerBatch(List.of(first, duplicate, third))).thenThrow(conflict);
+        when(registrationService.registerBatch(List.of(first))).thenReturn(List.of(created(first, 100L)));
+        when(registrationService.registerBatch(List.of(duplicate))).thenThrow(conflict);
+        when(registrationService.registerBatch(List.of(third))).thenReturn(List.of(created(third, 101L)));
+
+        RegistrationTicketDTO firstTicket = pipeline.submit(first);
+        RegistrationTicketDTO duplicateTicket = pipeline.submit(duplicate);
+        RegistrationTicketDTO thirdTicket = pipeline.submit(third);
+        pipeline.start();
+
+        log.info("Проверка, что ошибку получила только заявка-дубль");
+        assertEquals(RegistrationTicketDTO.Status.CREATED,
+                pipeline.awaitTicket(firstTicket.getTicketId(), 5000).get().getStatus());
+        RegistrationTicketDTO duplicateResult = pipeline.awaitTicket(duplicateTicket.getTicketId(), 5000).get();
+        assertEquals(RegistrationTicketDTO.Status.DUPLICATE, duplicateResult.getStatus());
+        assertEquals("Студент уже записан на курс", duplicateResult.getMessage());
+        assertEquals(RegistrationTicketDTO.Status.CREATED,
+                pipeline.awaitTicket(thirdTicket.getTicketId(), 5000).get().getStatus());
+    }
+
+    @Test
+    @DisplayName("Опрос неизвестной квитанции возвращает 404")
+    void testAwaitTicket_Unknown() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> pipeline(10).awaitTicket("нет-такой", 0));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+}
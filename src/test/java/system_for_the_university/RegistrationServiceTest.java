@@ -4,23 +4,40 @@ import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.hibernate.exception.ConstraintViolationException;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.DTO.response.RegistrationBatchItemDTO;
 import system_for_the_university.DTO.response.RegistrationResponseDTO;
 import system_for_the_university.entity.Course;
+import system_for_the_university.entity.CourseSeatSlot;
 import system_for_the_university.entity.Registration;
 import system_for_the_university.entity.Student;
+import system_for_the_university.event.RegistrationCreatedEvent;
+import system_for_the_university.metrics.RegistrationMetrics;
 import system_for_the_university.repository.CourseRepository;
 import system_for_the_university.repository.RegistrationRepository;
 import system_for_the_university.repository.StudentRepository;
+import system_for_the_university.service.CourseSeatService;
+import system_for_the_university.service.CourseWindowIndex;
+import system_for_the_university.service.IdempotencyStore;
 import system_for_the_university.service.RegistrationService;
+import system_for_the_university.service.SeatLedger;
+import system_for_the_university.service.StudentScheduleIndex;
+import system_for_the_university.service.WaitlistService;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -38,6 +55,33 @@ public class RegistrationServiceTest {
     @Mock
     RegistrationRepository registrationRepository;
 
+    @Mock
+    SeatLedger seatLedger;
+
+    @Mock
+    SeatLedger.Reservation reservation;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    RegistrationMetrics registrationMetrics;
+
+    @Mock
+    IdempotencyStore idempotencyStore;
+
+    @Mock
+    WaitlistService waitlistService;
+
+    @Mock
+    CourseWindowIndex courseWindowIndex;
+
+    @Mock
+    CourseSeatService courseSeatService;
+
+    @Mock
+    StudentScheduleIndex studentScheduleIndex;
+
     @InjectMocks
     RegistrationService registrationService;
 
@@ -45,6 +89,13 @@ public class RegistrationServiceTest {
     LocalDateTime future = now.plusDays(1);
     LocalDateTime past = now.minusDays(1);
 
+    // Слоты курса, как их вернёт блокировка для пакетной записи: занятые места в первом слоте
+    private List<CourseSeatSlot> slots(Course course, int occupied) {
+        List<CourseSeatSlot> slots = CourseSeatSlot.split(course, course.getCapacity());
+        slots.get(0).setOccupied(occupied);
+        return slots;
+    }
+
 
     @Test
     @DisplayName("Регистрация студента")
@@ -60,8 +111,11 @@ public class RegistrationServiceTest {
         registration.setId(1L);
 
         // Настраиваем поведение моков
+        when(seatLedger.isTracked(1L)).thenReturn(true);
+        when(seatLedger.tryReserve(1L)).thenReturn(Optional.of(reservation));
         when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
         when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+        when(courseSeatService.claim(course)).thenReturn(true);
         when(registrationRepository.save(any(Registration.class))).thenReturn(registration);
 
         // Подготавливаем реквест для передачи в метод
@@ -77,24 +131,76 @@ public class RegistrationServiceTest {
 
         verify(studentRepository, times(1)).findById(any());
         verify(courseRepository, times(1)).findById(any());
+        verify(courseSeatService, times(1)).claim(course);
         verify(registrationRepository, times(1)).save(any(Registration.class));
+        verify(reservation).confirmOnCommit();
+        verify(reservation, never()).release();
+        // Событие о записи нужно для инвалидации кэша каталога
+        verify(eventPublisher).publishEvent(any(RegistrationCreatedEvent.class));
     }
 
     @Test
-    @DisplayName("Попытка записи на переполненный курс")
-    void testRegisterStudent_CourseFull() {
-        log.info("Подготовка теста: попытка записи на переполненный курс");
-
+    @DisplayName("Параллельный дубль, отсечённый уникальным ключом в БД, возвращает 409 и освобождает место в учёте")
+    void testRegisterStudent_DuplicateOnFlush() {
         Student student = new Student("Иван", "ivan@mail.ru");
         student.setId(1L);
+        Course course = new Course("Math", 30, past, future);
+        course.setId(1L);
 
-        Course course = new Course("Math", 10, past, future); // Курс на 10 мест
+        when(seatLedger.isTracked(1L)).thenReturn(true);
+        when(seatLedger.tryReserve(1L)).thenReturn(Optional.of(reservation));
+        when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+        when(courseSeatService.claim(course)).thenReturn(true);
+        // Проверка existsBy прошла, но параллельная заявка того же студента закоммитилась раньше
+        doThrow(new DataIntegrityViolationException("duplicate", new ConstraintViolationException("duplicate",
+                new SQLException(), "PUBLIC.UK_REGISTRATION_STUDENT_COURSE_INDEX_A")))
+                .when(registrationRepository).flush();
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> registrationService.registerStudentToCourse(new RegistrationRequestDTO(1L, 1L)));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        verify(registrationMetrics).record(RegistrationMetrics.Outcome.DUPLICATE);
+        verify(reservation).release();
+        verify(reservation, never()).confirmOnCommit();
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("Курс, пересекающийся по времени с расписанием студента, отклоняется до занятия места")
+    void testRegisterStudent_ScheduleConflict() {
+        Student student = new Student("Иван", "ivan@mail.ru");
+        student.setId(1L);
+        Course course = new Course("Math", 30, past, future);
         course.setId(1L);
 
-        // Настройка моков
+        when(seatLedger.isTracked(1L)).thenReturn(true);
+        when(seatLedger.tryReserve(1L)).thenReturn(Optional.of(reservation));
         when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
         when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
-        when(courseRepository.countRegistrationsById(1L)).thenReturn(10L); // Все места заняты
+        when(studentScheduleIndex.holdOrConflict(1L, course)).thenReturn(Optional.of(7L));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> registrationService.registerStudentToCourse(new RegistrationRequestDTO(1L, 1L)));
+
+        log.info("Проверка отказа: {}", exception.getReason());
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        assertTrue(exception.getReason().contains("7"));
+        verify(registrationMetrics).record(RegistrationMetrics.Outcome.SCHEDULE_CONFLICT);
+        verify(courseSeatService, never()).claim(any());
+        verify(registrationRepository, never()).save(any());
+        verify(reservation).release();
+    }
+
+    @Test
+    @DisplayName("Попытка записи на переполненный курс")
+    void testRegisterStudent_CourseFull() {
+        log.info("Подготовка теста: попытка записи на переполненный курс");
+
+        // Настройка моков: курс известен учёту мест, но свободных мест в нём нет
+        when(seatLedger.isTracked(1L)).thenReturn(true);
+        when(seatLedger.tryReserve(1L)).thenReturn(Optional.empty());
 
         RegistrationRequestDTO request = new RegistrationRequestDTO(1L, 1L);
 
@@ -106,10 +212,47 @@ public class RegistrationServiceTest {
         assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
         assertTrue(exception.getMessage().contains("Нет свободных мест"));
 
-        verify(studentRepository).findById(1L);
-        verify(courseRepository).findById(1L);
-        verify(courseRepository).countRegistrationsById(1L);
-        verify(registrationRepository, never()).save(any());
+        // Отказ по местам не должен доходить до БД
+        verify(seatLedger).tryReserve(1L);
+        verifyNoInteractions(studentRepository, courseRepository, registrationRepository);
+        verify(registrationMetrics).record(RegistrationMetrics.Outcome.FULL);
+    }
+
+    @Test
+    @DisplayName("Заявка на заполненный курс отклоняется до очереди и транзакции")
+    void testRejectEarly_SoldOut() {
+        when(seatLedger.isSoldOut(1L)).thenReturn(true);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> registrationService.rejectEarly(new RegistrationRequestDTO(1L, 1L)));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        // Место не резервируется: заявка даже не пытается его взять
+        verify(seatLedger, never()).tryReserve(any());
+        verifyNoInteractions(studentRepository, courseRepository, registrationRepository);
+        verify(registrationMetrics).record(RegistrationMetrics.Outcome.FULL);
+    }
+
+    @Test
+    @DisplayName("Заявка на курс со свободными местами проходит ранний отказ")
+    void testRejectEarly_SeatsLeft() {
+        when(seatLedger.isSoldOut(1L)).thenReturn(false);
+        when(seatLedger.isTracked(1L)).thenReturn(true);
+
+        assertDoesNotThrow(() -> registrationService.rejectEarly(new RegistrationRequestDTO(1L, 1L)));
+        verifyNoInteractions(registrationMetrics);
+    }
+
+    @Test
+    @DisplayName("Заявка на несуществующий курс отклоняется до очереди с 404")
+    void testRejectEarly_UnknownCourse() {
+        when(seatLedger.isTracked(404L)).thenReturn(false);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> registrationService.rejectEarly(new RegistrationRequestDTO(1L, 404L)));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+        verify(registrationMetrics).record(RegistrationMetrics.Outcome.NOT_FOUND);
     }
 
     @Test
@@ -124,6 +267,8 @@ public class RegistrationServiceTest {
         course.setId(1L);
 
         // Настройка моков
+        when(seatLedger.isTracked(1L)).thenReturn(true);
+        when(seatLedger.tryReserve(1L)).thenReturn(Optional.of(reservation));
         when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
         when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
 
@@ -141,6 +286,168 @@ public class RegistrationServiceTest {
 
         verify(studentRepository).findById(1L);
         verify(courseRepository).findById(1L);
+        verify(courseSeatService, never()).claim(any());
+        verify(registrationRepository, never()).save(any());
+        // Место, забранное в учёте, должно вернуться обратно
+        verify(reservation).release();
+        verify(registrationMetrics).record(RegistrationMetrics.Outcome.OUTSIDE_WINDOW);
+    }
+
+    @Test
+    @DisplayName("Повтор заявки с тем же ключом идемпотентности не записывает студента повторно")
+    void testRegisterStudent_IdempotentReplay() {
+        RegistrationRequestDTO request = new RegistrationRequestDTO(1L, 1L);
+        RegistrationResponseDTO original = new RegistrationResponseDTO(7L, 1L, "Иван", 1L, "Math", now);
+        when(idempotencyStore.find("key-1", request)).thenReturn(Optional.of(original));
+
+        RegistrationResponseDTO response = registrationService.registerStudentToCourse(request, "key-1");
+
+        log.info("Проверка, что вернулся исходный ответ без новой записи");
+        assertSame(original, response);
+        verifyNoInteractions(seatLedger, studentRepository, courseRepository, registrationRepository);
+        verify(idempotencyStore, never()).save(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Отмена записи отдаёт место первому из листа ожидания")
+    void testCancelRegistration_PromotesWaitlist() {
+        Student student = new Student("Иван", "ivan@mail.ru");
+        student.setId(1L);
+        Course course = new Course("Math", 1, past, future);
+        course.setId(1L);
+        Registration registration = new Registration(student, course, now);
+        registration.setId(1L);
+        when(registrationRepository.findById(1L)).thenReturn(Optional.of(registration));
+
+        registrationService.cancelRegistration(1L);
+
+        verify(courseSeatService).lockSlots(1L);
+        verify(registrationRepository).delete(registration);
+        verify(courseSeatService).release(course);
+        verify(waitlistService).promoteNext(course);
+        verify(seatLedger).reconcileAfterCommit(1L);
+    }
+
+    @Test
+    @DisplayName("Список записей берётся одним запросом сразу в DTO")
+    void testGetAllRegistrations_UsesProjection() {
+        RegistrationResponseDTO row = new RegistrationResponseDTO(1L, 1L, "Иван", 1L, "Math", now);
+        when(registrationRepository.findAllResponses()).thenReturn(List.of(row));
+
+        assertEquals(List.of(row), registrationService.getAllRegistrations());
+        // Сущности записей и их ленивые связи не загружаются
+        verify(registrationRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Записи за период: начало должно быть раньше конца")
+    void testGetPeriodRegistrationPage_InvalidPeriod() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> registrationService.getPeriodRegistrationPage(future, past, 0L, 100));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(registrationRepository);
+    }
+
+    @Test
+    @DisplayName("Запись на курс, который ещё не открылся, отклоняется по индексу окон без обращения к БД")
+    void testRegisterStudent_NotOpenedByWindowIndex() {
+        when(courseWindowIndex.window(1L))
+                .thenReturn(Optional.of(new CourseWindowIndex.Window(1L, future, future.plusDays(1))));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> registrationService.registerStudentToCourse(new RegistrationRequestDTO(1L, 1L)));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        assertTrue(exception.getMessage().contains("Запись возможна только с"));
+        verifyNoInteractions(seatLedger, studentRepository, courseRepository, registrationRepository);
+        verify(registrationMetrics).record(RegistrationMetrics.Outcome.OUTSIDE_WINDOW);
+    }
+
+    @Test
+    @DisplayName("Пакетная запись возвращает результат по каждой заявке")
+    void testRegisterBatch_PerItemResults() {
+        log.info("Подготовка теста: пакет из заявок с разными исходами");
+
+        Student ivan = new Student("Иван", "ivan@mail.ru");
+        ivan.setId(1L);
+        Student petr = new Student("Пётр", "petr@mail.ru");
+        petr.setId(2L);
+
+        Course math = new Course("Math", 2, past, future);
+        math.setId(10L);
+        List<CourseSeatSlot> mathSlots = slots(math, 0);
+        Course history = new Course("History", 5, past.minusDays(2), past.minusDays(1));
+        history.setId(20L);
+
+        when(studentRepository.findAllById(any())).thenReturn(List.of(ivan, petr));
+        // findAllById не гарантирует порядок, а слоты должны блокироваться по возрастанию id курса
+        when(courseRepository.findAllById(any())).thenReturn(List.of(history, math));
+        when(courseSeatService.lockSlots(10L)).thenReturn(mathSlots);
+        when(courseSeatService.lockSlots(20L)).thenReturn(slots(history, 0));
+        List<Object[]> existing = new ArrayList<>();
+        existing.add(new Object[]{2L, 10L});
+        when(registrationRepository.findStudentCoursePairs(any(), any())).thenReturn(existing);
+        when(seatLedger.tryReserve(10L)).thenReturn(Optional.of(reservation));
+
+        List<RegistrationRequestDTO> requests = List.of(
+                new RegistrationRequestDTO(1L, 10L),   // создана
+                new RegistrationRequestDTO(1L, 10L),   // дубль внутри пакета
+                new RegistrationRequestDTO(2L, 10L),   // уже записан в БД
+                new RegistrationRequestDTO(1L, 20L),   // окно записи закрыто
+                new RegistrationRequestDTO(3L, 10L),   // нет студента
+                new RegistrationRequestDTO(1L, 30L));  // нет курса
+
+        log.info("Вызов метода registerBatch");
+        List<RegistrationBatchItemDTO> results = registrationService.registerBatch(requests);
+
+        log.info("Проверка результатов пакета");
+        assertEquals(List.of(
+                        RegistrationBatchItemDTO.Status.CREATED,
+                        RegistrationBatchItemDTO.Status.DUPLICATE,
+                        RegistrationBatchItemDTO.Status.DUPLICATE,
+                        RegistrationBatchItemDTO.Status.CLOSED,
+                        RegistrationBatchItemDTO.Status.NOT_FOUND,
+                        RegistrationBatchItemDTO.Status.NOT_FOUND),
+                results.stream().map(RegistrationBatchItemDTO::getStatus).toList());
+        verify(courseSeatService).occupy(mathSlots, 1);
+        verify(courseSeatService, times(1)).occupy(any(), anyInt());
+        InOrder slotLocks = inOrder(courseSeatService);
+        slotLocks.verify(courseSeatService).lockSlots(10L);
+        slotLocks.verify(courseSeatService).lockSlots(20L);
+
+        // Все созданные записи сохраняются одним saveAll, который Hibernate отправляет батчем
+        verify(registrationRepository, times(1)).saveAll(argThat((List<Registration> created) -> created.size() == 1));
         verify(registrationRepository, never()).save(any());
+        verify(reservation).confirmOnCommit();
+    }
+
+    @Test
+    @DisplayName("Пакетная запись не превышает вместимость курса")
+    void testRegisterBatch_CourseFull() {
+        Student ivan = new Student("Иван", "ivan@mail.ru");
+        ivan.setId(1L);
+        Student petr = new Student("Пётр", "petr@mail.ru");
+        petr.setId(2L);
+
+        Course math = new Course("Math", 3, past, future);
+        math.setId(10L);
+        List<CourseSeatSlot> mathSlots = slots(math, 2);
+
+        when(studentRepository.findAllById(any())).thenReturn(List.of(ivan, petr));
+        when(courseRepository.findAllById(any())).thenReturn(List.of(math));
+        when(courseSeatService.lockSlots(10L)).thenReturn(mathSlots);
+        when(registrationRepository.findStudentCoursePairs(any(), any())).thenReturn(List.of());
+        when(seatLedger.tryReserve(10L)).thenReturn(Optional.of(reservation));
+
+        List<RegistrationBatchItemDTO> results = registrationService.registerBatch(List.of(
+                new RegistrationRequestDTO(1L, 10L),
+                new RegistrationRequestDTO(2L, 10L)));
+
+        assertEquals(RegistrationBatchItemDTO.Status.CREATED, results.get(0).getStatus());
+        assertEquals(RegistrationBatchItemDTO.Status.FULL, results.get(1).getStatus());
+        // Свободное место было одно, его и занимает пакет
+        verify(courseSeatService).occupy(mathSlots, 1);
+        verify(seatLedger, times(1)).tryReserve(10L);
     }
 }
@@ -0,0 +1,166 @@
+package system_for_the_university;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import system_for_the_university.entity.Course;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.repository.CourseRepository;
+import system_for_the_university.service.CourseSeatService;
+import system_for_the_university.service.SeatLedger;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class SeatLedgerTest {
+    @Mock
+    private CourseRepository courseRepository;
+
+    @Mock
+    private CourseSeatService courseSeatService;
+
+    @InjectMocks
+    private SeatLedger seatLedger;
+
+    LocalDateTime now = LocalDateTime.now();
+
+    private Course course(long id, int capacity, int occupied) {
+        Course course = new Course("Math", capacity, now.minusDays(1), now.plusDays(1));
+        course.setId(id);
+        course.setOccupiedSeats(occupied);
+        return course;
+    }
+
+    @Test
+    @DisplayName("Параллельные запросы не забирают больше мест, чем есть")
+    void testTryReserve_NoOverbookingUnderContention() throws InterruptedException {
+        log.info("Подготовка курса на 10 мест, 3 из которых уже заняты");
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(course(1L, 10, 3)));
+
+        int threads = 16;
+        AtomicInteger won = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads * 10; i++) {
+            executor.submit(() -> {
+                start.await();
+                seatLedger.tryReserve(1L).ifPresent(reservation -> won.incrementAndGet());
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        log.info("Проверка количества выигравших запросов");
+        assertEquals(7, won.get(), "Выдано больше или меньше мест, чем свободно");
+        assertEquals(0, seatLedger.remainingSeats(1L));
+        // Курс загружается в учёт один раз, остальные запросы в БД не ходят
+        verify(courseRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Отменённая бронь возвращает место")
+    void testRelease_ReturnsSeatOnce() {
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(course(1L, 1, 0)));
+
+        SeatLedger.Reservation reservation = seatLedger.tryReserve(1L).orElseThrow();
+        assertTrue(seatLedger.tryReserve(1L).isEmpty(), "Последнее место уже занято");
+
+        reservation.release();
+        // Повторный release не должен добавлять лишнее место
+        reservation.release();
+        assertEquals(1, seatLedger.remainingSeats(1L));
+    }
+
+    @Test
+    @DisplayName("Неизвестный курс не попадает в учёт")
+    void testIsTracked_UnknownCourse() {
+        when(courseRepository.findById(42L)).thenReturn(Optional.empty());
+
+        assertFalse(seatLedger.isTracked(42L));
+        assertTrue(seatLedger.tryReserve(42L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Сверка при старте берёт занятые места из БД")
+    void testReconcileAll_LoadsOccupiedFromRegistrations() {
+        when(courseRepository.findAll()).thenReturn(List.of(course(1L, 5, 4), course(2L, 3, 0)));
+
+        seatLedger.reconcileAll();
+
+        assertEquals(1, seatLedger.remainingSeats(1L));
+        assertEquals(3, seatLedger.remainingSeats(2L));
+        // Перед загрузкой слоты мест в БД сверяются с таблицей записей
+        verify(courseSeatService).syncAll();
+    }
+
+    @Test
+    @DisplayName("Сверка после отмены учитывает места, которые ещё не записаны в БД")
+    void testReconcile_KeepsInFlightReservations() {
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(course(1L, 5, 2)));
+        when(courseRepository.findOccupiedSeatsById(1L)).thenReturn(Optional.of(1));
+
+        seatLedger.tryReserve(1L).orElseThrow();
+        // В БД одна запись отменена, одна бронь ещё не зафиксирована
+        seatLedger.reconcile(1L);
+
+        assertEquals(3, seatLedger.remainingSeats(1L));
+    }
+
+    @Test
+    @DisplayName("Бронь, зафиксированная во время сверки, не считается и в БД, и в полёте")
+    void testReconcile_ReservationConfirmedDuringRead() {
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(course(1L, 10, 3)));
+        SeatLedger.Reservation reservation = seatLedger.tryReserve(1L).orElseThrow();
+        // Запись по брони фиксируется, пока сверка читает БД: запрос уже видит её
+        when(courseRepository.findOccupiedSeatsById(1L)).thenAnswer(invocation -> {
+            reservation.confirmOnCommit();
+            return Optional.of(4);
+        });
+
+        seatLedger.reconcile(1L);
+
+        assertEquals(6, seatLedger.remainingSeats(1L), "Бронь посчитана дважды");
+    }
+
+    @Test
+    @DisplayName("Удалённый курс убирается из учёта по событию удаления")
+    void testOnCourseDeleted_ForgetsCourse() {
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(course(1L, 1, 0)));
+        seatLedger.tryReserve(1L).orElseThrow();
+
+        seatLedger.onCourseDeleted(new CourseDeletedEvent(1L));
+
+        assertFalse(seatLedger.isSoldOut(1L));
+        assertEquals(0, seatLedger.remainingSeats(1L));
+    }
+
+    @Test
+    @DisplayName("Курс считается заполненным только после загрузки в учёт")
+    void testIsSoldOut_OnlyForTrackedCourses() {
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(course(1L, 1, 0)));
+
+        log.info("Незагруженный курс не считается заполненным и в БД не загружается");
+        assertFalse(seatLedger.isSoldOut(1L));
+        verifyNoInteractions(courseRepository);
+
+        seatLedger.tryReserve(1L);
+        assertTrue(seatLedger.isSoldOut(1L));
+    }
+}
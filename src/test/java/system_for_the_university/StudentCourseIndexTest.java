@@ -0,0 +1,97 @@
+package system_for_the_university;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.event.RegistrationCancelledEvent;
+import system_for_the_university.event.RegistrationCreatedEvent;
+import system_for_the_university.event.StudentDeletedEvent;
+import system_for_the_university.repository.RegistrationRepository;
+import system_for_the_university.service.StudentCourseIndex;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class StudentCourseIndexTest {
+    @Mock
+    RegistrationRepository registrationRepository;
+
+    @InjectMocks
+    StudentCourseIndex studentCourseIndex;
+
+    private static Stream<Object[]> pairs(long[]... pairs) {
+        return Stream.of(pairs).map(pair -> new Object[]{pair[0], pair[1]});
+    }
+
+    private static RegistrationCreatedEvent created(long studentId, long courseId) {
+        return new RegistrationCreatedEvent(1L, studentId, courseId, LocalDateTime.now());
+    }
+
+    @Test
+    @DisplayName("Индекс загружается из БД одним проходом, курсы студента идут по возрастанию")
+    void testReload() {
+        when(registrationRepository.streamStudentCoursePairs())
+                .thenReturn(pairs(new long[]{1, 10}, new long[]{1, 30}, new long[]{2, 20}));
+
+        studentCourseIndex.reload();
+
+        assertEquals(List.of(10L, 30L), studentCourseIndex.courseIds(1L));
+        assertEquals(List.of(20L), studentCourseIndex.courseIds(2L));
+        assertEquals(List.of(), studentCourseIndex.courseIds(3L));
+        verify(registrationRepository, never()).findCourseIdsByStudentId(any());
+    }
+
+    @Test
+    @DisplayName("Запись и отмена обновляют расписание без обращения к БД")
+    void testEvents() {
+        when(registrationRepository.streamStudentCoursePairs()).thenReturn(pairs(new long[]{1, 10}));
+        studentCourseIndex.reload();
+
+        studentCourseIndex.onRegistrationCreated(created(1L, 5L));
+        studentCourseIndex.onRegistrationCreated(created(1L, 20L));
+        studentCourseIndex.onRegistrationCreated(created(1L, 20L));
+        studentCourseIndex.onRegistrationCreated(created(2L, 20L));
+        assertEquals(List.of(5L, 10L, 20L), studentCourseIndex.courseIds(1L));
+
+        log.info("Отмена, удаление курса и удаление студента");
+        studentCourseIndex.onRegistrationCancelled(new RegistrationCancelledEvent(1L, 1L, 10L));
+        assertEquals(List.of(5L, 20L), studentCourseIndex.courseIds(1L));
+        studentCourseIndex.onCourseDeleted(new CourseDeletedEvent(20L));
+        assertEquals(List.of(5L), studentCourseIndex.courseIds(1L));
+        assertEquals(Map.of(1L, List.of(5L), 2L, List.of()), studentCourseIndex.courseIds(List.of(1L, 2L)));
+        studentCourseIndex.onStudentDeleted(new StudentDeletedEvent(1L));
+        assertEquals(List.of(), studentCourseIndex.courseIds(1L));
+    }
+
+    @Test
+    @DisplayName("Запись, пришедшая во время перезагрузки, не теряется")
+    void testReload_KeepsChangesDuringLoad() {
+        when(registrationRepository.streamStudentCoursePairs()).thenAnswer(invocation ->
+                // Запись зафиксирована уже после того, как выборка для перезагрузки прочитала данные
+                pairs(new long[]{1, 10}).onClose(() -> studentCourseIndex.onRegistrationCreated(created(1L, 40L))));
+
+        studentCourseIndex.reload();
+
+        assertEquals(List.of(10L, 40L), studentCourseIndex.courseIds(1L));
+    }
+
+    @Test
+    @DisplayName("Пока индекс не загружен, расписание читается из БД")
+    void testNotLoaded_ReadsDatabase() {
+        when(registrationRepository.findCourseIdsByStudentId(1L)).thenReturn(List.of(10L));
+
+        assertEquals(List.of(10L), studentCourseIndex.courseIds(1L));
+    }
+}
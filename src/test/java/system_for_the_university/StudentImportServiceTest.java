@@ -0,0 +1,104 @@
+package system_for_the_university;
+
+import jakarta.validation.Validation;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import system_for_the_university.DTO.response.StudentImportRejectDTO;
+import system_for_the_university.DTO.response.StudentImportResultDTO;
+import system_for_the_university.entity.Student;
+import system_for_the_university.repository.StudentRepository;
+import system_for_the_university.service.EntityIdGenerator;
+import system_for_the_university.service.StudentImportService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class StudentImportServiceTest {
+    @Mock
+    StudentRepository studentRepository;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    EntityIdGenerator entityIdGenerator;
+
+    StudentImportService studentImportService;
+
+    @BeforeEach
+    void setUp() {
+        studentImportService = new StudentImportService(studentRepository, jdbcTemplate,
+                Validation.buildDefaultValidatorFactory().getValidator(), entityIdGenerator);
+    }
+
+    private StudentImportResultDTO importCsv(String csv) throws Exception {
+        return studentImportService.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("Импорт отклоняет дубли и некорректные строки, остальное вставляет одним батчем")
+    void testImportCsv_RejectsPerRow() throws Exception {
+        log.info("Подготовка: в БД уже есть студент с email ivan@mail.ru");
+        when(studentRepository.streamAllEmails()).thenReturn(Stream.of("ivan@mail.ru"));
+        when(entityIdGenerator.nextId(Student.class)).thenReturn(51L, 52L);
+        List<Object[]> inserted = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            inserted.addAll(rows);
+            int[] counts = new int[rows.size()];
+            Arrays.fill(counts, 1);
+            return counts;
+        });
+
+        StudentImportResultDTO result = importCsv("""
+                email,name
+                petr@mail.ru,"Петров, Пётр"
+                ivan@mail.ru,Иван
+                not-an-email,Анна
+                ,Олег
+                petr@mail.ru,Пётр Второй
+                maria@mail.ru,Мария
+                """);
+
+        log.info("Проверка итогов импорта");
+        assertEquals(2, result.getImported());
+        assertEquals(4, result.getRejected());
+        assertEquals(List.of(3L, 4L, 5L, 6L), result.getRejects().stream().map(StudentImportRejectDTO::getLine).toList());
+
+        // Уникальность проверяется в памяти, по строке в БД не ходим
+        verify(studentRepository, never()).existsByEmail(any());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        assertArrayEquals(new Object[]{51L, "Петров, Пётр", "petr@mail.ru"}, inserted.get(0));
+        // id выдаются только строкам, которые прошли проверки
+        verify(entityIdGenerator, times(2)).nextId(Student.class);
+    }
+
+    @Test
+    @DisplayName("Строка, которую параллельно успели создать, попадает в отклонённые")
+    void testImportCsv_ConflictOnInsert() throws Exception {
+        when(studentRepository.streamAllEmails()).thenReturn(Stream.empty());
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+
+        StudentImportResultDTO result = importCsv("Иван,ivan@mail.ru\nПётр,petr@mail.ru\n");
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals("petr@mail.ru", result.getRejects().get(0).getEmail());
+    }
+}
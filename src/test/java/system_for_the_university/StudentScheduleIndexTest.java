@@ -0,0 +1,160 @@
+package system_for_the_university;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import system_for_the_university.entity.Course;
+import system_for_the_university.event.CourseDeletedEvent;
+import system_for_the_university.event.RegistrationCancelledEvent;
+import system_for_the_university.repository.RegistrationRepository;
+import system_for_the_university.service.StudentScheduleIndex;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class StudentScheduleIndexTest {
+    @Mock
+    RegistrationRepository registrationRepository;
+
+    LocalDateTime day = LocalDateTime.of(2025, 9, 1, 0, 0);
+
+    private LocalDateTime at(int hour) {
+        return day.plusHours(hour);
+    }
+
+    private Course course(long id, int fromHour, int toHour) {
+        Course course = new Course("Курс " + id, 30, at(fromHour), at(toHour));
+        course.setId(id);
+        return course;
+    }
+
+    private Object[] row(long studentId, long courseId, int fromHour, int toHour) {
+        return new Object[]{studentId, courseId, at(fromHour), at(toHour)};
+    }
+
+    // Студент 1: курс 10 с 9 до 11 и курс 11 с 8 до 18, записанный ещё до включения политики
+    private StudentScheduleIndex loadedIndex() {
+        when(registrationRepository.streamStudentCourseTimes())
+                .thenReturn(Stream.of(row(1, 10, 9, 11), row(1, 11, 8, 18), row(2, 20, 9, 10)));
+        StudentScheduleIndex index = new StudentScheduleIndex(registrationRepository, true);
+        index.reload();
+        return index;
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Пересечение находится и с длинным курсом, начавшимся раньше короткого")
+    void testConflict_LongCourseStartedEarlier() {
+        StudentScheduleIndex index = loadedIndex();
+
+        log.info("Курс с 12 до 13 пересекается только с курсом 11, который тянется до 18");
+        assertEquals(Optional.of(11L), index.conflict(1L, course(12, 12, 13)));
+        assertEquals(Optional.of(20L), index.conflict(2L, course(13, 8, 10)));
+        assertEquals(Optional.empty(), index.conflict(2L, course(12, 10, 13)));
+        verify(registrationRepository, never()).findCourseTimesByStudentId(any());
+    }
+
+    @Test
+    @DisplayName("Курсы встык не пересекаются, занятый интервал виден следующей проверке")
+    void testHold_BackToBack() {
+        StudentScheduleIndex index = loadedIndex();
+
+        assertEquals(Optional.empty(), index.holdOrConflict(1L, course(12, 18, 20)));
+        assertEquals(Optional.empty(), index.holdOrConflict(1L, course(13, 6, 8)));
+        log.info("Курс с 19 до 21 пересекается с только что занятым курсом 12");
+        assertEquals(Optional.of(12L), index.holdOrConflict(1L, course(14, 19, 21)));
+    }
+
+    @Test
+    @DisplayName("Интервал снимается при откате транзакции записи и остаётся при коммите")
+    void testHold_RollbackAndCommit() {
+        StudentScheduleIndex index = loadedIndex();
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals(Optional.empty(), index.holdOrConflict(2L, course(21, 12, 14)));
+        assertEquals(Optional.of(21L), index.conflict(2L, course(22, 13, 15)));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+        assertEquals(Optional.empty(), index.conflict(2L, course(22, 13, 15)));
+
+        log.info("Повтор с коммитом");
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals(Optional.empty(), index.holdOrConflict(2L, course(21, 12, 14)));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertEquals(Optional.of(21L), index.conflict(2L, course(22, 13, 15)));
+    }
+
+    @Test
+    @DisplayName("Откат повторной заявки на тот же курс не снимает уже зафиксированный интервал")
+    void testHold_RollbackOfDuplicateKeepsCommitted() {
+        StudentScheduleIndex index = loadedIndex();
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals(Optional.empty(), index.holdOrConflict(2L, course(21, 12, 14)));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        log.info("Параллельная заявка на тот же курс падает на уникальном ключе и откатывается");
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals(Optional.empty(), index.holdOrConflict(2L, course(21, 12, 14)));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertEquals(Optional.of(21L), index.conflict(2L, course(22, 13, 15)));
+    }
+
+    @Test
+    @DisplayName("Отмена записи и удаление курса освобождают время в расписании")
+    void testEvents() {
+        StudentScheduleIndex index = loadedIndex();
+
+        index.onRegistrationCancelled(new RegistrationCancelledEvent(1L, 1L, 11L));
+        assertEquals(Optional.empty(), index.conflict(1L, course(12, 12, 13)));
+        assertEquals(Optional.of(10L), index.conflict(1L, course(13, 10, 12)));
+        index.onCourseDeleted(new CourseDeletedEvent(10L));
+        assertEquals(Optional.empty(), index.conflict(1L, course(13, 10, 12)));
+    }
+
+    @Test
+    @DisplayName("Пока индекс не загружен, расписание проверяется по БД")
+    void testNotLoaded_ReadsDatabase() {
+        StudentScheduleIndex index = new StudentScheduleIndex(registrationRepository, true);
+        when(registrationRepository.findCourseTimesByStudentId(1L))
+                .thenReturn(List.<Object[]>of(new Object[]{10L, at(9), at(11)}));
+
+        assertEquals(Optional.of(10L), index.holdOrConflict(1L, course(12, 10, 12)));
+        assertEquals(Optional.empty(), index.holdOrConflict(1L, course(13, 11, 12)));
+    }
+
+    @Test
+    @DisplayName("Выключенная политика ничего не проверяет и не читает БД")
+    void testDisabled() {
+        StudentScheduleIndex index = new StudentScheduleIndex(registrationRepository, false);
+        index.reload();
+
+        assertFalse(index.isEnabled());
+        assertEquals(Optional.empty(), index.holdOrConflict(1L, course(12, 10, 12)));
+        verifyNoInteractions(registrationRepository);
+    }
+}
@@ -0,0 +1,191 @@
+package system_for_the_university;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import system_for_the_university.DTO.request.RegistrationRequestDTO;
+import system_for_the_university.entity.Course;
+import system_for_the_university.entity.CourseSeatSlot;
+import system_for_the_university.entity.Registration;
+import system_for_the_university.entity.Student;
+import system_for_the_university.entity.WaitlistEntry;
+import system_for_the_university.event.RegistrationCreatedEvent;
+import system_for_the_university.repository.CourseRepository;
+import system_for_the_university.repository.RegistrationRepository;
+import system_for_the_university.repository.StudentRepository;
+import system_for_the_university.repository.WaitlistEntryRepository;
+import system_for_the_university.service.CourseSeatService;
+import system_for_the_university.service.StudentScheduleIndex;
+import system_for_the_university.service.WaitlistService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class WaitlistServiceTest {
+    @Mock
+    WaitlistEntryRepository waitlistEntryRepository;
+
+    @Mock
+    RegistrationRepository registrationRepository;
+
+    @Mock
+    StudentRepository studentRepository;
+
+    @Mock
+    CourseRepository courseRepository;
+
+    @Mock
+    CourseSeatService courseSeatService;
+
+    @Mock
+    StudentScheduleIndex studentScheduleIndex;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    WaitlistService waitlistService;
+
+    LocalDateTime now = LocalDateTime.now();
+
+    private Course course(int capacity, int occupied) {
+        Course course = new Course("Math", capacity, now.minusDays(1), now.plusDays(1));
+        course.setId(1L);
+        course.setOccupiedSeats(occupied);
+        return course;
+    }
+
+    private List<CourseSeatSlot> slots(Course course, int occupied) {
+        List<CourseSeatSlot> slots = CourseSeatSlot.split(course, course.getCapacity());
+        slots.get(0).setOccupied(occupied);
+        return slots;
+    }
+
+    private Student student(long id) {
+        Student student = new Student("Студент " + id, "student" + id + "@mail.ru");
+        student.setId(id);
+        return student;
+    }
+
+    @Test
+    @DisplayName("В лист ожидания нельзя встать, пока на курсе есть места")
+    void testJoinWaitlist_SeatsAvailable() {
+        when(studentRepository.findById(1L)).thenReturn(Optional.of(student(1L)));
+        Course course = course(10, 9);
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+        when(courseSeatService.lockSlots(1L)).thenReturn(slots(course, 9));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> waitlistService.joinWaitlist(new RegistrationRequestDTO(1L, 1L)));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        verify(waitlistEntryRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Студент встаёт в очередь заполненного курса и получает позицию")
+    void testJoinWaitlist_ReturnsPosition() {
+        Course course = course(10, 10);
+        Student student = student(1L);
+        when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+        when(courseSeatService.lockSlots(1L)).thenReturn(slots(course, 10));
+        when(waitlistEntryRepository.save(any(WaitlistEntry.class))).thenAnswer(invocation -> {
+            WaitlistEntry entry = invocation.getArgument(0);
+            entry.setId(5L);
+            return entry;
+        });
+        when(waitlistEntryRepository.countUpTo(1L, 5L)).thenReturn(3L);
+
+        log.info("Проверка позиции в очереди");
+        assertEquals(3L, waitlistService.joinWaitlist(new RegistrationRequestDTO(1L, 1L)).getPosition());
+    }
+
+    @Test
+    @DisplayName("Освободившееся место получает первый в очереди, уже записанные пропускаются")
+    void testPromoteNext_SkipsAlreadyRegistered() {
+        Course course = course(10, 9);
+        WaitlistEntry alreadyRegistered = new WaitlistEntry(student(1L), course, now);
+        alreadyRegistered.setId(1L);
+        WaitlistEntry next = new WaitlistEntry(student(2L), course, now);
+        next.setId(2L);
+        when(waitlistEntryRepository.findFirstByCourseIdOrderByIdAsc(1L))
+                .thenReturn(Optional.of(alreadyRegistered), Optional.of(next));
+        when(registrationRepository.existsByStudentIdAndCourseId(1L, 1L)).thenReturn(true);
+        when(registrationRepository.existsByStudentIdAndCourseId(2L, 1L)).thenReturn(false);
+        when(courseSeatService.claim(course)).thenReturn(true);
+        when(registrationRepository.save(any(Registration.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Optional<Registration> promoted = waitlistService.promoteNext(course);
+
+        log.info("Проверка, что записан второй студент");
+        assertTrue(promoted.isPresent());
+        assertEquals(2L, promoted.get().getStudent().getId());
+        verify(waitlistEntryRepository).delete(alreadyRegistered);
+        verify(waitlistEntryRepository).delete(next);
+        verify(courseSeatService, times(1)).claim(course);
+        verify(eventPublisher).publishEvent(any(RegistrationCreatedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Без свободного места интервал в расписании студента из очереди не занимается")
+    void testPromoteNext_NoSeatNoScheduleHold() {
+        Course course = course(10, 10);
+        WaitlistEntry entry = new WaitlistEntry(student(1L), course, now);
+        entry.setId(1L);
+        when(waitlistEntryRepository.findFirstByCourseIdOrderByIdAsc(1L)).thenReturn(Optional.of(entry));
+        when(courseSeatService.claim(course)).thenReturn(false);
+
+        assertTrue(waitlistService.promoteNext(course).isEmpty());
+        verifyNoInteractions(studentScheduleIndex);
+        verify(waitlistEntryRepository, never()).delete(any());
+    }
+
+    @Test
+    @DisplayName("Место, занятое под снятую из-за пересечения заявку, достаётся следующему или возвращается")
+    void testPromoteNext_ScheduleConflictPassesSeat() {
+        Course course = course(10, 9);
+        WaitlistEntry conflicting = new WaitlistEntry(student(1L), course, now);
+        conflicting.setId(1L);
+        WaitlistEntry next = new WaitlistEntry(student(2L), course, now);
+        next.setId(2L);
+        when(waitlistEntryRepository.findFirstByCourseIdOrderByIdAsc(1L))
+                .thenReturn(Optional.of(conflicting), Optional.of(next), Optional.empty());
+        when(courseSeatService.claim(course)).thenReturn(true);
+        when(studentScheduleIndex.holdOrConflict(1L, course)).thenReturn(Optional.of(7L));
+        when(studentScheduleIndex.holdOrConflict(2L, course)).thenReturn(Optional.of(8L));
+
+        assertTrue(waitlistService.promoteNext(course).isEmpty());
+
+        log.info("Проверка, что место занято один раз и возвращено");
+        verify(courseSeatService, times(1)).claim(course);
+        verify(courseSeatService).release(course);
+        verify(waitlistEntryRepository).delete(conflicting);
+        verify(waitlistEntryRepository).delete(next);
+        verify(registrationRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("После закрытия записи очередь не продвигается")
+    void testPromoteNext_WindowClosed() {
+        Course course = new Course("Math", 10, now.minusDays(3), now.minusDays(2));
+        course.setId(1L);
+
+        assertTrue(waitlistService.promoteNext(course).isEmpty());
+        verifyNoInteractions(waitlistEntryRepository, courseRepository);
+    }
+}